@@ -102,57 +102,4 @@ public class ARPSOSwarm extends Swarm
                 current_iteration, max_iterations);
         }
     }
-
-    /**
-     * Returns the diversity factor of the swarm.  This is calculated using the equation of Riget and Vesterstrom.
-     * @param particles The particles in the swarm.
-     * @return the diversity of the swarm.
-     */
-    protected double getDiversity(Particle[] particles)
-    {
-        int pos_length = particles[0].getCurrentPosition().length;
-
-        //  Find average position
-        Double[] ave_position = new Double[pos_length];
-        for (int i = 0; i < pos_length; i++)
-        {
-            ave_position[i] = 0.;
-            for (Particle p : particles)
-            {
-                ave_position[i] += p.getCurrentPosition()[i];
-            }
-
-            ave_position[i] /= particles.length;
-        }
-
-        //  Find max diagonal in search space
-        ValueLimitSet vLim = particles[0].getValueLimitSet();
-        double diag_length = 0.;
-        for (int i = 0; i < vLim.getSize(); i++)
-        {
-            double diff = vLim.getValueLimits(i).getMaximum() - vLim.getValueLimits(i).
-                getMinimum();
-
-            diag_length += diff * diff;
-        }
-
-        diag_length = Math.sqrt(diag_length);
-
-        double diversity = 0.;
-        for (Particle p : particles)
-        {
-            double variance = 0.;
-            for (int i = 0; i < pos_length; i++)
-            {
-                variance +=
-                    Math.pow(p.getCurrentPosition()[i] - ave_position[i], 2);
-            }
-
-            diversity += Math.sqrt(variance);
-        }
-
-        diversity /= (particles.length * diag_length);
-
-        return diversity;
-    }
 }
@@ -0,0 +1,332 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import java.util.Arrays;
+import org.apache.logging.log4j.*;
+
+/**
+ *  Composite mover that keeps a pool of strategies, such as BasicMover, CFMover and
+ *  FIPSMover, and assigns one to each particle every iteration, at random with
+ *  probabilities that follow how often each strategy has recently improved the
+ *  personal best of the particles that used it.  After the self-adaptive
+ *  strategy selection of Qin and Suganthan's SaDE, the probabilities are recomputed
+ *  from the success rates at the end of each learning period, so that the swarm
+ *  spends its evaluations on whatever kinematics are currently working.<p>
+ *
+ *  The bookkeeping is a few primitive arrays indexed by particle ID, updated once
+ *  per iteration by the swarm through updateSchedules, which also updates the
+ *  schedules of any strategies that are IScheduledMovers.  The mover keeps the
+ *  assignments of one swarm, so each swarm needs its own; a CooperativeSwarm builds
+ *  one per subswarm with an IMoverFactory.  If the mover is nonetheless given to
+ *  another swarm, its assignments start afresh rather than crediting strategies
+ *  with the other swarm's particles.
+ *
+ * @author Jeff Ridder
+ */
+public class AdaptiveMover implements IInPlaceMover, IScheduledMover
+{
+    private IInPlaceMover[] strategies;
+
+    private int learningPeriod;
+
+    private double[] probabilities;
+
+    private long[] successes;
+
+    private long[] trials;
+
+    private long[] totalSuccesses;
+
+    private long[] totalTrials;
+
+    private int[] assignments;
+
+    private double[] lastFitness;
+
+    private double[] lastViolation;
+
+    private int periodIterations;
+
+    private Swarm swarm;
+
+    private double minProbability;
+
+    private final static Logger logger = LogManager.getLogger(AdaptiveMover.class);
+
+    /**
+     * Creates a new instance of AdaptiveMover.  The strategies start with equal
+     * probabilities.
+     * @param strategies the pool of movers.
+     * @param learningPeriod Number of iterations over which success rates are gathered before the probabilities are recomputed.
+     * @param minProbability Least probability of each strategy, so that none is abandoned for good.  Limited to 1 / the number of strategies.
+     */
+    public AdaptiveMover(IInPlaceMover[] strategies, int learningPeriod,
+        double minProbability)
+    {
+        this.strategies = strategies.clone();
+        this.learningPeriod = Math.max(1, learningPeriod);
+        this.minProbability = Math.max(0., Math.min(1. / strategies.length,
+            minProbability));
+        this.probabilities = new double[strategies.length];
+        for (int s = 0; s < strategies.length; s++)
+        {
+            this.probabilities[s] = 1. / strategies.length;
+        }
+        this.successes = new long[strategies.length];
+        this.trials = new long[strategies.length];
+        this.totalSuccesses = new long[strategies.length];
+        this.totalTrials = new long[strategies.length];
+        this.assignments = new int[0];
+        this.lastFitness = new double[0];
+        this.lastViolation = new double[0];
+        this.periodIterations = 0;
+        this.swarm = null;
+    }
+
+    /**
+     * Returns the number of strategies in the pool.
+     * @return number of strategies.
+     */
+    public int getNumberOfStrategies()
+    {
+        return this.strategies.length;
+    }
+
+    /**
+     * Returns a strategy of the pool.
+     * @param strategy index of the strategy.
+     * @return the mover.
+     */
+    public IInPlaceMover getStrategy(int strategy)
+    {
+        return this.strategies[strategy];
+    }
+
+    /**
+     * Returns the current probability that a particle is assigned a strategy.
+     * @param strategy index of the strategy.
+     * @return the probability.
+     */
+    public double getProbability(int strategy)
+    {
+        return this.probabilities[strategy];
+    }
+
+    /**
+     * Returns the number of times a strategy has been assigned to a particle over
+     * the whole run.
+     * @param strategy index of the strategy.
+     * @return number of trials.
+     */
+    public long getNumberOfTrials(int strategy)
+    {
+        return this.totalTrials[strategy];
+    }
+
+    /**
+     * Returns the number of times a strategy has improved the personal best of the
+     * particle it was assigned to over the whole run.
+     * @param strategy index of the strategy.
+     * @return number of successes.
+     */
+    public long getNumberOfSuccesses(int strategy)
+    {
+        return this.totalSuccesses[strategy];
+    }
+
+    /**
+     * Returns the strategy assigned to a particle in the current iteration.
+     * @param pid ID of the particle.
+     * @return index of the strategy, or -1 if none has been assigned.
+     */
+    public int getAssignment(int pid)
+    {
+        return pid >= 0 && pid < this.assignments.length ? this.assignments[pid] : -1;
+    }
+
+    /**
+     * Credits the strategies of the last iteration with the improvements of their
+     * particles, recomputes the probabilities at the end of a learning period, and
+     * assigns each particle a strategy for the coming iteration.  Then updates the
+     * schedules of the strategies.
+     * @param swarm the swarm whose particles are about to move.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void updateSchedules(Swarm swarm, int current_iteration,
+        int max_iterations)
+    {
+        Particle[] particles = swarm.getParticles();
+
+        if (swarm != this.swarm || this.assignments.length != particles.length)
+        {
+            //  A new or resized swarm, so the old assignments no longer match
+            this.swarm = swarm;
+            this.assignments = new int[particles.length];
+            this.lastFitness = new double[particles.length];
+            this.lastViolation = new double[particles.length];
+        }
+        else
+        {
+            for (int i = 0; i < particles.length; i++)
+            {
+                int s = this.assignments[i];
+                this.trials[s]++;
+                if (State.isBetter(particles[i].getBestFitness(),
+                    particles[i].getBestConstraintViolation(), this.lastFitness[i],
+                    this.lastViolation[i]))
+                {
+                    this.successes[s]++;
+                }
+            }
+
+            if (++this.periodIterations >= this.learningPeriod)
+            {
+                this.updateProbabilities();
+            }
+        }
+
+        for (int i = 0; i < particles.length; i++)
+        {
+            this.assignments[i] = this.chooseStrategy();
+            this.lastFitness[i] = particles[i].getBestFitness();
+            this.lastViolation[i] = particles[i].getBestConstraintViolation();
+        }
+
+        for (int s = 0; s < strategies.length; s++)
+        {
+            if (strategies[s] instanceof IScheduledMover)
+            {
+                ((IScheduledMover) strategies[s]).updateSchedules(swarm,
+                    current_iteration, max_iterations);
+            }
+        }
+    }
+
+    /**
+     * Moves the particle with a strategy chosen at random, as there is no particle
+     * ID with which to look up its assignment.
+     * @param current The current state (position and velocity) of the particle.
+     * @param personal_best The best state ever achieved by the particle.
+     * @param valueLimitSet The value limits of the search space for the particle.
+     * @param neighbors The neighboring particles.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void moveParticle(State current, State personal_best,
+        ValueLimitSet valueLimitSet, Particle[] neighbors, int current_iteration,
+        int max_iterations)
+    {
+        this.moveInPlace(-1, current.getPositionBuffer(),
+            current.getVelocityBuffer(), personal_best.getPositionBuffer(),
+            valueLimitSet, neighbors, current_iteration, max_iterations);
+        current.positionChanged();
+        current.velocityChanged();
+    }
+
+    /**
+     * Moves the particle with the strategy assigned to it, or with a strategy chosen
+     * at random if it has none.
+     * @param pid ID of the particle, or -1 if it is not known.
+     * @param position The current position of the particle, updated in place.
+     * @param velocity The current velocity of the particle, updated in place.
+     * @param personal_best_position The best position ever achieved by the particle.
+     * @param valueLimitSet The value limits of the search space for the particle.
+     * @param neighbors The neighboring particles.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void moveInPlace(int pid, double[] position, double[] velocity,
+        double[] personal_best_position, ValueLimitSet valueLimitSet,
+        Particle[] neighbors, int current_iteration, int max_iterations)
+    {
+        int s = this.getAssignment(pid);
+        if (s < 0)
+        {
+            s = this.chooseStrategy();
+        }
+
+        strategies[s].moveInPlace(pid, position, velocity, personal_best_position,
+            valueLimitSet, neighbors, current_iteration, max_iterations);
+    }
+
+    /**
+     * Recomputes the probabilities in proportion to the success rates of the
+     * learning period just ended, above the least probability, and starts a new
+     * period.  Rates are compared with each other rather than with an absolute
+     * scale, as they all fall as the swarm converges.  If no strategy succeeded, the
+     * probabilities are kept.
+     */
+    private void updateProbabilities()
+    {
+        double sum = 0.;
+        for (int s = 0; s < strategies.length; s++)
+        {
+            if (this.trials[s] > 0)
+            {
+                sum += (double) this.successes[s] / this.trials[s];
+            }
+        }
+
+        if (sum > 0.)
+        {
+            double share = 1. - strategies.length * this.minProbability;
+            for (int s = 0; s < strategies.length; s++)
+            {
+                double rate = this.trials[s] > 0 ?
+                    (double) this.successes[s] / this.trials[s] : 0.;
+                this.probabilities[s] = this.minProbability + share * rate / sum;
+            }
+        }
+
+        for (int s = 0; s < strategies.length; s++)
+        {
+            this.totalSuccesses[s] += this.successes[s];
+            this.totalTrials[s] += this.trials[s];
+            this.successes[s] = 0;
+            this.trials[s] = 0;
+        }
+        this.periodIterations = 0;
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Strategy probabilities: " +
+                Arrays.toString(this.probabilities));
+        }
+    }
+
+    /**
+     * Draws a strategy by roulette wheel over the probabilities.
+     * @return index of the strategy.
+     */
+    private int chooseStrategy()
+    {
+        double r = RandomSource.getInstance().nextDouble();
+        for (int s = 0; s < strategies.length - 1; s++)
+        {
+            r -= this.probabilities[s];
+            if (r < 0.)
+            {
+                return s;
+            }
+        }
+        return strategies.length - 1;
+    }
+}
@@ -0,0 +1,452 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import java.util.Arrays;
+
+/**
+ *  Adapts the inertia weight and acceleration coefficients of a mover to the
+ *  evolutionary state of the swarm, after the adaptive PSO (APSO) of Zhan, Zhang,
+ *  Li and Chung.  Once per iteration, the distance from each particle to the
+ *  others gives an evolutionary factor f, near 1 when the best particle is far
+ *  from a clustered swarm and near 0 when the swarm has converged about it.  A
+ *  fuzzy classification of f selects one of four states:  exploration,
+ *  exploitation, convergence, or jumping out.  The inertia weight follows f,
+ *  w = 1 / (1 + 1.5 exp(-2.6 f)), and c1 and c2 are nudged by a random amount in
+ *  the direction that suits the state.  The distance of a particle is the root mean
+ *  square of its distances to the others rather than their mean, since it follows
+ *  from the distance to the centroid, sum_j |x_i - x_j|^2 = N |x_i - c|^2 +
+ *  sum_j |x_j - c|^2, and so costs O(N D) per iteration instead of O(N^2 D).<p>
+ *
+ *  The controller is used through its schedules, for example
+ *  new BasicMover(controller.getInertiaSchedule(), controller.getCognitiveSchedule(),
+ *  controller.getSocialSchedule()).  The elitist learning of the best particle
+ *  in the jumping-out state is not performed, as it would cost an extra evaluation
+ *  per iteration outside the swarm's control.<p>
+ *
+ *  A controller adapts to one swarm, so each swarm needs a mover with its own
+ *  controller; a CooperativeSwarm builds one per subswarm with an IMoverFactory.
+ *
+ * @author Jeff Ridder
+ */
+public class AdaptiveParameterController
+{
+    /**
+     * Evolutionary states of a swarm, in the order a swarm normally goes through them.
+     */
+    public enum EvolutionaryState
+    {
+        /** Particles are spread out and searching. */
+        EXPLORATION,
+        /** Particles are gathering about promising regions. */
+        EXPLOITATION,
+        /** Particles have converged about the best. */
+        CONVERGENCE,
+        /** The best has moved away from a converged swarm. */
+        JUMPING_OUT
+    }
+
+    private double minCoefficient;
+
+    private double maxCoefficient;
+
+    private double maxCoefficientSum;
+
+    private double inertia;
+
+    private double cognitive;
+
+    private double social;
+
+    private double evolutionaryFactor;
+
+    private EvolutionaryState state;
+
+    private Swarm lastSwarm;
+
+    private long lastIteration;
+
+    private double[] distances;
+
+    private double[] centroid;
+
+    private double[] membership;
+
+    private IParameterSchedule inertiaSchedule;
+
+    private IParameterSchedule cognitiveSchedule;
+
+    private IParameterSchedule socialSchedule;
+
+    /**
+     * Creates a new instance of AdaptiveParameterController with the bounds of the
+     * original APSO:  c1 and c2 within [1.5,2.5] and their sum at most 4.
+     */
+    public AdaptiveParameterController()
+    {
+        this(1.5, 2.5, 4.);
+    }
+
+    /**
+     * Creates a new instance of AdaptiveParameterController.
+     * @param minCoefficient Smallest value of c1 and c2.
+     * @param maxCoefficient Largest value of c1 and c2.
+     * @param maxCoefficientSum Largest value of c1 + c2.  If exceeded, both are scaled down.
+     */
+    public AdaptiveParameterController(double minCoefficient,
+        double maxCoefficient, double maxCoefficientSum)
+    {
+        this.minCoefficient = minCoefficient;
+        this.maxCoefficient = maxCoefficient;
+        this.maxCoefficientSum = maxCoefficientSum;
+        this.inertia = 0.9;
+        this.cognitive = 2.;
+        this.social = 2.;
+        this.evolutionaryFactor = 1.;
+        this.state = EvolutionaryState.EXPLORATION;
+        this.lastSwarm = null;
+        this.lastIteration = -1;
+        this.distances = new double[0];
+        this.centroid = new double[0];
+        this.membership = new double[EvolutionaryState.values().length];
+
+        this.inertiaSchedule = new IParameterSchedule()
+        {
+            public void update(Swarm swarm, int current_iteration,
+                int max_iterations)
+            {
+                AdaptiveParameterController.this.update(swarm);
+            }
+
+            public double getValue(int pid)
+            {
+                return inertia;
+            }
+        };
+
+        this.cognitiveSchedule = new IParameterSchedule()
+        {
+            public void update(Swarm swarm, int current_iteration,
+                int max_iterations)
+            {
+                AdaptiveParameterController.this.update(swarm);
+            }
+
+            public double getValue(int pid)
+            {
+                return cognitive;
+            }
+        };
+
+        this.socialSchedule = new IParameterSchedule()
+        {
+            public void update(Swarm swarm, int current_iteration,
+                int max_iterations)
+            {
+                AdaptiveParameterController.this.update(swarm);
+            }
+
+            public double getValue(int pid)
+            {
+                return social;
+            }
+        };
+    }
+
+    /**
+     * Returns the schedule of the inertia weight.
+     * @return an IParameterSchedule object.
+     */
+    public IParameterSchedule getInertiaSchedule()
+    {
+        return this.inertiaSchedule;
+    }
+
+    /**
+     * Returns the schedule of the cognitive coefficient, c1.
+     * @return an IParameterSchedule object.
+     */
+    public IParameterSchedule getCognitiveSchedule()
+    {
+        return this.cognitiveSchedule;
+    }
+
+    /**
+     * Returns the schedule of the social coefficient, c2.
+     * @return an IParameterSchedule object.
+     */
+    public IParameterSchedule getSocialSchedule()
+    {
+        return this.socialSchedule;
+    }
+
+    /**
+     * Returns the evolutionary factor of the last iteration.
+     * @return the factor, in [0,1].
+     */
+    public double getEvolutionaryFactor()
+    {
+        return this.evolutionaryFactor;
+    }
+
+    /**
+     * Returns the evolutionary state of the last iteration.
+     * @return the state.
+     */
+    public EvolutionaryState getEvolutionaryState()
+    {
+        return this.state;
+    }
+
+    /**
+     * Estimates the evolutionary state of the swarm and adapts the parameters to it.
+     * Does nothing if the parameters have already been adapted in the swarm's
+     * current iteration, so that each of the schedules may call it.
+     * @param swarm the swarm whose particles are about to move.
+     */
+    public void update(Swarm swarm)
+    {
+        if (swarm == this.lastSwarm &&
+            swarm.getNumberOfIterations() == this.lastIteration)
+        {
+            return;
+        }
+        this.lastSwarm = swarm;
+        this.lastIteration = swarm.getNumberOfIterations();
+
+        Particle[] particles = swarm.getParticles();
+        if (particles.length < 2)
+        {
+            return;
+        }
+
+        this.evolutionaryFactor = computeEvolutionaryFactor(particles);
+        this.state = classify(this.evolutionaryFactor, this.state);
+
+        this.inertia = 1. / (1. + 1.5 * Math.exp(-2.6 * this.evolutionaryFactor));
+
+        double delta1 = 0.05 + 0.05 * RandomSource.getInstance().nextDouble();
+        double delta2 = 0.05 + 0.05 * RandomSource.getInstance().nextDouble();
+        switch (this.state)
+        {
+            case EXPLORATION:
+            {
+                this.cognitive += delta1;
+                this.social -= delta2;
+                break;
+            }
+            case EXPLOITATION:
+            {
+                this.cognitive += 0.5 * delta1;
+                this.social -= 0.5 * delta2;
+                break;
+            }
+            case CONVERGENCE:
+            {
+                this.cognitive += 0.5 * delta1;
+                this.social += 0.5 * delta2;
+                break;
+            }
+            case JUMPING_OUT:
+            default:
+            {
+                this.cognitive -= delta1;
+                this.social += delta2;
+                break;
+            }
+        }
+
+        this.cognitive = Math.max(minCoefficient, Math.min(maxCoefficient, this.cognitive));
+        this.social = Math.max(minCoefficient, Math.min(maxCoefficient, this.social));
+
+        double sum = this.cognitive + this.social;
+        if (sum > maxCoefficientSum)
+        {
+            this.cognitive *= maxCoefficientSum / sum;
+            this.social *= maxCoefficientSum / sum;
+        }
+    }
+
+    /**
+     * Computes the evolutionary factor, f = (dg - dmin) / (dmax - dmin), where d is
+     * the root mean square distance from a particle's current position to those of
+     * the others and dg is that of the particle with the best personal best.
+     * @param particles the particles of the swarm.
+     * @return the factor, in [0,1].
+     */
+    private double computeEvolutionaryFactor(Particle[] particles)
+    {
+        int n = particles.length;
+        if (this.distances.length != n)
+        {
+            this.distances = new double[n];
+        }
+
+        int dimensions = particles[0].getCurrentState().getPositionBuffer().length;
+        if (this.centroid.length != dimensions)
+        {
+            this.centroid = new double[dimensions];
+        }
+        else
+        {
+            Arrays.fill(this.centroid, 0.);
+        }
+
+        for (int i = 0; i < n; i++)
+        {
+            double[] a = particles[i].getCurrentState().getPositionBuffer();
+            for (int k = 0; k < dimensions; k++)
+            {
+                this.centroid[k] += a[k];
+            }
+        }
+        for (int k = 0; k < dimensions; k++)
+        {
+            this.centroid[k] /= n;
+        }
+
+        //  Squared distance of each particle to the centroid, and their total
+        double total = 0.;
+        for (int i = 0; i < n; i++)
+        {
+            double[] a = particles[i].getCurrentState().getPositionBuffer();
+            double sum = 0.;
+            for (int k = 0; k < dimensions; k++)
+            {
+                double diff = a[k] - this.centroid[k];
+                sum += diff * diff;
+            }
+            this.distances[i] = sum;
+            total += sum;
+        }
+
+        for (int i = 0; i < n; i++)
+        {
+            this.distances[i] = n > 1 ?
+                Math.sqrt(Math.max(0., (n * this.distances[i] + total) / (n - 1))) : 0.;
+        }
+
+        double min = Double.MAX_VALUE;
+        double max = 0.;
+        int best_index = 0;
+        for (int i = 0; i < n; i++)
+        {
+            min = Math.min(min, this.distances[i]);
+            max = Math.max(max, this.distances[i]);
+            if (particles[i].hasBetterBestThan(particles[best_index]))
+            {
+                best_index = i;
+            }
+        }
+
+        if (max - min <= 0.)
+        {
+            return 0.;
+        }
+
+        return Math.max(0., Math.min(1., (this.distances[best_index] - min) /
+            (max - min)));
+    }
+
+    /**
+     * Classifies an evolutionary factor by the fuzzy memberships of APSO.  Where
+     * the memberships of two states overlap, the previous state is kept if it is one
+     * of them, then the state that follows it in the normal sequence, and otherwise
+     * the state of greater membership.
+     * @param f the evolutionary factor.
+     * @param previous the state of the previous iteration.
+     * @return the state.
+     */
+    protected EvolutionaryState classify(double f, EvolutionaryState previous)
+    {
+        double[] membership = this.membership;
+        Arrays.fill(membership, 0.);
+
+        //  Exploration
+        if (f > 0.4 && f <= 0.6)
+        {
+            membership[0] = 5. * f - 2.;
+        }
+        else if (f > 0.6 && f <= 0.7)
+        {
+            membership[0] = 1.;
+        }
+        else if (f > 0.7 && f <= 0.8)
+        {
+            membership[0] = -10. * f + 8.;
+        }
+
+        //  Exploitation
+        if (f > 0.2 && f <= 0.3)
+        {
+            membership[1] = 10. * f - 2.;
+        }
+        else if (f > 0.3 && f <= 0.4)
+        {
+            membership[1] = 1.;
+        }
+        else if (f > 0.4 && f <= 0.6)
+        {
+            membership[1] = -5. * f + 3.;
+        }
+
+        //  Convergence
+        if (f <= 0.1)
+        {
+            membership[2] = 1.;
+        }
+        else if (f <= 0.3)
+        {
+            membership[2] = -5. * f + 1.5;
+        }
+
+        //  Jumping out
+        if (f > 0.7 && f <= 0.9)
+        {
+            membership[3] = 5. * f - 3.5;
+        }
+        else if (f > 0.9)
+        {
+            membership[3] = 1.;
+        }
+
+        EvolutionaryState[] states = EvolutionaryState.values();
+        int p = previous.ordinal();
+        int next = (p + 1) % states.length;
+
+        if (membership[p] > 0.)
+        {
+            return previous;
+        }
+        if (membership[next] > 0.)
+        {
+            return states[next];
+        }
+
+        int best = 0;
+        for (int i = 1; i < membership.length; i++)
+        {
+            if (membership[i] > membership[best])
+            {
+                best = i;
+            }
+        }
+        return states[best];
+    }
+}
@@ -19,22 +19,18 @@
 
 package com.ridderware.jpso;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-
 /**
  *  Basic PSO Mover, BasicMover
  *
  * @author Jeff Ridder
  */
-public class BasicMover implements IMover
+public class BasicMover implements IInPlaceMover, IScheduledMover
 {
-    private double wstart;
-
-    private double wend;
+    private IParameterSchedule inertia;
 
-    private double c1;
+    private IParameterSchedule cognitive;
 
-    private double c2;
+    private IParameterSchedule social;
 
     /**
      * Creates a new instance of BasicMover
@@ -45,10 +41,44 @@ public class BasicMover implements IMover
      */
     public BasicMover(double wstart, double wend, double c1, double c2)
     {
-        this.wstart = wstart;
-        this.wend = wend;
-        this.c1 = c1;
-        this.c2 = c2;
+        this(new LinearSchedule(wstart, wend), new ConstantSchedule(c1),
+            new ConstantSchedule(c2));
+    }
+
+    /**
+     * Creates a new instance of BasicMover whose parameters follow schedules, such as
+     * those of an AdaptiveParameterController.
+     * @param inertia Schedule of the inertia weight.
+     * @param cognitive Schedule of parameter c1 of basic PSO kinematic equation.
+     * @param social Schedule of parameter c2 of basic PSO kinematic equation.
+     */
+    public BasicMover(IParameterSchedule inertia, IParameterSchedule cognitive,
+        IParameterSchedule social)
+    {
+        this.inertia = inertia;
+        this.cognitive = cognitive;
+        this.social = social;
+    }
+
+    /**
+     * Updates the schedules of the inertia weight and parameters c1 and c2, each
+     * once even if it is shared by several of them.
+     * @param swarm the swarm whose particles are about to move.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void updateSchedules(Swarm swarm, int current_iteration,
+        int max_iterations)
+    {
+        inertia.update(swarm, current_iteration, max_iterations);
+        if (cognitive != inertia)
+        {
+            cognitive.update(swarm, current_iteration, max_iterations);
+        }
+        if (social != inertia && social != cognitive)
+        {
+            social.update(swarm, current_iteration, max_iterations);
+        }
     }
 
     /**
@@ -64,35 +94,56 @@ public class BasicMover implements IMover
         ValueLimitSet valueLimitSet, Particle[] neighbors, int current_iteration,
         int max_iterations)
     {
-        Double[] neighborhood_best_position =
-            Particle.getNeighborhoodBestPosition(neighbors);
+        this.moveInPlace(-1, current.getPositionBuffer(),
+            current.getVelocityBuffer(), personal_best.getPositionBuffer(),
+            valueLimitSet, neighbors, current_iteration, max_iterations);
+        current.positionChanged();
+        current.velocityChanged();
+    }
 
-        Double[] current_position = current.getPosition();
-        Double[] current_velocity = current.getVelocity();
-        Double[] personal_best_position = personal_best.getPosition();
+    /**
+     * Moves the particle by updating its position and velocity in place.
+     * @param pid ID of the particle, or -1 if it is not known.
+     * @param position The current position of the particle, updated in place.
+     * @param velocity The current velocity of the particle, updated in place.
+     * @param personal_best_position The best position ever achieved by the particle.
+     * @param valueLimitSet The value limits of the search space for the particle.
+     * @param neighbors The neighboring particles.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void moveInPlace(int pid, double[] position, double[] velocity,
+        double[] personal_best_position, ValueLimitSet valueLimitSet,
+        Particle[] neighbors, int current_iteration, int max_iterations)
+    {
+        double[] neighborhood_best_position =
+            Particle.getNeighborhoodBest(neighbors).getBestState().getPositionBuffer();
 
-        Double[] next_position = new Double[current_position.length];
-        Double[] next_velocity = new Double[current_velocity.length];
+        double w = inertia.getValue(pid);
+        double c1 = cognitive.getValue(pid);
+        double c2 = social.getValue(pid);
 
-        for (int i = 0; i < current_position.length; i++)
+        for (int i = 0; i < position.length; i++)
         {
-            double x = current_position[i];
-            double v = current_velocity[i];
+            double x = position[i];
+            double v = velocity[i];
 
             ValueLimits vLim = valueLimitSet.getValueLimits(i);
 
             double max_v = vLim.getMaximum() - vLim.getMinimum();
+            double max_speed = vLim.getMaximumVelocity();
 
-            double w = wstart + ((current_iteration + 1.) /
-                (double) max_iterations) * (wend - wstart);
-            double next_v = Math.max(-max_v, Math.min(max_v, w * v + c1 * MersenneTwisterFast.getInstance().
+            double next_v = Math.max(-max_speed, Math.min(max_speed, w * v + c1 * RandomSource.getInstance().
                 nextDouble() * (personal_best_position[i] - x) +
-                c2 * MersenneTwisterFast.getInstance().nextDouble() *
+                c2 * RandomSource.getInstance().nextDouble() *
                 (neighborhood_best_position[i] - x)));
 
             double next_x = x + next_v;
 
-            if (next_x > vLim.getMaximum())
+            //  A binary variable takes its position from the sigmoid of its velocity
+            boolean bounded = vLim.getVariableType() != ValueLimits.VariableType.BINARY;
+
+            if (bounded && next_x > vLim.getMaximum())
             {
                 switch (vLim.getBoundaryType())
                 {
@@ -114,7 +165,7 @@ public class BasicMover implements IMover
                     }
                 }
             }
-            else if (next_x < vLim.getMinimum())
+            else if (bounded && next_x < vLim.getMinimum())
             {
                 switch (vLim.getBoundaryType())
                 {
@@ -137,10 +188,8 @@ public class BasicMover implements IMover
                 }
             }
 
-            next_position[i] = next_x;
-            next_velocity[i] = next_v;
+            position[i] = vLim.discretize(next_x, next_v);
+            velocity[i] = next_v;
         }
-        current.setVelocity(next_velocity);
-        current.setPosition(next_position);
     }
 }
@@ -0,0 +1,63 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ *  The result of an evaluation against an abandon threshold:  the fitness, and
+ *  whether the evaluation was abandoned, in which case the fitness is only a lower
+ *  bound on the true fitness.
+ *
+ * @author Jeff Ridder
+ */
+public final class BoundedFitness
+{
+    private final double fitness;
+
+    private final boolean lowerBound;
+
+    /**
+     * Creates a new instance of BoundedFitness
+     * @param fitness the fitness, or a lower bound on it.
+     * @param lowerBound true if the evaluation was abandoned and fitness is only a lower bound.
+     */
+    public BoundedFitness(double fitness, boolean lowerBound)
+    {
+        this.fitness = fitness;
+        this.lowerBound = lowerBound;
+    }
+
+    /**
+     * Returns the fitness, or a lower bound on it if the evaluation was abandoned.
+     * @return the fitness.
+     */
+    public double getFitness()
+    {
+        return this.fitness;
+    }
+
+    /**
+     * Returns whether the evaluation was abandoned, so that the fitness is only a
+     * lower bound.
+     * @return true if the fitness is a lower bound.
+     */
+    public boolean isLowerBound()
+    {
+        return this.lowerBound;
+    }
+}
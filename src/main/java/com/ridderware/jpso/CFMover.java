@@ -18,19 +18,19 @@
  */
 package com.ridderware.jpso;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-
 /**
  *  Constriction Factor Mover, CFMover
  *
  * @author Jeff Ridder
  */
-public class CFMover implements IMover
+public class CFMover implements IInPlaceMover
 {
     private double c1;
 
     private double c2;
 
+    private double k;
+
     /**
      * Creates a new instance of CFMover
      * @param c1 Parameter c1 of basic PSO kinematic equation.
@@ -40,6 +40,9 @@ public class CFMover implements IMover
     {
         this.c1 = c1;
         this.c2 = c2;
+
+        double phi = c1 + c2;
+        this.k = 2 / Math.abs(2. - phi - Math.sqrt(phi * phi - 4. * phi));
     }
 
     /**
@@ -55,37 +58,52 @@ public class CFMover implements IMover
         ValueLimitSet valueLimitSet, Particle[] neighbors, int current_iteration,
         int max_iterations)
     {
-        Double[] neighborhood_best_position =
-            Particle.getNeighborhoodBestPosition(neighbors);
-
-        Double[] current_position = current.getPosition();
-        Double[] current_velocity = current.getVelocity();
-        Double[] personal_best_position = personal_best.getPosition();
-
-        Double[] next_position = new Double[current_position.length];
-        Double[] next_velocity = new Double[current_velocity.length];
-
-        double phi = c1 + c2;
+        this.moveInPlace(-1, current.getPositionBuffer(),
+            current.getVelocityBuffer(), personal_best.getPositionBuffer(),
+            valueLimitSet, neighbors, current_iteration, max_iterations);
+        current.positionChanged();
+        current.velocityChanged();
+    }
 
-        double k = 2 / Math.abs(2. - phi - Math.sqrt(phi * phi - 4. * phi));
+    /**
+     * Moves the particle by updating its position and velocity in place.
+     * @param pid ID of the particle, or -1 if it is not known.
+     * @param position The current position of the particle, updated in place.
+     * @param velocity The current velocity of the particle, updated in place.
+     * @param personal_best_position The best position ever achieved by the particle.
+     * @param valueLimitSet The value limits of the search space for the particle.
+     * @param neighbors The neighboring particles.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void moveInPlace(int pid, double[] position, double[] velocity,
+        double[] personal_best_position, ValueLimitSet valueLimitSet,
+        Particle[] neighbors, int current_iteration, int max_iterations)
+    {
+        double[] neighborhood_best_position =
+            Particle.getNeighborhoodBest(neighbors).getBestState().getPositionBuffer();
 
-        for (int i = 0; i < current_position.length; i++)
+        for (int i = 0; i < position.length; i++)
         {
-            double x = current_position[i];
-            double v = current_velocity[i];
+            double x = position[i];
+            double v = velocity[i];
 
             ValueLimits vLim = valueLimitSet.getValueLimits(i);
 
             double max_v = vLim.getMaximum() - vLim.getMinimum();
+            double max_speed = vLim.getMaximumVelocity();
 
-            double next_v = Math.max(-max_v, Math.min(max_v, k * (v + c1 * MersenneTwisterFast.getInstance().
+            double next_v = Math.max(-max_speed, Math.min(max_speed, k * (v + c1 * RandomSource.getInstance().
                 nextDouble() * (personal_best_position[i] - x) +
-                c2 * MersenneTwisterFast.getInstance().nextDouble() *
+                c2 * RandomSource.getInstance().nextDouble() *
                 (neighborhood_best_position[i] - x))));
 
             double next_x = x + next_v;
 
-            if (next_x > vLim.getMaximum())
+            //  A binary variable takes its position from the sigmoid of its velocity
+            boolean bounded = vLim.getVariableType() != ValueLimits.VariableType.BINARY;
+
+            if (bounded && next_x > vLim.getMaximum())
             {
                 switch (vLim.getBoundaryType())
                 {
@@ -107,7 +125,7 @@ public class CFMover implements IMover
                     }
                 }
             }
-            else if (next_x < vLim.getMinimum())
+            else if (bounded && next_x < vLim.getMinimum())
             {
                 switch (vLim.getBoundaryType())
                 {
@@ -130,10 +148,8 @@ public class CFMover implements IMover
                 }
             }
 
-            next_position[i] = next_x;
-            next_velocity[i] = next_v;
+            position[i] = vLim.discretize(next_x, next_v);
+            velocity[i] = next_v;
         }
-        current.setVelocity(next_velocity);
-        current.setPosition(next_position);
     }
 }
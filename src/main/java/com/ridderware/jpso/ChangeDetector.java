@@ -0,0 +1,196 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import org.apache.logging.log4j.*;
+
+/**
+ *  Detects changes to the fitness landscape of a dynamic problem.  Before each
+ *  iteration the personal bests of a few sentinel particles are evaluated again,
+ *  starting with the best particle, and if any fitness differs from the recorded
+ *  one by more than a relative tolerance the landscape is taken to have changed.
+ *  The swarm then re-randomizes its worst particles and re-evaluates the personal
+ *  bests of the rest, keeping what it has learned where it still holds.  While the
+ *  landscape is unchanged this costs only the sentinel evaluations.  Constraint
+ *  violations are not checked, and infeasible personal bests are not used as
+ *  sentinels.
+ *
+ * @author Jeff Ridder
+ */
+public class ChangeDetector
+{
+    private int numberOfSentinels;
+
+    private double tolerance;
+
+    private double reinitializeFraction;
+
+    private long sentinelEvaluations;
+
+    private int numberOfChanges;
+
+    private int lastChangeIteration;
+
+    private final static Logger logger = LogManager.getLogger(ChangeDetector.class);
+
+    /**
+     * Creates a new instance of ChangeDetector.
+     * @param numberOfSentinels Number of personal bests evaluated again each iteration.
+     * @param tolerance Relative change in the fitness of a sentinel taken to be a change of landscape, to allow for noise.  The change is relative to the larger of 1 and the recorded fitness.
+     * @param reinitializeFraction Fraction of the particles, the worst by personal best, placed afresh at random after a change.
+     */
+    public ChangeDetector(int numberOfSentinels, double tolerance,
+        double reinitializeFraction)
+    {
+        this.numberOfSentinels = Math.max(1, numberOfSentinels);
+        this.tolerance = tolerance;
+        this.reinitializeFraction = Math.max(0., Math.min(1., reinitializeFraction));
+        this.sentinelEvaluations = 0;
+        this.numberOfChanges = 0;
+        this.lastChangeIteration = -1;
+    }
+
+    /**
+     * Evaluates the sentinels, and responds if the landscape has changed.  Called by
+     * the swarm before each iteration.
+     * @param swarm the swarm.
+     * @param current_iteration the current iteration.
+     * @return true if a change was detected.
+     */
+    public boolean detectChange(Swarm swarm, int current_iteration)
+    {
+        Particle[] particles = swarm.getParticles();
+
+        swarm.getBestSoFar();
+        int best_index = swarm.getBestSoFarIndex();
+
+        //  The best particle and others spaced evenly from it
+        int count = Math.min(this.numberOfSentinels, particles.length);
+        boolean changed = false;
+        for (int k = 0; k < count && !changed; k++)
+        {
+            Particle sentinel = particles[(int) ((best_index +
+                (long) k * particles.length / count) % particles.length)];
+            if (sentinel.getBestConstraintViolation() > 0. ||
+                sentinel.getBestFitness() == Double.MAX_VALUE)
+            {
+                continue;
+            }
+
+            double fitness = swarm.reevaluateFitness(sentinel.getBestPosition());
+            this.sentinelEvaluations++;
+            if (Double.isNaN(fitness))
+            {
+                //  Timed out, which says nothing about the landscape
+                continue;
+            }
+            changed = this.hasChanged(sentinel.getBestFitness(), fitness);
+        }
+
+        if (changed)
+        {
+            logger.info("Landscape change detected at iteration " + current_iteration);
+            this.numberOfChanges++;
+            this.lastChangeIteration = current_iteration;
+            swarm.resetPersonalBests(this.chooseReinitialized(particles, best_index));
+        }
+
+        return changed;
+    }
+
+    /**
+     * Returns whether the fitness of a sentinel shows that the landscape has changed.
+     * @param recorded the recorded fitness of the sentinel's personal best.
+     * @param fitness its fitness when evaluated again.
+     * @return true if the landscape has changed.
+     */
+    protected boolean hasChanged(double recorded, double fitness)
+    {
+        return Math.abs(fitness - recorded) >
+            this.tolerance * Math.max(1., Math.abs(recorded));
+    }
+
+    /**
+     * Chooses the particles to be placed afresh: the worst by personal best, never
+     * including the best particle.
+     * @param particles the particles of the swarm.
+     * @param best_index index of the best particle.
+     * @return which particles are to be placed afresh, indexed by ID.
+     */
+    protected boolean[] chooseReinitialized(final Particle[] particles, int best_index)
+    {
+        ArrayList<Integer> order = new ArrayList<Integer>();
+        for (int i = 0; i < particles.length; i++)
+        {
+            if (i != best_index)
+            {
+                order.add(i);
+            }
+        }
+
+        Collections.sort(order, new Comparator<Integer>()
+        {
+            public int compare(Integer a, Integer b)
+            {
+                return particles[b].hasBetterBestThan(particles[a]) ? -1 :
+                    particles[a].hasBetterBestThan(particles[b]) ? 1 : 0;
+            }
+        });
+
+        boolean[] reinitialize = new boolean[particles.length];
+        int count = Math.min(order.size(),
+            (int) Math.round(this.reinitializeFraction * particles.length));
+        for (int i = 0; i < count; i++)
+        {
+            reinitialize[order.get(i)] = true;
+        }
+
+        return reinitialize;
+    }
+
+    /**
+     * Returns the number of evaluations of sentinels.
+     * @return number of sentinel evaluations.
+     */
+    public long getNumberOfSentinelEvaluations()
+    {
+        return this.sentinelEvaluations;
+    }
+
+    /**
+     * Returns the number of changes of landscape detected.
+     * @return number of changes.
+     */
+    public int getNumberOfChanges()
+    {
+        return this.numberOfChanges;
+    }
+
+    /**
+     * Returns the iteration at which the latest change was detected.
+     * @return iteration, or -1 if none has been detected.
+     */
+    public int getLastChangeIteration()
+    {
+        return this.lastChangeIteration;
+    }
+}
@@ -0,0 +1,125 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ *  A parameter that decreases linearly from a starting to an ending value, with
+ *  the ending value modulated by a logistic map z = 4 z (1 - z), after the chaotic
+ *  inertia weight of Feng et al.: value = (start - end) (1 - t) + end z, with t the
+ *  fraction of the run completed.  The chaotic term keeps perturbing the value
+ *  without settling, which helps the swarm out of local optima.  Each particle may
+ *  follow its own map, started from its own random point.
+ *
+ * @author Jeff Ridder
+ */
+public class ChaoticSchedule implements IParameterSchedule
+{
+    private double start;
+
+    private double end;
+
+    private boolean perParticle;
+
+    private double z;
+
+    private double value;
+
+    private double[] zs;
+
+    private double[] values;
+
+    /**
+     * Creates a new instance of ChaoticSchedule
+     * @param start Value at the start of the run.
+     * @param end Value about which the schedule ends, multiplied by the map.
+     * @param perParticle If true, each particle follows its own map.
+     */
+    public ChaoticSchedule(double start, double end, boolean perParticle)
+    {
+        this.start = start;
+        this.end = end;
+        this.perParticle = perParticle;
+        this.z = startingPoint();
+        this.value = start;
+        this.zs = new double[0];
+        this.values = new double[0];
+    }
+
+    /**
+     * Advances the maps and computes the values for an iteration.
+     * @param swarm the swarm whose particles are about to move.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void update(Swarm swarm, int current_iteration, int max_iterations)
+    {
+        double t = Math.min(1., (current_iteration + 1.) / (double) max_iterations);
+        double trend = (start - end) * (1. - t);
+
+        this.z = 4. * this.z * (1. - this.z);
+        this.value = trend + end * this.z;
+
+        if (this.perParticle)
+        {
+            int n = swarm.getParticles().length;
+            if (this.zs.length != n)
+            {
+                double[] grown = new double[n];
+                for (int i = 0; i < n; i++)
+                {
+                    grown[i] = i < this.zs.length ? this.zs[i] : startingPoint();
+                }
+                this.zs = grown;
+                this.values = new double[n];
+            }
+
+            for (int i = 0; i < n; i++)
+            {
+                this.zs[i] = 4. * this.zs[i] * (1. - this.zs[i]);
+                this.values[i] = trend + end * this.zs[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the value for a particle in the current iteration.
+     * @param pid ID of the particle, or -1 if it is not known.
+     * @return the particle's value, or the value shared by all particles.
+     */
+    public double getValue(int pid)
+    {
+        return pid >= 0 && pid < this.values.length ? this.values[pid] : this.value;
+    }
+
+    /**
+     * Draws a starting point of the logistic map, avoiding the points that lead to
+     * its fixed points.
+     * @return the starting point, in (0,1).
+     */
+    private static double startingPoint()
+    {
+        double z;
+        do
+        {
+            z = RandomSource.getInstance().nextDouble();
+        }
+        while (z == 0. || z == 0.25 || z == 0.5 || z == 0.75);
+        return z;
+    }
+}
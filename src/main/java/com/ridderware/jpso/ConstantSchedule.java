@@ -0,0 +1,58 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ *  A parameter that keeps the same value throughout.
+ *
+ * @author Jeff Ridder
+ */
+public class ConstantSchedule implements IParameterSchedule
+{
+    private double value;
+
+    /**
+     * Creates a new instance of ConstantSchedule
+     * @param value the value.
+     */
+    public ConstantSchedule(double value)
+    {
+        this.value = value;
+    }
+
+    /**
+     * Does nothing, as the value never changes.
+     * @param swarm the swarm whose particles are about to move.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void update(Swarm swarm, int current_iteration, int max_iterations)
+    {
+    }
+
+    /**
+     * Returns the value.
+     * @param pid ID of the particle, or -1 if it is not known.
+     * @return the value.
+     */
+    public double getValue(int pid)
+    {
+        return this.value;
+    }
+}
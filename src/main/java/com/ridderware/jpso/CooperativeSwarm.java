@@ -0,0 +1,823 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import com.ridderware.jrandom.MersenneTwisterFast;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import org.apache.logging.log4j.*;
+
+/**
+ *  Implements the cooperative PSO of van den Bergh and Engelbrecht for problems with
+ *  many dimensions.  The dimensions are split into groups and each group is searched
+ *  by its own subswarm (CPSO-S_k).  A subswarm evaluates its particles by placing
+ *  them into a context vector that holds the best value found for every dimension.
+ *  <p>
+ *  Each iteration the subswarms step in parallel against a frozen copy of the
+ *  context, and their bests are then merged into the context one group at a time,
+ *  keeping each only if it improves the context.  In the hybrid form (CPSO-H) a
+ *  swarm over all dimensions also steps each iteration, exchanging its best with the
+ *  context.
+ *  <p>
+ *  Groups may be given, split evenly with getGroups, or found by differential
+ *  grouping with findGroups.  When more than one thread is used the evaluator must
+ *  be thread-safe.  Each subswarm draws from its own random number stream, seeded
+ *  from the stream of the thread that creates the swarm.  The evaluator's
+ *  preevaluate and postevaluate methods are not called.  If the evaluator is an
+ *  IIncrementalEvaluator, each subswarm particle keeps a full evaluation context,
+ *  updated with the changes to its group and to the context.  If it is an
+ *  IConstrainedEvaluator, the subswarms check the constraints of their positions
+ *  placed into the context, and the context is kept by the feasibility rules of
+ *  State.isBetter, so an infeasible position never replaces a feasible one.
+ *
+ * @author Jeff Ridder
+ */
+public class CooperativeSwarm
+{
+    /**
+     *  Evaluates the positions of a subswarm by placing them into the context.  The
+     *  constraints are those of the evaluator, if it is an IConstrainedEvaluator.
+     */
+    private class ContextEvaluator implements IConstrainedEvaluator
+    {
+        protected final int[] group;
+
+        protected volatile Double[] frozen;
+
+        /**
+         * Creates a new instance of ContextEvaluator
+         * @param group dimensions of the group.
+         */
+        ContextEvaluator(int[] group)
+        {
+            this.group = group;
+            this.frozen = null;
+        }
+
+        /**
+         * Evaluates the context with the group's dimensions replaced by a position.
+         * @param position position of the subswarm's particle.
+         * @return fitness.
+         */
+        public double evaluateFitness(Double[] position)
+        {
+            return evaluator.evaluateFitness(this.place(position));
+        }
+
+        /**
+         * Evaluates the constraint violation of the context with the group's
+         * dimensions replaced by a position.
+         * @param position position of the subswarm's particle.
+         * @return the violation, 0 if the evaluator has no constraints.
+         */
+        public double evaluateConstraintViolation(Double[] position)
+        {
+            if (!(evaluator instanceof IConstrainedEvaluator))
+            {
+                return 0.;
+            }
+            return ((IConstrainedEvaluator) evaluator).evaluateConstraintViolation(
+                this.place(position));
+        }
+
+        /**
+         * Returns the context with the group's dimensions replaced by a position.
+         * @param position position of the subswarm's particle.
+         * @return full position.
+         */
+        protected Double[] place(Double[] position)
+        {
+            Double[] full = this.frozen.clone();
+            for (int i = 0; i < this.group.length; i++)
+            {
+                full[this.group[i]] = position[i];
+            }
+            return full;
+        }
+
+        /**
+         * Does nothing.
+         * @param particles the particles.
+         */
+        public void preevaluate(Particle[] particles)
+        {
+        }
+
+        /**
+         * Does nothing.
+         * @param particles the particles.
+         */
+        public void postevaluate(Particle[] particles)
+        {
+        }
+    }
+
+    /**
+     *  Evaluates the positions of a subswarm incrementally, for an evaluator that is
+     *  an IIncrementalEvaluator.  Each context holds the full position it was
+     *  evaluated at, so that changes to the group and to the rest of the context
+     *  since then are both passed on.
+     */
+    private class IncrementalContextEvaluator extends ContextEvaluator
+        implements IIncrementalEvaluator
+    {
+        private final boolean[] inGroup;
+
+        /**
+         *  Context of a subswarm particle.
+         */
+        private class FullContext
+        {
+            private Object context;
+
+            private Double[] full;
+
+            private int[] changed;
+
+            private double[] values;
+        }
+
+        /**
+         * Creates a new instance of IncrementalContextEvaluator
+         * @param group dimensions of the group.
+         * @param dimensions number of dimensions of the full problem.
+         */
+        IncrementalContextEvaluator(int[] group, int dimensions)
+        {
+            super(group);
+            this.inGroup = new boolean[dimensions];
+            for (int d : group)
+            {
+                this.inGroup[d] = true;
+            }
+        }
+
+        /**
+         * Evaluates the context with the group's dimensions replaced by a position,
+         * and keeps the full position.
+         * @param position position of the subswarm's particle.
+         * @return the context.
+         */
+        public Object createContext(Double[] position)
+        {
+            FullContext c = new FullContext();
+            c.full = this.place(position);
+            c.context = ((IIncrementalEvaluator) evaluator).createContext(c.full);
+            c.changed = new int[c.full.length];
+            c.values = new double[c.full.length];
+            return c;
+        }
+
+        /**
+         * Returns the fitness held by a context.
+         * @param context the context.
+         * @return fitness.
+         */
+        public double getFitness(Object context)
+        {
+            return ((IIncrementalEvaluator) evaluator).getFitness(
+                ((FullContext) context).context);
+        }
+
+        /**
+         * Updates a context for changes to the group's dimensions and to the frozen
+         * context outside the group.
+         * @param context the context.
+         * @param changed indices within the group of the changed elements.
+         * @param values new values of the changed elements.
+         * @param count number of changed elements.
+         * @return fitness.
+         */
+        public double evaluateChanges(Object context, int[] changed,
+            double[] values, int count)
+        {
+            FullContext c = (FullContext) context;
+            int full_count = 0;
+            for (int k = 0; k < count; k++)
+            {
+                int d = this.group[changed[k]];
+                c.full[d] = values[k];
+                c.changed[full_count] = d;
+                c.values[full_count++] = values[k];
+            }
+
+            Double[] frozen = this.frozen;
+            for (int d = 0; d < c.full.length; d++)
+            {
+                if (!this.inGroup[d] && !frozen[d].equals(c.full[d]))
+                {
+                    c.full[d] = frozen[d];
+                    c.changed[full_count] = d;
+                    c.values[full_count++] = frozen[d];
+                }
+            }
+
+            return ((IIncrementalEvaluator) evaluator).evaluateChanges(c.context,
+                c.changed, c.values, full_count);
+        }
+    }
+
+    private IEvaluator evaluator;
+
+    private ValueLimitSet valueLimitSet;
+
+    private int[][] groups;
+
+    private Swarm[] subswarms;
+
+    private ContextEvaluator[] contextEvaluators;
+
+    private MersenneTwisterFast[] randoms;
+
+    private Swarm hybridSwarm;
+
+    private Double[] context;
+
+    private double contextFitness;
+
+    private double contextViolation;
+
+    private long evaluations;
+
+    private ExecutorService executor;
+
+    private final static Logger logger = LogManager.getLogger(CooperativeSwarm.class);
+
+    /**
+     * Creates a new instance of CooperativeSwarm
+     * @param particlesPerGroup Number of particles in each subswarm.
+     * @param evaluator The evaluator of full positions.
+     * @param valueLimitSet The search space.
+     * @param moverFactory Builds a mover for each subswarm and for the hybrid swarm, so that movers with per-swarm state, such as an AdaptiveMover, are never shared.
+     * @param topology Topology of each subswarm.
+     * @param neighborhoodSize Neighborhood size of each subswarm's topology.
+     * @param groups Dimensions searched by each subswarm.  Every dimension should appear in exactly one group.
+     * @param numberOfThreads Number of subswarms stepped at once.
+     * @param hybrid if true, a swarm over all dimensions also runs, as in CPSO-H.
+     */
+    public CooperativeSwarm(int particlesPerGroup, IEvaluator evaluator,
+        ValueLimitSet valueLimitSet, IMoverFactory moverFactory,
+        NeighborhoodTopology.Topology topology, int neighborhoodSize,
+        int[][] groups, int numberOfThreads, boolean hybrid)
+    {
+        this.evaluator = evaluator;
+        this.valueLimitSet = valueLimitSet;
+        this.groups = groups;
+        this.subswarms = new Swarm[groups.length];
+        this.contextEvaluators = new ContextEvaluator[groups.length];
+        this.randoms = new MersenneTwisterFast[groups.length];
+        this.context = null;
+        this.contextFitness = Double.MAX_VALUE;
+        this.contextViolation = 0.;
+        this.evaluations = 0;
+
+        for (int g = 0; g < groups.length; g++)
+        {
+            ValueLimitSet group_limits = new ValueLimitSet();
+            for (int d : groups[g])
+            {
+                group_limits.addValueLimits(valueLimitSet.getValueLimits(d));
+            }
+
+            this.contextEvaluators[g] = evaluator instanceof IIncrementalEvaluator ?
+                new IncrementalContextEvaluator(groups[g], valueLimitSet.getSize()) :
+                new ContextEvaluator(groups[g]);
+            this.subswarms[g] = new Swarm(particlesPerGroup,
+                this.contextEvaluators[g], new NeighborhoodTopology(topology,
+                particlesPerGroup, neighborhoodSize));
+            this.subswarms[g].createParticles(group_limits, moverFactory.createMover());
+
+            //  Fitness depends on the context, which changes between iterations
+            this.subswarms[g].setForceReevaluation(true);
+            this.randoms[g] = new MersenneTwisterFast(RandomSource.getInstance().nextLong());
+        }
+
+        if (hybrid)
+        {
+            this.hybridSwarm = new Swarm(particlesPerGroup, evaluator,
+                new NeighborhoodTopology(topology, particlesPerGroup,
+                neighborhoodSize));
+            this.hybridSwarm.createParticles(valueLimitSet, moverFactory.createMover());
+        }
+        else
+        {
+            this.hybridSwarm = null;
+        }
+
+        if (numberOfThreads > 1)
+        {
+            this.executor = Executors.newFixedThreadPool(numberOfThreads,
+                new ThreadFactory()
+                {
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread t = new Thread(r, "jpso-cooperative");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        }
+        else
+        {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Splits the dimensions evenly into contiguous groups, as in CPSO-S_k.
+     * @param dimensions number of dimensions.
+     * @param numberOfGroups number of groups, k.
+     * @return the groups.
+     */
+    public static int[][] getGroups(int dimensions, int numberOfGroups)
+    {
+        int k = Math.max(1, Math.min(dimensions, numberOfGroups));
+
+        int[][] groups = new int[k][];
+        int d = 0;
+        for (int g = 0; g < k; g++)
+        {
+            groups[g] = new int[(dimensions - d) / (k - g)];
+            for (int i = 0; i < groups[g].length; i++)
+            {
+                groups[g][i] = d++;
+            }
+        }
+
+        return groups;
+    }
+
+    /**
+     * Groups interacting dimensions by the differential grouping of Omidvar et al.
+     * Dimensions i and j interact if the change in fitness from moving x_i depends on
+     * x_j.  Each dimension is tested against every dimension not yet grouped, so on a
+     * fully separable problem about n^2 / 2 evaluations are made.  Separable
+     * dimensions are then packed into groups of a given size.
+     * @param evaluator The evaluator of full positions.
+     * @param valueLimitSet The search space.
+     * @param epsilon Threshold on the difference of fitness changes above which dimensions interact.
+     * @param separableGroupSize Size of the groups of separable dimensions.
+     * @return the groups.
+     */
+    public static int[][] findGroups(IEvaluator evaluator,
+        ValueLimitSet valueLimitSet, double epsilon, int separableGroupSize)
+    {
+        int n = valueLimitSet.getSize();
+
+        //  Probe from the lower corner, moving each dimension to its midpoint
+        Double[] lower = new Double[n];
+        double[] middle = new double[n];
+        for (int d = 0; d < n; d++)
+        {
+            ValueLimits vLim = valueLimitSet.getValueLimits(d);
+            lower[d] = vLim.round(vLim.getMinimum());
+            middle[d] = vLim.round(0.5 * (vLim.getMinimum() + vLim.getMaximum()));
+        }
+
+        double base = evaluator.evaluateFitness(lower);
+        double[] single = new double[n];
+        for (int d = 0; d < n; d++)
+        {
+            Double[] x = lower.clone();
+            x[d] = middle[d];
+            single[d] = evaluator.evaluateFitness(x);
+        }
+        long probes = n + 1;
+
+        boolean[] grouped = new boolean[n];
+        ArrayList<int[]> groups = new ArrayList<int[]>();
+        ArrayList<Integer> separable = new ArrayList<Integer>();
+
+        for (int i = 0; i < n; i++)
+        {
+            if (grouped[i])
+            {
+                continue;
+            }
+            grouped[i] = true;
+
+            ArrayList<Integer> group = new ArrayList<Integer>();
+            group.add(i);
+            double delta_i = single[i] - base;
+
+            for (int j = i + 1; j < n; j++)
+            {
+                if (grouped[j])
+                {
+                    continue;
+                }
+
+                Double[] x = lower.clone();
+                x[i] = middle[i];
+                x[j] = middle[j];
+                double delta_ij = evaluator.evaluateFitness(x) - single[j];
+                probes++;
+
+                if (Math.abs(delta_i - delta_ij) > epsilon)
+                {
+                    group.add(j);
+                    grouped[j] = true;
+                }
+            }
+
+            if (group.size() == 1)
+            {
+                separable.add(i);
+            }
+            else
+            {
+                groups.add(toArray(group));
+            }
+        }
+
+        int size = Math.max(1, separableGroupSize);
+        for (int start = 0; start < separable.size(); start += size)
+        {
+            groups.add(toArray(separable.subList(start,
+                Math.min(separable.size(), start + size))));
+        }
+
+        logger.info("Differential grouping found " + groups.size() + " groups (" +
+            separable.size() + " separable dimensions) in " + probes + " evaluations");
+
+        return groups.toArray(new int[groups.size()][]);
+    }
+
+    /**
+     * Initializes the subswarms.  The context starts from the first particle of each
+     * subswarm.
+     */
+    public void initializeParticles()
+    {
+        this.context = new Double[this.valueLimitSet.getSize()];
+        for (int g = 0; g < this.groups.length; g++)
+        {
+            Particle first = this.subswarms[g].getParticles()[0];
+            first.initialize();
+            for (int i = 0; i < this.groups[g].length; i++)
+            {
+                this.context[this.groups[g][i]] = first.getCurrentPosition()[i];
+            }
+        }
+        this.contextViolation = this.evaluateConstraintViolation(this.context);
+        this.contextFitness = this.evaluate(this.context, this.contextViolation);
+
+        for (int g = 0; g < this.groups.length; g++)
+        {
+            this.contextEvaluators[g].frozen = this.context.clone();
+            MersenneTwisterFast previous = RandomSource.getThreadInstance();
+            RandomSource.setThreadInstance(this.randoms[g]);
+            try
+            {
+                this.subswarms[g].initializeParticles();
+            }
+            finally
+            {
+                RandomSource.setThreadInstance(previous);
+            }
+        }
+        this.mergeSubswarms();
+
+        if (this.hybridSwarm != null)
+        {
+            this.hybridSwarm.initializeParticles();
+            this.exchangeWithHybrid();
+        }
+    }
+
+    /**
+     * Iterates the cooperative swarm.
+     * @param max_iterations max number of iterations.
+     */
+    public void iterate(int max_iterations)
+    {
+        for (int i = 0; i < max_iterations; i++)
+        {
+            logger.debug("Cooperative iteration: " + (i + 1));
+
+            Double[] frozen = this.context.clone();
+            for (ContextEvaluator e : this.contextEvaluators)
+            {
+                e.frozen = frozen;
+            }
+
+            this.stepSubswarms(i, max_iterations);
+            this.mergeSubswarms();
+
+            if (this.hybridSwarm != null)
+            {
+                this.injectContext(this.hybridSwarm, this.context,
+                    this.contextFitness, this.contextViolation);
+                this.hybridSwarm.step(i, max_iterations);
+                this.exchangeWithHybrid();
+            }
+        }
+
+        logger.info("Cooperative swarm best: " + this.contextFitness +
+            " (violation " + this.contextViolation + ") after " +
+            this.getNumberOfEvaluations() + " evaluations");
+    }
+
+    /**
+     * Shuts down the thread pool.
+     */
+    public void shutdown()
+    {
+        if (this.executor != null)
+        {
+            this.executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the context vector, the best full position found.
+     * @return position vector.
+     */
+    public Double[] getContext()
+    {
+        return this.context.clone();
+    }
+
+    /**
+     * Returns the fitness of the context vector.
+     * @return fitness.
+     */
+    public double getContextFitness()
+    {
+        return this.contextFitness;
+    }
+
+    /**
+     * Returns the constraint violation of the context vector.
+     * @return the violation, 0 if the context is feasible or the evaluator has no constraints.
+     */
+    public double getContextConstraintViolation()
+    {
+        return this.contextViolation;
+    }
+
+    /**
+     * Returns the subswarms.
+     * @return array of subswarms, one per group.
+     */
+    public Swarm[] getSubswarms()
+    {
+        return this.subswarms;
+    }
+
+    /**
+     * Returns the groups of dimensions.
+     * @return the groups.
+     */
+    public int[][] getGroups()
+    {
+        return this.groups;
+    }
+
+    /**
+     * Returns the number of evaluations performed by the subswarms, the hybrid
+     * swarm and the merging of the context.
+     * @return number of evaluations.
+     */
+    public long getNumberOfEvaluations()
+    {
+        long total = this.evaluations;
+        for (Swarm s : this.subswarms)
+        {
+            total += s.getNumberOfEvaluations();
+        }
+        if (this.hybridSwarm != null)
+        {
+            total += this.hybridSwarm.getNumberOfEvaluations();
+        }
+        return total;
+    }
+
+    /**
+     * Steps every subswarm once, in parallel if there is a thread pool.
+     * @param current_iteration the current iteration.
+     * @param max_iterations max number of iterations.
+     */
+    private void stepSubswarms(final int current_iteration, final int max_iterations)
+    {
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        for (int g = 0; g < this.groups.length; g++)
+        {
+            final Swarm subswarm = this.subswarms[g];
+            final MersenneTwisterFast random = this.randoms[g];
+            tasks.add(new Callable<Boolean>()
+            {
+                public Boolean call()
+                {
+                    //  Without a pool this runs on the caller's thread, whose stream must survive
+                    MersenneTwisterFast previous = RandomSource.getThreadInstance();
+                    RandomSource.setThreadInstance(random);
+                    try
+                    {
+                        return subswarm.step(current_iteration, max_iterations);
+                    }
+                    finally
+                    {
+                        RandomSource.setThreadInstance(previous);
+                    }
+                }
+            });
+        }
+
+        if (this.executor == null)
+        {
+            for (Callable<Boolean> task : tasks)
+            {
+                try
+                {
+                    task.call();
+                }
+                catch (Exception e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+            return;
+        }
+
+        try
+        {
+            for (Future<Boolean> future : this.executor.invokeAll(tasks))
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Places the best of each subswarm into the context in turn, keeping it if it
+     * improves the context by the feasibility rules of State.isBetter.
+     */
+    private void mergeSubswarms()
+    {
+        for (int g = 0; g < this.groups.length; g++)
+        {
+            Double[] best = this.subswarms[g].getBestSoFar().getPosition();
+
+            Double[] candidate = this.context.clone();
+            boolean changed = false;
+            for (int i = 0; i < this.groups[g].length; i++)
+            {
+                int d = this.groups[g][i];
+                if (!candidate[d].equals(best[i]))
+                {
+                    candidate[d] = best[i];
+                    changed = true;
+                }
+            }
+
+            if (changed)
+            {
+                double violation = this.evaluateConstraintViolation(candidate);
+                double fitness = this.evaluate(candidate, violation);
+                if (State.isBetter(fitness, violation, this.contextFitness,
+                    this.contextViolation))
+                {
+                    this.context = candidate;
+                    this.contextFitness = fitness;
+                    this.contextViolation = violation;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes the best of the hybrid swarm as the context if it is better, and places
+     * the context into a random particle of each subswarm.
+     */
+    private void exchangeWithHybrid()
+    {
+        State best = this.hybridSwarm.getBestSoFar();
+        if (State.isBetter(best.getFitness(), best.getConstraintViolation(),
+            this.contextFitness, this.contextViolation))
+        {
+            this.context = best.getPosition().clone();
+            this.contextFitness = best.getFitness();
+            this.contextViolation = best.getConstraintViolation();
+
+            for (int g = 0; g < this.groups.length; g++)
+            {
+                Double[] part = new Double[this.groups[g].length];
+                for (int i = 0; i < part.length; i++)
+                {
+                    part[i] = this.context[this.groups[g][i]];
+                }
+                this.injectContext(this.subswarms[g], part, this.contextFitness,
+                    this.contextViolation);
+            }
+        }
+    }
+
+    /**
+     * Places a position into a random particle of a swarm other than its best,
+     * as both its current and personal best position.
+     * @param swarm the swarm.
+     * @param position the position.
+     * @param fitness fitness of the position.
+     * @param violation constraint violation of the position.
+     */
+    private void injectContext(Swarm swarm, Double[] position, double fitness,
+        double violation)
+    {
+        Particle[] particles = swarm.getParticles();
+        if (particles.length < 2)
+        {
+            return;
+        }
+
+        swarm.getBestSoFar();
+        int p = RandomSource.getInstance().nextInt(particles.length - 1);
+        if (p >= swarm.getBestSoFarIndex())
+        {
+            p++;
+        }
+
+        particles[p].getCurrentState().setPosition(position.clone());
+        particles[p].setCurrentFitness(fitness);
+        particles[p].setCurrentConstraintViolation(violation);
+        swarm.setPersonalBest(particles[p]);
+    }
+
+    /**
+     * Evaluates the constraint violation of a full position.
+     * @param position the position.
+     * @return the violation, 0 if the evaluator has no constraints.
+     */
+    private double evaluateConstraintViolation(Double[] position)
+    {
+        if (!(this.evaluator instanceof IConstrainedEvaluator))
+        {
+            return 0.;
+        }
+        return ((IConstrainedEvaluator) this.evaluator).
+            evaluateConstraintViolation(position);
+    }
+
+    /**
+     * Evaluates a full position.  As in a Swarm with the default infeasibility
+     * threshold, an infeasible position is given the worst possible fitness without
+     * evaluating the objective.
+     * @param position the position.
+     * @param violation constraint violation of the position.
+     * @return fitness.
+     */
+    private double evaluate(Double[] position, double violation)
+    {
+        if (violation > 0.)
+        {
+            return Double.MAX_VALUE;
+        }
+        this.evaluations++;
+        return this.evaluator.evaluateFitness(position);
+    }
+
+    /**
+     * Converts a list of dimensions to an array.
+     * @param list the dimensions.
+     * @return array of dimensions.
+     */
+    private static int[] toArray(List<Integer> list)
+    {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++)
+        {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,405 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import org.apache.logging.log4j.*;
+
+/**
+ *  Archive of evaluated positions and their fitness.  Entries are held in a
+ *  bounded ring, so that once the archive is full each new entry evicts the oldest.
+ *  Exact duplicates are found with a hash lookup, and nearest-neighbor and radius
+ *  queries use a SpatialGrid over the search space.
+ *
+ * @author Jeff Ridder
+ */
+public class EvaluationArchive
+{
+    /**
+     *  An evaluated position, its fitness and its constraint violation.
+     */
+    public static class Entry
+    {
+        private final double[] position;
+
+        private final double fitness;
+
+        private final double violation;
+
+        /**
+         * Creates a new instance of Entry for a feasible position.
+         * @param position the position.
+         * @param fitness its fitness.
+         */
+        public Entry(double[] position, double fitness)
+        {
+            this(position, fitness, 0.);
+        }
+
+        /**
+         * Creates a new instance of Entry
+         * @param position the position.
+         * @param fitness its fitness.
+         * @param violation its constraint violation.
+         */
+        public Entry(double[] position, double fitness, double violation)
+        {
+            this.position = position;
+            this.fitness = fitness;
+            this.violation = violation;
+        }
+
+        /**
+         * Returns the position.  The array must not be modified.
+         * @return position vector.
+         */
+        public double[] getPosition()
+        {
+            return this.position;
+        }
+
+        /**
+         * Returns the fitness.
+         * @return fitness.
+         */
+        public double getFitness()
+        {
+            return this.fitness;
+        }
+
+        /**
+         * Returns the constraint violation.
+         * @return the violation, 0 if the position is feasible.
+         */
+        public double getConstraintViolation()
+        {
+            return this.violation;
+        }
+    }
+
+    /**
+     *  Hash key comparing positions element by element.
+     */
+    private static class PositionKey
+    {
+        private final double[] position;
+
+        private final int hash;
+
+        PositionKey(double[] position)
+        {
+            this.position = position;
+            this.hash = Arrays.hashCode(position);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof PositionKey &&
+                Arrays.equals(position, ((PositionKey) o).position);
+        }
+    }
+
+    private Entry[] entries;
+
+    private int next;
+
+    private int size;
+
+    private final HashMap<PositionKey, Integer> index = new HashMap<PositionKey, Integer>();
+
+    private SpatialGrid grid;
+
+    private long lookups;
+
+    private long hits;
+
+    private final static Logger logger = LogManager.getLogger(EvaluationArchive.class);
+
+    /**
+     * Creates a new instance of EvaluationArchive
+     * @param valueLimitSet The search space.
+     * @param capacity Maximum number of entries held.
+     * @param cellsPerDimension Number of spatial grid cells along each gridded dimension.
+     */
+    public EvaluationArchive(ValueLimitSet valueLimitSet, int capacity,
+        int cellsPerDimension)
+    {
+        this.entries = new Entry[Math.max(1, capacity)];
+        this.next = 0;
+        this.size = 0;
+        this.grid = new SpatialGrid(valueLimitSet, cellsPerDimension);
+    }
+
+    /**
+     * Adds an evaluated feasible position.  If the position is already archived, its
+     * fitness is replaced.
+     * @param position the position.
+     * @param fitness its fitness.
+     */
+    public void add(Double[] position, double fitness)
+    {
+        this.add(position, fitness, 0.);
+    }
+
+    /**
+     * Adds an evaluated position.  If the position is already archived, its fitness
+     * and violation are replaced.
+     * @param position the position.
+     * @param fitness its fitness.
+     * @param violation its constraint violation.
+     */
+    public void add(Double[] position, double fitness, double violation)
+    {
+        double[] x = toArray(position);
+        PositionKey key = new PositionKey(x);
+
+        Integer existing = index.get(key);
+        if (existing != null)
+        {
+            entries[existing] = new Entry(entries[existing].getPosition(), fitness,
+                violation);
+            return;
+        }
+
+        if (entries[next] != null)
+        {
+            //  Evict the oldest entry
+            index.remove(new PositionKey(entries[next].getPosition()));
+            grid.remove(next);
+            size--;
+        }
+
+        entries[next] = new Entry(x, fitness, violation);
+        index.put(key, next);
+        grid.insert(next, x);
+        size++;
+
+        next = (next + 1) % entries.length;
+    }
+
+    /**
+     * Returns the archived entry at exactly a position.
+     * @param position the position.
+     * @return the entry, or null if the position has not been archived.
+     */
+    public Entry lookup(Double[] position)
+    {
+        lookups++;
+
+        Integer i = index.get(new PositionKey(toArray(position)));
+        if (i == null)
+        {
+            return null;
+        }
+
+        hits++;
+        return entries[i];
+    }
+
+    /**
+     * Returns the archived entry nearest to a position.
+     * @param position the position.
+     * @return the nearest entry, or null if the archive is empty.
+     */
+    public Entry getNearest(Double[] position)
+    {
+        int i = grid.getNearest(toArray(position));
+        return i >= 0 ? entries[i] : null;
+    }
+
+    /**
+     * Returns the archived entries within a distance of a position.
+     * @param position the position.
+     * @param radius the distance.
+     * @return list of entries.
+     */
+    public List<Entry> getWithinRadius(Double[] position, double radius)
+    {
+        int[] ids = grid.getWithinRadius(toArray(position), radius);
+
+        List<Entry> found = new ArrayList<Entry>(ids.length);
+        for (int i : ids)
+        {
+            found.add(entries[i]);
+        }
+        return found;
+    }
+
+    /**
+     * Returns all archived entries, oldest first.
+     * @return list of entries.
+     */
+    public List<Entry> getEntries()
+    {
+        List<Entry> all = new ArrayList<Entry>(size);
+        for (int i = 0; i < entries.length; i++)
+        {
+            Entry e = entries[(next + i) % entries.length];
+            if (e != null)
+            {
+                all.add(e);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Returns the positions of the best archived entries, by the feasibility rules of
+     * State.isBetter, as for warm-starting a swarm with a SeededInitializer.
+     * @param count maximum number of positions.
+     * @return list of position vectors, best first.
+     */
+    public List<Double[]> getBestPositions(int count)
+    {
+        List<Entry> all = getEntries();
+        Collections.sort(all, new Comparator<Entry>()
+        {
+            public int compare(Entry a, Entry b)
+            {
+                if (State.isBetter(a.getFitness(), a.getConstraintViolation(),
+                    b.getFitness(), b.getConstraintViolation()))
+                {
+                    return -1;
+                }
+                return State.isBetter(b.getFitness(), b.getConstraintViolation(),
+                    a.getFitness(), a.getConstraintViolation()) ? 1 : 0;
+            }
+        });
+
+        List<Double[]> best = new ArrayList<Double[]>();
+        for (int i = 0; i < all.size() && i < count; i++)
+        {
+            double[] x = all.get(i).getPosition();
+            Double[] position = new Double[x.length];
+            for (int j = 0; j < x.length; j++)
+            {
+                position[j] = x[j];
+            }
+            best.add(position);
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of archived entries.
+     * @return number of entries.
+     */
+    public int getSize()
+    {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of exact lookups that found an archived entry.
+     * @return number of hits.
+     */
+    public long getNumberOfHits()
+    {
+        return this.hits;
+    }
+
+    /**
+     * Returns the number of exact lookups.
+     * @return number of lookups.
+     */
+    public long getNumberOfLookups()
+    {
+        return this.lookups;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear()
+    {
+        Arrays.fill(entries, null);
+        index.clear();
+        grid.clear();
+        next = 0;
+        size = 0;
+    }
+
+    /**
+     * Writes all archived entries to a file, one per line, as tab-separated fitness,
+     * constraint violation and position values.
+     * @param file the file to write.
+     * @return true if there was an IOException.
+     */
+    public boolean export(File file)
+    {
+        boolean error = false;
+
+        try
+        {
+            PrintWriter outFile = new PrintWriter(new FileWriter(file, false));
+
+            for (Entry e : getEntries())
+            {
+                StringBuilder line = new StringBuilder();
+                line.append(e.getFitness()).append('\t').append(e.getConstraintViolation());
+                for (double x : e.getPosition())
+                {
+                    line.append('\t').append(x);
+                }
+                outFile.println(line);
+            }
+            outFile.close();
+        }
+        catch (IOException e)
+        {
+            logger.error("ERROR - Could not write to file: " +
+                file.getAbsolutePath());
+            logger.error("IO Exception: " + e);
+            error = true;
+        }
+
+        return error;
+    }
+
+    /**
+     * Copies a position vector to a primitive array.
+     * @param position position vector.
+     * @return primitive copy.
+     */
+    private static double[] toArray(Double[] position)
+    {
+        double[] x = new double[position.length];
+        for (int i = 0; i < x.length; i++)
+        {
+            x[i] = position[i];
+        }
+        return x;
+    }
+}
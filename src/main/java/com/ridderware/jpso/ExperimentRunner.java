@@ -0,0 +1,261 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import com.ridderware.jrandom.MersenneTwisterFast;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import org.apache.logging.log4j.*;
+
+/**
+ *  Runs many independent swarm configurations concurrently on a shared thread pool.
+ *  Each run draws from its own seeded random number stream (see RandomSource), so
+ *  results are reproducible regardless of scheduling.  The best-so-far fitness of
+ *  every run is recorded at the end of each iteration and the results are gathered
+ *  into an ExperimentSummary.
+ *
+ * @author Jeff Ridder
+ */
+public class ExperimentRunner
+{
+    private ExecutorService executor;
+
+    private final ArrayList<Callable<RunResult>> pending = new ArrayList<Callable<RunResult>>();
+
+    private final static Logger logger = LogManager.getLogger(ExperimentRunner.class);
+
+    /**
+     *  Records the best-so-far fitness of a swarm at the end of each iteration.  The
+     *  best is chosen by the feasibility rules of State.isBetter.
+     */
+    private static class ConvergenceRecorder implements ISwarmListener
+    {
+        private final double[] curve;
+
+        private double best = Double.MAX_VALUE;
+
+        private double bestViolation = Double.MAX_VALUE;
+
+        private int completed = 0;
+
+        ConvergenceRecorder(int iterations)
+        {
+            this.curve = new double[iterations];
+        }
+
+        public void iterationCompleted(Swarm swarm, int current_iteration)
+        {
+            for (Particle p : swarm.getParticles())
+            {
+                if (State.isBetter(p.getBestFitness(), p.getBestConstraintViolation(),
+                    best, bestViolation))
+                {
+                    best = p.getBestFitness();
+                    bestViolation = p.getBestConstraintViolation();
+                }
+            }
+
+            if (current_iteration < curve.length)
+            {
+                curve[current_iteration] = best;
+                completed = Math.max(completed, current_iteration + 1);
+            }
+        }
+
+        /**
+         * Returns the curve.  If the run stopped early, the last best is carried
+         * forward to the end, as it remains the best found; if no iteration completed,
+         * the curve is empty.
+         * @return best-so-far fitness at the end of each iteration.
+         */
+        double[] getCurve()
+        {
+            if (completed == 0)
+            {
+                return new double[0];
+            }
+
+            Arrays.fill(curve, completed, curve.length, curve[completed - 1]);
+            return curve;
+        }
+
+        public void swarmResized(Swarm swarm, int[] id_map)
+        {
+        }
+    }
+
+    /**
+     * Creates a new instance of ExperimentRunner with one thread per available processor.
+     */
+    public ExperimentRunner()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new instance of ExperimentRunner
+     * @param numberOfThreads Number of runs executed at once.
+     */
+    public ExperimentRunner(int numberOfThreads)
+    {
+        this.executor = Executors.newFixedThreadPool(Math.max(1, numberOfThreads),
+            new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "jpso-experiment");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    }
+
+    /**
+     * Queues one run.
+     * @param name Name of the configuration, used to aggregate results.
+     * @param factory Builds the swarm for the run.
+     * @param iterations Number of iterations.
+     * @param seed Seed of the run's random number stream.
+     */
+    public void addRun(String name, ISwarmFactory factory, int iterations,
+        long seed)
+    {
+        pending.add(createTask(name, factory, iterations, seed));
+    }
+
+    /**
+     * Queues several runs of one configuration with consecutive seeds.
+     * @param name Name of the configuration, used to aggregate results.
+     * @param factory Builds the swarm for each run.
+     * @param iterations Number of iterations.
+     * @param first_seed Seed of the first run.
+     * @param count Number of runs.
+     */
+    public void addRuns(String name, ISwarmFactory factory, int iterations,
+        long first_seed, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            addRun(name, factory, iterations, first_seed + i);
+        }
+    }
+
+    /**
+     * Executes the queued runs and waits for them to finish.  Runs that fail are
+     * logged and left out of the summary.
+     * @return the summary of the runs.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public ExperimentSummary run() throws InterruptedException
+    {
+        List<Future<RunResult>> futures = new ArrayList<Future<RunResult>>(pending.size());
+        for (Callable<RunResult> task : pending)
+        {
+            futures.add(executor.submit(task));
+        }
+        pending.clear();
+
+        List<RunResult> results = new ArrayList<RunResult>(futures.size());
+        for (Future<RunResult> future : futures)
+        {
+            try
+            {
+                results.add(future.get());
+            }
+            catch (ExecutionException e)
+            {
+                logger.error("Run failed: " + e.getCause());
+            }
+        }
+
+        return new ExperimentSummary(results);
+    }
+
+    /**
+     * Submits one run for immediate execution.
+     * @param name Name of the configuration.
+     * @param factory Builds the swarm for the run.
+     * @param iterations Number of iterations.
+     * @param seed Seed of the run's random number stream.
+     * @return Future holding the result of the run.
+     */
+    public Future<RunResult> submit(String name, ISwarmFactory factory,
+        int iterations, long seed)
+    {
+        return executor.submit(createTask(name, factory, iterations, seed));
+    }
+
+    /**
+     * Shuts down the thread pool once the runs already submitted have finished.
+     */
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+
+    /**
+     * Creates the task that performs one run.
+     * @param name Name of the configuration.
+     * @param factory Builds the swarm for the run.
+     * @param iterations Number of iterations.
+     * @param seed Seed of the run's random number stream.
+     * @return the task.
+     */
+    private Callable<RunResult> createTask(final String name,
+        final ISwarmFactory factory, final int iterations, final long seed)
+    {
+        return new Callable<RunResult>()
+        {
+            public RunResult call()
+            {
+                long start = System.currentTimeMillis();
+
+                RandomSource.setThreadInstance(new MersenneTwisterFast(seed));
+                try
+                {
+                    Swarm swarm = factory.createSwarm();
+
+                    ConvergenceRecorder recorder = new ConvergenceRecorder(iterations);
+                    swarm.addListener(recorder);
+
+                    swarm.initializeParticles();
+                    swarm.iterate(iterations);
+
+                    State best = swarm.getBestSoFar();
+
+                    return new RunResult(name, seed, best.getFitness(),
+                        best.getConstraintViolation(), best.getPosition().clone(), recorder.getCurve(),
+                        swarm.getNumberOfEvaluations(),
+                        System.currentTimeMillis() - start);
+                }
+                finally
+                {
+                    RandomSource.setThreadInstance(null);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,352 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import org.apache.logging.log4j.*;
+
+/**
+ *  Aggregates the results of the runs of an experiment by configuration name.
+ *
+ * @author Jeff Ridder
+ */
+public class ExperimentSummary
+{
+    private final List<RunResult> results;
+
+    private final static Logger logger = LogManager.getLogger(ExperimentSummary.class);
+
+    /**
+     * Creates a new instance of ExperimentSummary
+     * @param results the results of the runs.
+     */
+    public ExperimentSummary(List<RunResult> results)
+    {
+        this.results = results;
+    }
+
+    /**
+     * Returns the results of all runs, in the order they were submitted.
+     * @return list of results.
+     */
+    public List<RunResult> getResults()
+    {
+        return this.results;
+    }
+
+    /**
+     * Returns the results of the runs of one configuration.
+     * @param name configuration name.
+     * @return list of results.
+     */
+    public List<RunResult> getResults(String name)
+    {
+        List<RunResult> named = new ArrayList<RunResult>();
+        for (RunResult r : results)
+        {
+            if (r.getName().equals(name))
+            {
+                named.add(r);
+            }
+        }
+        return named;
+    }
+
+    /**
+     * Returns the configuration names, in the order they were first submitted.
+     * @return list of names.
+     */
+    public List<String> getNames()
+    {
+        LinkedHashSet<String> names = new LinkedHashSet<String>();
+        for (RunResult r : results)
+        {
+            names.add(r.getName());
+        }
+        return new ArrayList<String>(names);
+    }
+
+    /**
+     * Returns the run of a configuration that found the best, by the feasibility
+     * rules of State.isBetter, so an infeasible run is never chosen over a feasible
+     * one.
+     * @param name configuration name.
+     * @return the best run, or null if there were none.
+     */
+    public RunResult getBestResult(String name)
+    {
+        RunResult best = null;
+        for (RunResult r : getResults(name))
+        {
+            if (best == null || r.isBetterThan(best))
+            {
+                best = r;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the final best fitness of each run of a configuration, with the runs
+     * ordered best first by the feasibility rules of State.isBetter.
+     * @param name configuration name.
+     * @return fitness values of the ordered runs.
+     */
+    public double[] getBestFitnesses(String name)
+    {
+        List<RunResult> named = getResults(name);
+        Collections.sort(named, new Comparator<RunResult>()
+        {
+            public int compare(RunResult a, RunResult b)
+            {
+                if (a.isBetterThan(b))
+                {
+                    return -1;
+                }
+                return b.isBetterThan(a) ? 1 : 0;
+            }
+        });
+
+        double[] fitness = new double[named.size()];
+        for (int i = 0; i < fitness.length; i++)
+        {
+            fitness[i] = named.get(i).getBestFitness();
+        }
+        return fitness;
+    }
+
+    /**
+     * Returns the number of runs of a configuration whose best is feasible.
+     * @param name configuration name.
+     * @return number of feasible runs.
+     */
+    public int getNumberOfFeasibleRuns(String name)
+    {
+        int count = 0;
+        for (RunResult r : getResults(name))
+        {
+            if (r.getBestConstraintViolation() <= 0.)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the mean final best fitness of a configuration.
+     * @param name configuration name.
+     * @return mean fitness.
+     */
+    public double getMeanBestFitness(String name)
+    {
+        double[] fitness = getBestFitnesses(name);
+        double mean = 0.;
+        for (double f : fitness)
+        {
+            mean += f;
+        }
+        return fitness.length > 0 ? mean / fitness.length : Double.NaN;
+    }
+
+    /**
+     * Returns the median final best fitness of a configuration.
+     * @param name configuration name.
+     * @return median fitness.
+     */
+    public double getMedianBestFitness(String name)
+    {
+        double[] fitness = getBestFitnesses(name);
+        if (fitness.length == 0)
+        {
+            return Double.NaN;
+        }
+        int mid = fitness.length / 2;
+        return fitness.length % 2 == 1 ? fitness[mid] :
+            0.5 * (fitness[mid - 1] + fitness[mid]);
+    }
+
+    /**
+     * Returns the standard deviation of the final best fitness of a configuration.
+     * @param name configuration name.
+     * @return standard deviation.
+     */
+    public double getStandardDeviation(String name)
+    {
+        double[] fitness = getBestFitnesses(name);
+        if (fitness.length < 2)
+        {
+            return 0.;
+        }
+
+        double mean = getMeanBestFitness(name);
+        double sigma = 0.;
+        for (double f : fitness)
+        {
+            sigma += Math.pow(f - mean, 2.);
+        }
+        return Math.sqrt(sigma / (fitness.length - 1));
+    }
+
+    /**
+     * Returns the mean convergence curve of a configuration: the best-so-far fitness
+     * at the end of each iteration, averaged over its runs.  A run that stopped early
+     * holds its last best to the end, and one that completed no iteration is left out.
+     * @param name configuration name.
+     * @return mean convergence curve.
+     */
+    public double[] getMeanConvergence(String name)
+    {
+        List<RunResult> named = getResults(name);
+
+        int length = 0;
+        for (RunResult r : named)
+        {
+            length = Math.max(length, r.getConvergence().length);
+        }
+
+        double[] mean = new double[length];
+        int[] count = new int[length];
+        for (RunResult r : named)
+        {
+            double[] curve = r.getConvergence();
+            for (int i = 0; i < curve.length; i++)
+            {
+                mean[i] += curve[i];
+                count[i]++;
+            }
+        }
+
+        for (int i = 0; i < length; i++)
+        {
+            mean[i] /= count[i];
+        }
+        return mean;
+    }
+
+    /**
+     * Writes one line per configuration with its number of runs and of feasible runs,
+     * the best, median, mean and standard deviation of the final best fitness, and
+     * mean evaluations.
+     * @param file the file to write.
+     * @return true if there was an IOException.
+     */
+    public boolean write(File file)
+    {
+        List<String> lines = new ArrayList<String>();
+        lines.add("Configuration\tRuns\tFeasible Runs\tBest\tMedian\tMean\tStandard Deviation\tMean Evaluations");
+
+        for (String name : getNames())
+        {
+            List<RunResult> named = getResults(name);
+            double evaluations = 0.;
+            for (RunResult r : named)
+            {
+                evaluations += r.getNumberOfEvaluations();
+            }
+            evaluations /= named.size();
+
+            lines.add(name + "\t" + named.size() + "\t" +
+                getNumberOfFeasibleRuns(name) + "\t" +
+                getBestResult(name).getBestFitness() + "\t" +
+                getMedianBestFitness(name) + "\t" + getMeanBestFitness(name) +
+                "\t" + getStandardDeviation(name) + "\t" + evaluations);
+        }
+
+        return writeLines(lines, file);
+    }
+
+    /**
+     * Writes the mean convergence curves, one line per iteration and one column per
+     * configuration.
+     * @param file the file to write.
+     * @return true if there was an IOException.
+     */
+    public boolean writeConvergence(File file)
+    {
+        List<String> names = getNames();
+        double[][] curves = new double[names.size()][];
+        int length = 0;
+
+        StringBuilder header = new StringBuilder("Iteration #");
+        for (int i = 0; i < curves.length; i++)
+        {
+            header.append('\t').append(names.get(i));
+            curves[i] = getMeanConvergence(names.get(i));
+            length = Math.max(length, curves[i].length);
+        }
+
+        List<String> lines = new ArrayList<String>();
+        lines.add(header.toString());
+        for (int it = 0; it < length; it++)
+        {
+            StringBuilder line = new StringBuilder();
+            line.append(it);
+            for (double[] curve : curves)
+            {
+                line.append('\t');
+                if (it < curve.length)
+                {
+                    line.append(curve[it]);
+                }
+            }
+            lines.add(line.toString());
+        }
+
+        return writeLines(lines, file);
+    }
+
+    /**
+     * Writes lines to a file.
+     * @param lines the lines.
+     * @param file the file.
+     * @return true if there was an IOException.
+     */
+    private boolean writeLines(List<String> lines, File file)
+    {
+        boolean error = false;
+
+        try
+        {
+            PrintWriter outFile = new PrintWriter(new FileWriter(file, false));
+            for (String line : lines)
+            {
+                outFile.println(line);
+            }
+            outFile.close();
+        }
+        catch (IOException e)
+        {
+            logger.error("ERROR - Could not write to file: " +
+                file.getAbsolutePath());
+            logger.error("IO Exception: " + e);
+            error = true;
+        }
+
+        return error;
+    }
+}
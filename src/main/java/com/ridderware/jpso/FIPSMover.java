@@ -18,7 +18,6 @@
  */
 package com.ridderware.jpso;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
 import org.apache.logging.log4j.*;
 
 /**
@@ -26,10 +25,12 @@ import org.apache.logging.log4j.*;
  *
  * @author Jeff Ridder
  */
-public class FIPSMover implements IMover
+public class FIPSMover implements IInPlaceMover
 {
     private double phi;
 
+    private double k;
+
     private static final Logger logger = LogManager.getLogger(FIPSMover.class);
 
     /**
@@ -39,6 +40,7 @@ public class FIPSMover implements IMover
     public FIPSMover(double phi)
     {
         this.phi = phi;
+        this.k = 2 / Math.abs(2. - phi - Math.sqrt(phi * phi - 4. * phi));
     }
 
     /**
@@ -54,38 +56,55 @@ public class FIPSMover implements IMover
         ValueLimitSet valueLimitSet, Particle[] neighbors, int current_iteration,
         int max_iterations)
     {
-        Double[] current_position = current.getPosition();
-        Double[] current_velocity = current.getVelocity();
-        Double[] personal_best_position = personal_best.getPosition();
-
-        Double[] next_position = new Double[current_position.length];
-        Double[] next_velocity = new Double[current_velocity.length];
-
-        double k = 2 / Math.abs(2. - phi - Math.sqrt(phi * phi - 4. * phi));
+        this.moveInPlace(-1, current.getPositionBuffer(),
+            current.getVelocityBuffer(), personal_best.getPositionBuffer(),
+            valueLimitSet, neighbors, current_iteration, max_iterations);
+        current.positionChanged();
+        current.velocityChanged();
+    }
 
-        for (int i = 0; i < current_position.length; i++)
+    /**
+     * Moves the particle by updating its position and velocity in place.
+     * @param pid ID of the particle, or -1 if it is not known.
+     * @param position The current position of the particle, updated in place.
+     * @param velocity The current velocity of the particle, updated in place.
+     * @param personal_best_position The best position ever achieved by the particle.
+     * @param valueLimitSet The value limits of the search space for the particle.
+     * @param neighbors The neighboring particles.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void moveInPlace(int pid, double[] position, double[] velocity,
+        double[] personal_best_position, ValueLimitSet valueLimitSet,
+        Particle[] neighbors, int current_iteration, int max_iterations)
+    {
+        for (int i = 0; i < position.length; i++)
         {
-            double x = current_position[i];
-            double v = current_velocity[i];
+            double x = position[i];
+            double v = velocity[i];
 
             ValueLimits vLim = valueLimitSet.getValueLimits(i);
 
             double sum = 0.;
             for (Particle n : neighbors)
             {
-                sum += MersenneTwisterFast.getInstance().nextDouble() *
-                    (n.getBestPosition()[i] - x);
+                sum += RandomSource.getInstance().nextDouble() *
+                    (n.getBestState().getPositionBuffer()[i] - x);
             }
 
             sum *= phi / neighbors.length;
 
             double max_v = vLim.getMaximum() - vLim.getMinimum();
+            double max_speed = vLim.getMaximumVelocity();
 
-            double next_v = Math.max(-max_v, Math.min(max_v, k * (v + sum)));
+            double next_v = Math.max(-max_speed, Math.min(max_speed, k * (v + sum)));
 
             double next_x = x + next_v;
 
-            if (next_x > vLim.getMaximum())
+            //  A binary variable takes its position from the sigmoid of its velocity
+            boolean bounded = vLim.getVariableType() != ValueLimits.VariableType.BINARY;
+
+            if (bounded && next_x > vLim.getMaximum())
             {
                 switch (vLim.getBoundaryType())
                 {
@@ -107,7 +126,7 @@ public class FIPSMover implements IMover
                     }
                 }
             }
-            else if (next_x < vLim.getMinimum())
+            else if (bounded && next_x < vLim.getMinimum())
             {
                 switch (vLim.getBoundaryType())
                 {
@@ -130,16 +149,14 @@ public class FIPSMover implements IMover
                 }
             }
 
-            if (next_x < vLim.getMinimum() || next_x > vLim.getMaximum())
+            if (bounded && (next_x < vLim.getMinimum() || next_x > vLim.getMaximum()))
             {
                 logger.error("Position " + i + " value of " + next_x +
                     " is out of bounds [min,max]: [" + vLim.getMinimum() + ", " +
                     vLim.getMaximum() + "]");
             }
-            next_position[i] = next_x;
-            next_velocity[i] = next_v;
+            position[i] = vLim.discretize(next_x, next_v);
+            velocity[i] = next_v;
         }
-        current.setVelocity(next_velocity);
-        current.setPosition(next_position);
     }
 }
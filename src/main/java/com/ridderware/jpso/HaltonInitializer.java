@@ -0,0 +1,135 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ *  Initializes the particles at the points of a Halton sequence, whose coordinate
+ *  along dimension d is the radical inverse of the particle's index in the d-th
+ *  prime.  The points cover the search space far more evenly than uniform random
+ *  ones.  The first point, at the origin, is skipped.  In many dimensions the
+ *  coordinates in large primes are correlated for the first points, and a
+ *  SobolInitializer is the better choice.  If randomized, each dimension is given a
+ *  random shift modulo one (a Cranley-Patterson rotation), which keeps the evenness
+ *  but varies the points from run to run.
+ *
+ * @author Jeff Ridder
+ */
+public class HaltonInitializer implements IInitializer
+{
+    private boolean randomized;
+
+    private ValueLimitSet valueLimitSet;
+
+    private int[] bases;
+
+    private double[] shifts;
+
+    /**
+     * Creates a new instance of HaltonInitializer
+     * @param randomized if true, the points are shifted by a random amount along each dimension.
+     */
+    public HaltonInitializer(boolean randomized)
+    {
+        this.randomized = randomized;
+        this.valueLimitSet = null;
+        this.bases = null;
+        this.shifts = null;
+    }
+
+    /**
+     * Finds the prime base of each dimension, and draws the shifts if randomized.
+     * @param numberOfParticles number of particles to be initialized.
+     * @param valueLimitSet the search space.
+     */
+    public void prepare(int numberOfParticles, ValueLimitSet valueLimitSet)
+    {
+        int dimensions = valueLimitSet.getSize();
+
+        this.valueLimitSet = valueLimitSet;
+        this.bases = new int[dimensions];
+        this.shifts = new double[dimensions];
+
+        int candidate = 2;
+        for (int d = 0; d < dimensions; d++)
+        {
+            while (!isPrime(candidate))
+            {
+                candidate++;
+            }
+            this.bases[d] = candidate++;
+
+            this.shifts[d] = this.randomized ? RandomSource.getInstance().nextDouble() : 0.;
+        }
+    }
+
+    /**
+     * Fills the position of a particle with the point of the sequence at its index.
+     * @param index index of the particle.
+     * @param position buffer holding the position, to be filled in place.
+     */
+    public void initializePosition(int index, double[] position)
+    {
+        for (int d = 0; d < position.length; d++)
+        {
+            double u = radicalInverse(index + 1L, this.bases[d]) + this.shifts[d];
+            if (u >= 1.)
+            {
+                u -= 1.;
+            }
+            position[d] = this.valueLimitSet.getValueLimits(d).scale(u);
+        }
+    }
+
+    /**
+     * Returns the radical inverse of an integer, found by reflecting its digits in a
+     * base about the radix point.
+     * @param n the integer.
+     * @param base the base.
+     * @return the radical inverse, in [0,1).
+     */
+    public static double radicalInverse(long n, int base)
+    {
+        double inverse = 0.;
+        double digit_value = 1. / base;
+        while (n > 0)
+        {
+            inverse += digit_value * (n % base);
+            n /= base;
+            digit_value /= base;
+        }
+        return inverse;
+    }
+
+    /**
+     * Returns whether a number is prime.
+     * @param n the number.
+     * @return true if prime.
+     */
+    private static boolean isPrime(int n)
+    {
+        for (int f = 2; f * f <= n; f++)
+        {
+            if (n % f == 0)
+            {
+                return false;
+            }
+        }
+        return n > 1;
+    }
+}
@@ -0,0 +1,40 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ * Interface for an evaluator that can abandon an evaluation once the fitness is
+ * known to be worse than a threshold, as when the fitness is a sum of positive
+ * terms.  The swarm passes the personal best fitness of the particle being
+ * evaluated, so an abandoned evaluation is one that could not have improved it.
+ * @author Jeff Ridder
+ */
+public interface IAbandoningEvaluator extends IEvaluator
+{
+    /**
+     * Method to evaluate the fitness of a particle, stopping early once it exceeds
+     * a threshold.  An evaluation that runs to completion reports its fitness as
+     * exact, even if that exceeds the threshold; only an evaluation that actually
+     * stopped early reports a lower bound.
+     * @param position The position of the particle to be evaluated.
+     * @param threshold The fitness above which the evaluation may be abandoned.
+     * @return The fitness of the particle, or if the evaluation was abandoned, a lower bound on it that exceeds the threshold.
+     */
+    public BoundedFitness evaluateFitness(Double[] position, double threshold);
+}
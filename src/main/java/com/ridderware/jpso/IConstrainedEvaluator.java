@@ -0,0 +1,36 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ * Interface for an evaluator of a problem with inequality constraints that are
+ * cheap to check.  The swarm checks the constraints first and skips the objective
+ * for positions whose violation exceeds its infeasibility threshold.  States are
+ * then ordered by the feasibility rules of Deb (see State.isBetter).
+ * @author Jeff Ridder
+ */
+public interface IConstrainedEvaluator extends IEvaluator
+{
+    /**
+     * Method to evaluate the constraint violation of a position.
+     * @param position The position to be checked.
+     * @return The total amount by which the constraints are violated, 0 if the position is feasible.
+     */
+    public double evaluateConstraintViolation(Double[] position);
+}
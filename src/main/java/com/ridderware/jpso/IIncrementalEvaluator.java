@@ -0,0 +1,58 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ * Interface for an evaluator that can update the fitness of a position when only
+ * some of its elements have changed, more cheaply than evaluating it afresh.  The
+ * evaluator keeps whatever it needs for this, such as partial sums, in a context
+ * object of its own.  The swarm keeps a context for each particle, created by a
+ * full evaluation, and passes it back with the elements that have changed since.
+ * Positions that are not a particle's own, such as those of Swarm.evaluateFitness,
+ * are evaluated with evaluateFitness.
+ * @author Jeff Ridder
+ */
+public interface IIncrementalEvaluator extends IEvaluator
+{
+    /**
+     * Method to fully evaluate a position and create its context.
+     * @param position The position to be evaluated.
+     * @return The context of the position, holding its fitness.
+     */
+    public Object createContext(Double[] position);
+
+    /**
+     * Method to return the fitness held by a context.
+     * @param context A context created by createContext.
+     * @return The fitness of the context's position.
+     */
+    public double getFitness(Object context);
+
+    /**
+     * Method to update a context, in place, for changes to some elements of its
+     * position.
+     * @param context A context created by createContext.
+     * @param changed The indices of the changed elements, in the first count entries.
+     * @param values The new values of the changed elements, in the first count entries.
+     * @param count The number of changed elements, which may be 0.
+     * @return The fitness of the updated position.
+     */
+    public double evaluateChanges(Object context, int[] changed, double[] values,
+        int count);
+}
@@ -0,0 +1,46 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ *  Interface for an object that chooses the initial positions of the particles of a
+ *  swarm.  The swarm calls prepare once, and then initializePosition for each
+ *  particle, possibly from several threads at once, so initializePosition must be
+ *  safe to call concurrently for different particles.  The position of a particle
+ *  must depend only on its index, so that the result does not depend on the number
+ *  of threads.
+ * @author Jeff Ridder
+ */
+public interface IInitializer
+{
+    /**
+     * Prepares to initialize the particles of a swarm.  Called from the thread
+     * initializing the swarm, which may draw from RandomSource.
+     * @param numberOfParticles number of particles to be initialized.
+     * @param valueLimitSet the search space.
+     */
+    public void prepare(int numberOfParticles, ValueLimitSet valueLimitSet);
+
+    /**
+     * Fills the position of a particle.
+     * @param index index of the particle, from 0 to numberOfParticles - 1.
+     * @param position buffer holding the position, to be filled in place.
+     */
+    public void initializePosition(int index, double[] position);
+}
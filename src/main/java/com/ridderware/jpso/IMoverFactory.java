@@ -0,0 +1,35 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ * Interface for objects that build a mover, for swarms that need one mover for each
+ * of several swarms they run, such as the subswarms of a CooperativeSwarm.
+ * @author Jeff Ridder
+ */
+public interface IMoverFactory
+{
+    /**
+     * Creates a mover.  Each call must return a mover with its own state, such as
+     * the schedules of its parameters, since the swarms it is given to may be
+     * stepped concurrently.
+     * @return a new IMover object.
+     */
+    public IMover createMover();
+}
@@ -0,0 +1,40 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ * Interface defining methods for an evaluator of a multi-objective problem.
+ * Every objective is to be minimized.
+ * @author Jeff Ridder
+ */
+public interface IMultiObjectiveEvaluator extends IEvaluator
+{
+    /**
+     * Method to evaluate the objectives of a particle.
+     * @param position The position of the particle to be evaluated.
+     * @return The objective vector of the particle.
+     */
+    public double[] evaluateObjectives(Double[] position);
+
+    /**
+     * Returns the number of objectives.
+     * @return number of objectives.
+     */
+    public int getNumberOfObjectives();
+}
@@ -0,0 +1,46 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ * Interface for a schedule of a parameter of a mover, such as an inertia weight or
+ * acceleration coefficient.  The swarm updates the schedule once per iteration,
+ * before the particles move, so that looking up a value as a particle moves costs
+ * no more than reading a field.  A schedule may give each particle its own value.
+ * A schedule holds the values for one swarm, so each swarm needs a mover with its
+ * own schedules; a CooperativeSwarm builds one per subswarm with an IMoverFactory.
+ * @author Jeff Ridder
+ */
+public interface IParameterSchedule
+{
+    /**
+     * Computes the values for an iteration.
+     * @param swarm the swarm whose particles are about to move.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void update(Swarm swarm, int current_iteration, int max_iterations);
+
+    /**
+     * Returns the value for a particle in the current iteration.
+     * @param pid ID of the particle, or -1 if it is not known.
+     * @return the value.
+     */
+    public double getValue(int pid);
+}
@@ -0,0 +1,38 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ * Interface for an evaluator that can evaluate a position held in a primitive
+ * buffer.  The swarm passes the buffer of a particle's current state, so that
+ * together with an IInPlaceMover an iteration need not box the position.  The
+ * buffer must not be modified or kept.  The Double[] method is still used where the
+ * swarm needs the boxed position anyway, as for the design cache, evaluation
+ * archive, surrogate screen or an evaluation timeout.
+ * @author Jeff Ridder
+ */
+public interface IPrimitiveEvaluator extends IEvaluator
+{
+    /**
+     * Method to evaluate the fitness of a particle at a position held in a buffer.
+     * @param position The position of the particle to be evaluated.
+     * @return The fitness of the particle.
+     */
+    public double evaluateFitness(double[] position);
+}
@@ -0,0 +1,41 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ * Interface for a candidate configuration in a race (see RaceTuner).
+ * @author Jeff Ridder
+ */
+public interface IRaceCandidate
+{
+    /**
+     * Returns the name of the candidate.
+     * @return name.
+     */
+    public String getName();
+
+    /**
+     * Creates a swarm configured with this candidate's settings for a problem instance,
+     * with its particles created but not yet initialized.  Each call must return a
+     * swarm with its own mover, since trials run concurrently.
+     * @param instance index of the problem instance.
+     * @return a new Swarm object.
+     */
+    public Swarm createSwarm(int instance);
+}
@@ -0,0 +1,37 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ * Interface for a mover whose parameters follow schedules, which must be updated
+ * once per iteration before the particles move.  The swarm does so for its mover;
+ * code that moves particles outside a swarm should call updateSchedules itself.
+ * @author Jeff Ridder
+ */
+public interface IScheduledMover extends IMover
+{
+    /**
+     * Updates the schedules of the mover's parameters.
+     * @param swarm the swarm whose particles are about to move.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void updateSchedules(Swarm swarm, int current_iteration,
+        int max_iterations);
+}
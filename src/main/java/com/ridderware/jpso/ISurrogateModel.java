@@ -0,0 +1,52 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ * Interface defining methods for a surrogate model: a cheap approximation of the
+ * fitness function fitted to positions that have already been evaluated.
+ * @author Jeff Ridder
+ */
+public interface ISurrogateModel
+{
+    /**
+     * Adds an evaluated position to the model.
+     * @param position The evaluated position.
+     * @param fitness The fitness of the position.
+     */
+    public void addSample(Double[] position, double fitness);
+
+    /**
+     * Predicts the fitness of a position.
+     * @param position The position to be predicted.
+     * @return The predicted fitness.
+     */
+    public double predict(Double[] position);
+
+    /**
+     * Returns the number of samples the model is currently fitted to.
+     * @return number of samples.
+     */
+    public int getNumberOfSamples();
+
+    /**
+     * Removes all samples, as when the fitness landscape has changed.
+     */
+    public void clear();
+}
@@ -0,0 +1,35 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ * Interface for objects that build a swarm for one run of an experiment.
+ * @author Jeff Ridder
+ */
+public interface ISwarmFactory
+{
+    /**
+     * Creates a swarm with its particles created but not yet initialized.  Each call
+     * must return a swarm with its own mover and any other stateful collaborators,
+     * since runs may execute concurrently.  The evaluator may be shared only if it is
+     * thread-safe.
+     * @return a new Swarm object.
+     */
+    public Swarm createSwarm();
+}
@@ -0,0 +1,42 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ * Interface for objects that are notified of the progress of a swarm.
+ * @author Jeff Ridder
+ */
+public interface ISwarmListener
+{
+    /**
+     * Called after the particles have been moved and evaluated, and the swarm
+     * has been resized and its topology updated.
+     * @param swarm the swarm.
+     * @param current_iteration the iteration just completed.
+     */
+    public void iterationCompleted(Swarm swarm, int current_iteration);
+
+    /**
+     * Called when particles are added to or removed from the swarm.
+     * @param swarm the swarm.
+     * @param id_map maps each old particle ID to its new ID, or to -1 if the
+     * particle was removed.  Added particles take the IDs following the survivors.
+     */
+    public void swarmResized(Swarm swarm, int[] id_map);
+}
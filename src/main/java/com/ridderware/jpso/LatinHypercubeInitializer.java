@@ -0,0 +1,94 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import com.ridderware.jrandom.MersenneTwisterFast;
+
+/**
+ *  Initializes the particles by Latin hypercube sampling.  The range of each
+ *  dimension is divided into as many equal strata as there are particles, and each
+ *  stratum of each dimension holds exactly one particle, at a random point within
+ *  it.  The strata are assigned by an independent random permutation for each
+ *  dimension.
+ *
+ * @author Jeff Ridder
+ */
+public class LatinHypercubeInitializer implements IInitializer
+{
+    private ValueLimitSet valueLimitSet;
+
+    private int[][] strata;
+
+    private long[] seeds;
+
+    /**
+     * Creates a new instance of LatinHypercubeInitializer
+     */
+    public LatinHypercubeInitializer()
+    {
+        this.valueLimitSet = null;
+        this.strata = null;
+        this.seeds = null;
+    }
+
+    /**
+     * Draws the permutation of strata of each dimension, and a seed for each particle.
+     * @param numberOfParticles number of particles to be initialized.
+     * @param valueLimitSet the search space.
+     */
+    public void prepare(int numberOfParticles, ValueLimitSet valueLimitSet)
+    {
+        this.valueLimitSet = valueLimitSet;
+        this.strata = new int[valueLimitSet.getSize()][numberOfParticles];
+        this.seeds = new long[numberOfParticles];
+
+        for (int[] permutation : this.strata)
+        {
+            //  Fisher-Yates shuffle
+            for (int i = 0; i < numberOfParticles; i++)
+            {
+                int j = RandomSource.getInstance().nextInt(i + 1);
+                permutation[i] = permutation[j];
+                permutation[j] = i;
+            }
+        }
+
+        for (int i = 0; i < numberOfParticles; i++)
+        {
+            this.seeds[i] = RandomSource.getInstance().nextLong();
+        }
+    }
+
+    /**
+     * Fills the position of a particle with a random point in its strata.
+     * @param index index of the particle.
+     * @param position buffer holding the position, to be filled in place.
+     */
+    public void initializePosition(int index, double[] position)
+    {
+        MersenneTwisterFast random = new MersenneTwisterFast(this.seeds[index]);
+        double width = 1. / this.seeds.length;
+
+        for (int d = 0; d < position.length; d++)
+        {
+            double u = (this.strata[d][index] + random.nextDouble()) * width;
+            position[d] = this.valueLimitSet.getValueLimits(d).scale(u);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ *  A parameter that changes linearly from a starting value at the first iteration
+ *  to an ending value at the last, as the classic decreasing inertia weight of Shi
+ *  and Eberhart.
+ *
+ * @author Jeff Ridder
+ */
+public class LinearSchedule implements IParameterSchedule
+{
+    private double start;
+
+    private double end;
+
+    private double value;
+
+    /**
+     * Creates a new instance of LinearSchedule
+     * @param start Value at the start of the run.
+     * @param end Value at the end of the run.
+     */
+    public LinearSchedule(double start, double end)
+    {
+        this.start = start;
+        this.end = end;
+        this.value = start;
+    }
+
+    /**
+     * Computes the value for an iteration.
+     * @param swarm the swarm whose particles are about to move.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void update(Swarm swarm, int current_iteration, int max_iterations)
+    {
+        this.value = start + ((current_iteration + 1.) /
+            (double) max_iterations) * (end - start);
+    }
+
+    /**
+     * Returns the value for the current iteration.
+     * @param pid ID of the particle, or -1 if it is not known.
+     * @return the value.
+     */
+    public double getValue(int pid)
+    {
+        return this.value;
+    }
+}
@@ -0,0 +1,171 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ *  Implements the multi-objective PSO of Coello, Pulido and Lechuga.  Every
+ *  evaluated position is offered to a bounded ParetoArchive, and each move uses a
+ *  leader drawn from the archive, favouring sparsely populated regions of the
+ *  front, in place of the neighborhood best.  A personal best is replaced when the
+ *  new position dominates it, and with probability one half when neither dominates
+ *  the other.  The fitness of a state is its first objective, so statistics and
+ *  the single-objective machinery of Swarm remain usable.
+ *
+ * @author Jeff Ridder
+ */
+public class MOPSOSwarm extends Swarm
+{
+    private ParetoArchive paretoArchive;
+
+    private Particle leader;
+
+    /**
+     * Creates a multi-objective swarm.
+     * @param numberOfParticles Number of particles to create in the swarm.
+     * @param evaluator The evaluator for particles in the swarm.
+     * @param neighborhoodTopology The topology used to define neighbors.  It is only used for the swarm's bookkeeping, as particles follow leaders from the archive.
+     * @param paretoArchive The archive of non-dominated solutions.
+     */
+    public MOPSOSwarm(int numberOfParticles, IMultiObjectiveEvaluator evaluator,
+        NeighborhoodTopology neighborhoodTopology, ParetoArchive paretoArchive)
+    {
+        super(numberOfParticles, evaluator, neighborhoodTopology);
+        this.paretoArchive = paretoArchive;
+        this.leader = null;
+    }
+
+    /**
+     * Creates a multi-objective swarm.
+     * @param numberOfParticles Number of particles to create in the swarm.
+     * @param evaluator The evaluator for particles in the swarm.
+     * @param neighborhoodTopology The topology used to define neighbors.  It is only used for the swarm's bookkeeping, as particles follow leaders from the archive.
+     * @param stats_filename Name of the statistics file.
+     * @param paretoArchive The archive of non-dominated solutions.
+     */
+    public MOPSOSwarm(int numberOfParticles, IMultiObjectiveEvaluator evaluator,
+        NeighborhoodTopology neighborhoodTopology, String stats_filename,
+        ParetoArchive paretoArchive)
+    {
+        super(numberOfParticles, evaluator, neighborhoodTopology, stats_filename);
+        this.paretoArchive = paretoArchive;
+        this.leader = null;
+    }
+
+    /**
+     * Returns the archive of non-dominated solutions.
+     * @return ParetoArchive object.
+     */
+    public ParetoArchive getParetoArchive()
+    {
+        return this.paretoArchive;
+    }
+
+    /**
+     * Evaluates the objectives at the current position of a particle and offers the
+     * result to the archive.
+     * @param particle the particle to evaluate.
+     */
+    @Override
+    protected void evaluateParticle(Particle particle)
+    {
+        double[] objectives = ((IMultiObjectiveEvaluator) this.getEvaluator()).
+            evaluateObjectives(particle.getCurrentPosition());
+        this.addEvaluations(1);
+
+        particle.getCurrentState().setObjectives(objectives);
+        particle.setCurrentConstraintViolation(0.);
+        particle.setCurrentFitness(objectives[0]);
+
+        this.paretoArchive.add(particle.getCurrentPosition(), objectives);
+    }
+
+    /**
+     * Replaces the personal best of a particle with its current state if the current
+     * state dominates it, or with probability one half if neither dominates the other.
+     * @param particle the particle.
+     * @return true if the personal best was replaced.
+     */
+    @Override
+    protected boolean updatePersonalBest(Particle particle)
+    {
+        double[] current = particle.getCurrentState().getObjectives();
+        double[] best = particle.getBestState().getObjectives();
+
+        boolean replace;
+        if (best == null || ParetoArchive.dominates(current, best))
+        {
+            replace = true;
+        }
+        else if (ParetoArchive.dominates(best, current))
+        {
+            replace = false;
+        }
+        else
+        {
+            replace = RandomSource.getInstance().nextBoolean();
+        }
+
+        if (replace)
+        {
+            this.setPersonalBest(particle);
+            return true;
+        }
+
+        particle.setIterationsSinceImprovement(particle.getIterationsSinceImprovement() + 1);
+        return false;
+    }
+
+    /**
+     * Moves each particle toward a leader selected from the archive.  The leader is
+     * presented to the mover as the best of the particle's neighbors.
+     * @param current_iteration The current iteration.
+     * @param max_iterations The max number of iterations.
+     */
+    @Override
+    protected void moveParticles(int current_iteration, int max_iterations)
+    {
+        Particle[] particles = this.getParticles();
+
+        if (this.leader == null)
+        {
+            this.leader = new Particle(-1, this.getValueLimitSet(),
+                particles[0].getMover());
+            this.leader.setBestFitness(-Double.MAX_VALUE);
+        }
+
+        for (int p = 0; p < particles.length; p++)
+        {
+            ParetoArchive.Entry entry = this.paretoArchive.selectLeader();
+
+            Particle[] neighbors;
+            if (entry == null)
+            {
+                neighbors = this.getNeighbors(p);
+            }
+            else
+            {
+                this.leader.setBestPosition(entry.getPosition());
+                neighbors = new Particle[] { this.leader, particles[p] };
+            }
+
+            particles[p].moveParticle(neighbors, current_iteration,
+                max_iterations);
+        }
+    }
+}
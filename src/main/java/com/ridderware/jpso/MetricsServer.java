@@ -0,0 +1,315 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.apache.logging.log4j.*;
+
+/**
+ *  Serves metrics of one or more swarms over HTTP in the Prometheus text exposition
+ *  format, at /metrics on the loopback interface.  The metrics are read from the
+ *  snapshots the swarms publish at the end of each iteration, which costs a
+ *  volatile read per swarm, so a scrape never blocks or slows a swarm.  Requests are
+ *  handled on a single daemon thread.
+ *
+ * @author Jeff Ridder
+ */
+public class MetricsServer
+{
+    private int port;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    private final Map<String, Swarm> swarms = new ConcurrentHashMap<String, Swarm>();
+
+    private final static Logger logger = LogManager.getLogger(MetricsServer.class);
+
+    /**
+     * Creates a new instance of MetricsServer
+     * @param port Port to listen on, or 0 for any free port.
+     */
+    public MetricsServer(int port)
+    {
+        this.port = port;
+        this.server = null;
+        this.executor = null;
+    }
+
+    /**
+     * Adds a swarm whose metrics are to be served, enabling its snapshots.  May be
+     * called while the server is running.
+     * @param name Name of the swarm, given as the swarm label of its metrics.
+     * @param swarm the swarm.
+     */
+    public void addSwarm(String name, Swarm swarm)
+    {
+        swarm.setSnapshotsEnabled(true);
+        this.swarms.put(name, swarm);
+    }
+
+    /**
+     * Removes a swarm.
+     * @param name Name of the swarm.
+     */
+    public void removeSwarm(String name)
+    {
+        this.swarms.remove(name);
+    }
+
+    /**
+     * Starts serving.
+     * @return true if there was an IOException.
+     */
+    public boolean start()
+    {
+        try
+        {
+            this.server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), this.port), 0);
+        }
+        catch (IOException e)
+        {
+            logger.error("ERROR - Could not listen on port " + this.port);
+            logger.error("IO Exception: " + e);
+            return true;
+        }
+
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "jpso-metrics");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        this.server.createContext("/metrics", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                byte[] body = getMetrics().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type",
+                    "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        this.server.setExecutor(this.executor);
+        this.server.start();
+
+        logger.info("Serving metrics at http://" +
+            this.server.getAddress().getAddress().getHostAddress() + ":" +
+            this.getPort() + "/metrics");
+
+        return false;
+    }
+
+    /**
+     * Stops serving.
+     */
+    public void stop()
+    {
+        if (this.server != null)
+        {
+            this.server.stop(0);
+            this.executor.shutdown();
+            this.server = null;
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * @return port, which is chosen by the system if 0 was requested.
+     */
+    public int getPort()
+    {
+        return this.server != null ? this.server.getAddress().getPort() : this.port;
+    }
+
+    /**
+     * Returns the metrics of every swarm that has published a snapshot.
+     * @return metrics in Prometheus text exposition format.
+     */
+    public String getMetrics()
+    {
+        //  Read each snapshot once, so every metric of a swarm agrees
+        Map<String, SwarmSnapshot> snapshots = new TreeMap<String, SwarmSnapshot>();
+        for (Map.Entry<String, Swarm> entry : this.swarms.entrySet())
+        {
+            SwarmSnapshot snapshot = entry.getValue().getSnapshot();
+            if (snapshot != null)
+            {
+                snapshots.put(entry.getKey(), snapshot);
+            }
+        }
+
+        StringBuilder text = new StringBuilder();
+
+        header(text, "jpso_iteration", "gauge", "Latest iteration completed, from 1.");
+        for (Map.Entry<String, SwarmSnapshot> e : snapshots.entrySet())
+        {
+            sample(text, "jpso_iteration", e.getKey(), null, e.getValue().getIteration() + 1);
+        }
+
+        header(text, "jpso_best_fitness", "gauge", "Best fitness found so far.");
+        for (Map.Entry<String, SwarmSnapshot> e : snapshots.entrySet())
+        {
+            sample(text, "jpso_best_fitness", e.getKey(), null, e.getValue().getBestFitness());
+        }
+
+        header(text, "jpso_best_constraint_violation", "gauge", "Constraint violation of the best position.");
+        for (Map.Entry<String, SwarmSnapshot> e : snapshots.entrySet())
+        {
+            sample(text, "jpso_best_constraint_violation", e.getKey(), null,
+                e.getValue().getBestConstraintViolation());
+        }
+
+        header(text, "jpso_mean_best_fitness", "gauge", "Mean personal best fitness of the particles.");
+        for (Map.Entry<String, SwarmSnapshot> e : snapshots.entrySet())
+        {
+            sample(text, "jpso_mean_best_fitness", e.getKey(), null, e.getValue().getMeanBestFitness());
+        }
+
+        header(text, "jpso_evaluations_total", "counter", "Fitness evaluations performed.");
+        for (Map.Entry<String, SwarmSnapshot> e : snapshots.entrySet())
+        {
+            sample(text, "jpso_evaluations_total", e.getKey(), null,
+                e.getValue().getNumberOfEvaluations());
+        }
+
+        header(text, "jpso_evaluations_per_second", "gauge", "Rate of evaluation over the latest iteration.");
+        for (Map.Entry<String, SwarmSnapshot> e : snapshots.entrySet())
+        {
+            sample(text, "jpso_evaluations_per_second", e.getKey(), null,
+                e.getValue().getEvaluationsPerSecond());
+        }
+
+        header(text, "jpso_particles", "gauge", "Number of particles in the swarm.");
+        for (Map.Entry<String, SwarmSnapshot> e : snapshots.entrySet())
+        {
+            sample(text, "jpso_particles", e.getKey(), null, e.getValue().getNumberOfParticles());
+        }
+
+        header(text, "jpso_diversity", "gauge", "Diversity of the swarm.");
+        for (Map.Entry<String, SwarmSnapshot> e : snapshots.entrySet())
+        {
+            sample(text, "jpso_diversity", e.getKey(), null, e.getValue().getDiversity());
+        }
+
+        header(text, "jpso_phase_seconds_total", "counter", "Time spent in each phase of an iteration.");
+        for (Map.Entry<String, SwarmSnapshot> e : snapshots.entrySet())
+        {
+            sample(text, "jpso_phase_seconds_total", e.getKey(), "move",
+                e.getValue().getMoveNanos() * 1.e-9);
+            sample(text, "jpso_phase_seconds_total", e.getKey(), "evaluate",
+                e.getValue().getEvaluateNanos() * 1.e-9);
+            sample(text, "jpso_phase_seconds_total", e.getKey(), "update",
+                e.getValue().getUpdateNanos() * 1.e-9);
+        }
+
+        header(text, "jpso_snapshot_timestamp_seconds", "gauge", "Time at which the latest snapshot was taken.");
+        for (Map.Entry<String, SwarmSnapshot> e : snapshots.entrySet())
+        {
+            sample(text, "jpso_snapshot_timestamp_seconds", e.getKey(), null,
+                e.getValue().getTimeMillis() * 1.e-3);
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Appends the HELP and TYPE lines of a metric.
+     * @param text the text being built.
+     * @param metric metric name.
+     * @param type metric type.
+     * @param help description.
+     */
+    private static void header(StringBuilder text, String metric, String type,
+        String help)
+    {
+        text.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Appends a sample.
+     * @param text the text being built.
+     * @param metric metric name.
+     * @param swarm swarm label.
+     * @param phase phase label, or null for none.
+     * @param value the value.
+     */
+    private static void sample(StringBuilder text, String metric, String swarm,
+        String phase, double value)
+    {
+        text.append(metric).append("{swarm=\"").append(escape(swarm)).append('"');
+        if (phase != null)
+        {
+            text.append(",phase=\"").append(phase).append('"');
+        }
+        text.append("} ");
+
+        if (Double.isNaN(value))
+        {
+            text.append("NaN");
+        }
+        else if (Double.isInfinite(value))
+        {
+            text.append(value > 0. ? "+Inf" : "-Inf");
+        }
+        else if (value == Math.rint(value) && Math.abs(value) < 1.e15)
+        {
+            text.append((long) value);
+        }
+        else
+        {
+            text.append(value);
+        }
+        text.append('\n');
+    }
+
+    /**
+     * Escapes a label value.
+     * @param value label value.
+     * @return escaped value.
+     */
+    private static String escape(String value)
+    {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -44,7 +44,14 @@ public class NeighborhoodTopology
         /**
          * Particles are arranged in a rectangle, with neighbors above, below, and to the sides
          */
-        SQUARE
+        SQUARE,
+        /**
+         * Particles are arranged in a tree (H-PSO of Janson and Middendorf) whose
+         * branching degree is the neighborhood size.  A particle's neighbors are
+         * itself and its parent, and particles that beat their parent swap places
+         * with it, so the best particles move toward the root.
+         */
+        HIERARCHY
 
     }
     private Topology topology;
@@ -53,6 +60,12 @@ public class NeighborhoodTopology
 
     private int neighborhoodSize;
 
+    private int[] particleAtNode;
+
+    private int[] nodeOfParticle;
+
+    private int version;
+
     /**
      * Creates an instance of NeighborhoodTopology.
      * @param topology The topology (e.g., RING, STAR, GLOBAL).
@@ -65,6 +78,180 @@ public class NeighborhoodTopology
         this.topology = topology;
         this.swarmSize = swarmSize;
         this.neighborhoodSize = neighborhoodSize;
+        this.version = 0;
+
+        if (topology == Topology.HIERARCHY)
+        {
+            this.createHierarchy();
+        }
+    }
+
+    /**
+     * Returns the topology.
+     * @return the topology.
+     */
+    public Topology getTopology()
+    {
+        return this.topology;
+    }
+
+    /**
+     * Returns the number of particles in the swarm.
+     * @return swarm size.
+     */
+    public int getSwarmSize()
+    {
+        return this.swarmSize;
+    }
+
+    /**
+     * Returns a count of the changes made to the topology, so that neighbor lists
+     * may be cached until it next changes.
+     * @return the version of the topology.
+     */
+    public int getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * Changes the number of particles in the topology.  For a HIERARCHY, surviving
+     * particles keep their breadth-first order in the tree and new particles are
+     * added at the bottom.
+     * @param id_map maps each old particle ID to its new ID, or to -1 if the particle
+     * was removed.
+     * @param swarmSize new number of particles in the swarm.
+     */
+    public void resize(int[] id_map, int swarmSize)
+    {
+        if (topology == Topology.HIERARCHY)
+        {
+            int[] new_particle_at_node = new int[swarmSize];
+            int[] new_node_of_particle = new int[swarmSize];
+            boolean[] placed = new boolean[swarmSize];
+
+            int node = 0;
+            for (int i = 0; i < this.swarmSize; i++)
+            {
+                int new_id = id_map[particleAtNode[i]];
+                if (new_id >= 0)
+                {
+                    new_particle_at_node[node] = new_id;
+                    new_node_of_particle[new_id] = node;
+                    placed[new_id] = true;
+                    node++;
+                }
+            }
+
+            for (int pid = 0; pid < swarmSize; pid++)
+            {
+                if (!placed[pid])
+                {
+                    new_particle_at_node[node] = pid;
+                    new_node_of_particle[pid] = node;
+                    node++;
+                }
+            }
+
+            this.particleAtNode = new_particle_at_node;
+            this.nodeOfParticle = new_node_of_particle;
+        }
+
+        this.swarmSize = swarmSize;
+        this.version++;
+    }
+
+    /**
+     * Lays out the particles of a HIERARCHY topology in a tree in order of their IDs,
+     * with particle 0 at the root.
+     */
+    private void createHierarchy()
+    {
+        this.particleAtNode = new int[swarmSize];
+        this.nodeOfParticle = new int[swarmSize];
+        for (int i = 0; i < swarmSize; i++)
+        {
+            particleAtNode[i] = i;
+            nodeOfParticle[i] = i;
+        }
+    }
+
+    /**
+     * Returns the branching degree of the HIERARCHY tree.
+     * @return branching degree.
+     */
+    private int getBranchingDegree()
+    {
+        return Math.max(2, neighborhoodSize);
+    }
+
+    /**
+     * Returns the ID of the particle that is the parent of the specified particle in
+     * a HIERARCHY topology.
+     * @param pid ID of the particle.
+     * @return ID of the parent, or -1 if the particle is at the root (or the topology
+     * is not a HIERARCHY).
+     */
+    public int getParentID(int pid)
+    {
+        if (topology != Topology.HIERARCHY || nodeOfParticle[pid] == 0)
+        {
+            return -1;
+        }
+
+        return particleAtNode[(nodeOfParticle[pid] - 1) / getBranchingDegree()];
+    }
+
+    /**
+     * Updates the topology after the particles have been evaluated.  For a HIERARCHY,
+     * the tree is traversed top-down and breadth-first, and at each node the best
+     * child swaps places with the particle at the node if the child's personal best
+     * is better.  A particle therefore moves at most one level up per iteration.
+     * This requires O(N) work and does nothing for the other topologies.
+     * @param particles the particles of the swarm, indexed by ID.
+     */
+    public void updateTopology(Particle[] particles)
+    {
+        if (topology != Topology.HIERARCHY)
+        {
+            return;
+        }
+
+        int degree = getBranchingDegree();
+
+        for (int node = 0; node < swarmSize; node++)
+        {
+            int first_child = node * degree + 1;
+            if (first_child >= swarmSize)
+            {
+                break;
+            }
+
+            int last_child = Math.min(swarmSize - 1, first_child + degree - 1);
+
+            int best_child = -1;
+            Particle best = particles[particleAtNode[node]];
+            for (int child = first_child; child <= last_child; child++)
+            {
+                if (particles[particleAtNode[child]].hasBetterBestThan(best))
+                {
+                    best_child = child;
+                    best = particles[particleAtNode[child]];
+                }
+            }
+
+            if (best_child >= 0)
+            {
+                int parent_pid = particleAtNode[node];
+                int child_pid = particleAtNode[best_child];
+
+                particleAtNode[node] = child_pid;
+                particleAtNode[best_child] = parent_pid;
+                nodeOfParticle[child_pid] = node;
+                nodeOfParticle[parent_pid] = best_child;
+                this.version++;
+            }
+        }
     }
 
     /**
@@ -171,6 +358,21 @@ public class NeighborhoodTopology
                 neighbors[4] = pid - swarmSize + imax;
             }
         }
+        else if (topology == Topology.HIERARCHY)
+        {
+            int parent = getParentID(pid);
+            if (parent < 0)
+            {
+                neighbors = new Integer[1];
+                neighbors[0] = pid;
+            }
+            else
+            {
+                neighbors = new Integer[2];
+                neighbors[0] = parent;
+                neighbors[1] = pid;
+            }
+        }
         else //  won't happen if constructors prevent invalid topologies.
         {
             neighbors = new Integer[0];
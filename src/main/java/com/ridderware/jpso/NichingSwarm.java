@@ -0,0 +1,245 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ridderware.jpso;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ *  Implements the species-based niching PSO of Li.  Each iteration the particles
+ *  are taken in order of personal best fitness, and a particle becomes a species
+ *  seed unless its personal best lies within the species radius of a better seed,
+ *  in which case it joins that seed's species.  Particles then move with their
+ *  species seed as their only neighbor, so each species converges on its own
+ *  optimum and the swarm finds many optima in one run.  The seeds are held in a
+ *  SpatialGrid so that speciation costs O(N log N) rather than O(N^2).
+ *
+ * @author Jeff Ridder
+ */
+public class NichingSwarm extends Swarm
+{
+    private double speciesRadius;
+
+    private int[] seedOf;
+
+    private final ArrayList<Integer> seeds = new ArrayList<Integer>();
+
+    /**
+     * Creates a niching swarm.
+     * @param numberOfParticles Number of particles to create in the swarm.
+     * @param evaluator The evaluator for particles in the swarm.
+     * @param neighborhoodTopology The topology used to define neighbors.  It is only used for the swarm's bookkeeping, as particles follow their species seeds.
+     * @param speciesRadius Distance from a seed within which particles join its species.
+     */
+    public NichingSwarm(int numberOfParticles, IEvaluator evaluator,
+        NeighborhoodTopology neighborhoodTopology, double speciesRadius)
+    {
+        super(numberOfParticles, evaluator, neighborhoodTopology);
+        this.speciesRadius = speciesRadius;
+    }
+
+    /**
+     * Creates a niching swarm.
+     * @param numberOfParticles Number of particles to create in the swarm.
+     * @param evaluator The evaluator for particles in the swarm.
+     * @param neighborhoodTopology The topology used to define neighbors.  It is only used for the swarm's bookkeeping, as particles follow their species seeds.
+     * @param stats_filename Name of the statistics file.
+     * @param speciesRadius Distance from a seed within which particles join its species.
+     */
+    public NichingSwarm(int numberOfParticles, IEvaluator evaluator,
+        NeighborhoodTopology neighborhoodTopology, String stats_filename,
+        double speciesRadius)
+    {
+        super(numberOfParticles, evaluator, neighborhoodTopology, stats_filename);
+        this.speciesRadius = speciesRadius;
+    }
+
+    /**
+     * Returns the species radius.
+     * @return species radius.
+     */
+    public double getSpeciesRadius()
+    {
+        return this.speciesRadius;
+    }
+
+    /**
+     * Moves the particles after first dividing the swarm into species.
+     * @param current_iteration The current iteration.
+     * @param max_iterations The max number of iterations.
+     */
+    @Override
+    protected void moveParticles(int current_iteration, int max_iterations)
+    {
+        this.speciate();
+
+        Particle[] particles = this.getParticles();
+        for (int p = 0; p < particles.length; p++)
+        {
+            Particle[] neighbors;
+            if (seedOf[p] == p)
+            {
+                neighbors = new Particle[] { particles[p] };
+            }
+            else
+            {
+                neighbors = new Particle[] { particles[seedOf[p]], particles[p] };
+            }
+
+            particles[p].moveParticle(neighbors, current_iteration,
+                max_iterations);
+        }
+    }
+
+    /**
+     * Divides the swarm into species.  Seeds are chosen in order of personal best,
+     * by the feasibility rules of State.isBetter, and every other particle joins the species of the nearest seed within
+     * the species radius.
+     */
+    protected void speciate()
+    {
+        final Particle[] particles = this.getParticles();
+
+        Integer[] order = new Integer[particles.length];
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            public int compare(Integer a, Integer b)
+            {
+                if (particles[a].hasBetterBestThan(particles[b]))
+                {
+                    return -1;
+                }
+                return particles[b].hasBetterBestThan(particles[a]) ? 1 : 0;
+            }
+        });
+
+        SpatialGrid grid = new SpatialGrid(this.getValueLimitSet(),
+            this.getCellsPerDimension());
+
+        this.seedOf = new int[particles.length];
+        this.seeds.clear();
+
+        for (int i : order)
+        {
+            double[] x = toArray(particles[i].getBestPosition());
+
+            int nearest = grid.getNearest(x);
+            if (nearest >= 0 &&
+                SpatialGrid.getDistance(x, grid.getPosition(nearest)) <= speciesRadius)
+            {
+                seedOf[i] = nearest;
+            }
+            else
+            {
+                seedOf[i] = i;
+                seeds.add(i);
+                grid.insert(i, x);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of grid cells per dimension, chosen so that a cell is about
+     * one species radius wide.
+     * @return cells per dimension.
+     */
+    private int getCellsPerDimension()
+    {
+        ValueLimitSet vLimSet = this.getValueLimitSet();
+
+        double max_range = 0.;
+        for (int i = 0; i < vLimSet.getSize(); i++)
+        {
+            max_range = Math.max(max_range, vLimSet.getValueLimits(i).getMaximum() -
+                vLimSet.getValueLimits(i).getMinimum());
+        }
+
+        return (int) Math.max(1, Math.min(256, Math.ceil(max_range / speciesRadius)));
+    }
+
+    /**
+     * Returns the IDs of the species seeds, best first.
+     * @return list of particle IDs.
+     */
+    public List<Integer> getSeeds()
+    {
+        this.speciate();
+        return new ArrayList<Integer>(this.seeds);
+    }
+
+    /**
+     * Returns the distinct feasible optima found by the swarm: the personal best
+     * states of the species seeds, best first.  No two are within the species radius
+     * of each other.
+     * @return list of states.
+     */
+    public List<State> getOptima()
+    {
+        return this.getOptima(Double.MAX_VALUE);
+    }
+
+    /**
+     * Returns the distinct feasible optima found by the swarm whose fitness is below a
+     * threshold, best first.  No two are within the species radius of each other.
+     * @param fitness_threshold only optima with fitness below this value are returned.
+     * @return list of states.
+     */
+    public List<State> getOptima(double fitness_threshold)
+    {
+        this.speciate();
+
+        List<State> optima = new ArrayList<State>();
+        for (int i : this.seeds)
+        {
+            Particle p = this.getParticles()[i];
+            if (p.getBestConstraintViolation() <= 0. &&
+                p.getBestFitness() < fitness_threshold)
+            {
+                State optimum = new State(p.getBestPosition().length);
+                optimum.setPosition(p.getBestPosition().clone());
+                optimum.setFitness(p.getBestFitness());
+                optimum.setConstraintViolation(p.getBestConstraintViolation());
+                optima.add(optimum);
+            }
+        }
+        return optima;
+    }
+
+    /**
+     * Copies a position vector to a primitive array.
+     * @param position position vector.
+     * @return primitive copy.
+     */
+    private static double[] toArray(Double[] position)
+    {
+        double[] x = new double[position.length];
+        for (int i = 0; i < x.length; i++)
+        {
+            x[i] = position[i];
+        }
+        return x;
+    }
+}
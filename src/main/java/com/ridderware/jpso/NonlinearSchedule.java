@@ -0,0 +1,76 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ *  A parameter that changes from a starting to an ending value along a power
+ *  curve, value = end + (start - end) (1 - t)^exponent with t the fraction of the
+ *  run completed, after Chatterjee and Siarry.  An exponent above 1 moves away from
+ *  the starting value quickly and then settles, so a decreasing inertia weight
+ *  turns to exploitation sooner; an exponent below 1 holds the starting value
+ *  longer.  An exponent of 1 is a linear schedule.
+ *
+ * @author Jeff Ridder
+ */
+public class NonlinearSchedule implements IParameterSchedule
+{
+    private double start;
+
+    private double end;
+
+    private double exponent;
+
+    private double value;
+
+    /**
+     * Creates a new instance of NonlinearSchedule
+     * @param start Value at the start of the run.
+     * @param end Value at the end of the run.
+     * @param exponent Exponent of the curve.
+     */
+    public NonlinearSchedule(double start, double end, double exponent)
+    {
+        this.start = start;
+        this.end = end;
+        this.exponent = exponent;
+        this.value = start;
+    }
+
+    /**
+     * Computes the value for an iteration.
+     * @param swarm the swarm whose particles are about to move.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void update(Swarm swarm, int current_iteration, int max_iterations)
+    {
+        double t = Math.min(1., (current_iteration + 1.) / (double) max_iterations);
+        this.value = end + (start - end) * Math.pow(1. - t, exponent);
+    }
+
+    /**
+     * Returns the value for the current iteration.
+     * @param pid ID of the particle, or -1 if it is not known.
+     * @return the value.
+     */
+    public double getValue(int pid)
+    {
+        return this.value;
+    }
+}
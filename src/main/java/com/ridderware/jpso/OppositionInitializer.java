@@ -0,0 +1,77 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ *  Opposition-based initialization, after Rahnamayan, Tizhoosh and Salama.  The
+ *  particles are taken in pairs: the first of a pair is placed by another
+ *  initializer, and the second at the opposite point, reflected through the centre
+ *  of the range along every dimension.  Rather than evaluating twice as many points
+ *  and keeping the fitter half, as in the original method, every point is kept as a
+ *  particle, so initialization costs no extra evaluations and the better point of
+ *  each pair becomes the personal best that leads the swarm.
+ *
+ * @author Jeff Ridder
+ */
+public class OppositionInitializer implements IInitializer
+{
+    private IInitializer initializer;
+
+    private ValueLimitSet valueLimitSet;
+
+    /**
+     * Creates a new instance of OppositionInitializer
+     * @param initializer initializer of the first particle of each pair.
+     */
+    public OppositionInitializer(IInitializer initializer)
+    {
+        this.initializer = initializer;
+        this.valueLimitSet = null;
+    }
+
+    /**
+     * Prepares the other initializer for the first particle of each pair.
+     * @param numberOfParticles number of particles to be initialized.
+     * @param valueLimitSet the search space.
+     */
+    public void prepare(int numberOfParticles, ValueLimitSet valueLimitSet)
+    {
+        this.valueLimitSet = valueLimitSet;
+        this.initializer.prepare((numberOfParticles + 1) / 2, valueLimitSet);
+    }
+
+    /**
+     * Fills the position of a particle, as the point of its pair or its opposite.
+     * @param index index of the particle.
+     * @param position buffer holding the position, to be filled in place.
+     */
+    public void initializePosition(int index, double[] position)
+    {
+        this.initializer.initializePosition(index / 2, position);
+
+        if (index % 2 == 1)
+        {
+            for (int d = 0; d < position.length; d++)
+            {
+                ValueLimits vLim = this.valueLimitSet.getValueLimits(d);
+                position[d] = vLim.round(vLim.getMinimum() + vLim.getMaximum() - position[d]);
+            }
+        }
+    }
+}
@@ -0,0 +1,436 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.*;
+
+/**
+ *  Bounded external archive of non-dominated solutions, with the adaptive
+ *  hypergrid of Coello, Pulido and Lechuga's MOPSO.  A candidate is inserted in one
+ *  pass over the archive, which stops at the first member that dominates it, so
+ *  each insertion costs O(A) and the archive is never rescanned as a whole.  Each
+ *  member is kept in a cell of a grid over objective space.  When the archive is
+ *  full, a member of the most crowded cell is dropped, and leaders are chosen from
+ *  sparsely populated cells so the whole front is explored.
+ *
+ * @author Jeff Ridder
+ */
+public class ParetoArchive
+{
+    /**
+     *  A non-dominated solution.
+     */
+    public static class Entry
+    {
+        private final Double[] position;
+
+        private final double[] objectives;
+
+        private long cell;
+
+        /**
+         * Creates a new instance of Entry
+         * @param position the position.
+         * @param objectives its objective vector.
+         */
+        public Entry(Double[] position, double[] objectives)
+        {
+            this.position = position;
+            this.objectives = objectives;
+        }
+
+        /**
+         * Returns the position.  The array must not be modified.
+         * @return position vector.
+         */
+        public Double[] getPosition()
+        {
+            return this.position;
+        }
+
+        /**
+         * Returns the objective vector.  The array must not be modified.
+         * @return objective vector.
+         */
+        public double[] getObjectives()
+        {
+            return this.objectives;
+        }
+    }
+
+    private int capacity;
+
+    private int divisions;
+
+    private final ArrayList<Entry> entries = new ArrayList<Entry>();
+
+    private final HashMap<Long, Integer> occupancy = new HashMap<Long, Integer>();
+
+    private double[] lower;
+
+    private double[] upper;
+
+    private final static Logger logger = LogManager.getLogger(ParetoArchive.class);
+
+    /**
+     * Creates a new instance of ParetoArchive
+     * @param capacity Maximum number of members.
+     * @param divisions Number of grid divisions along each objective (e.g., 30).
+     */
+    public ParetoArchive(int capacity, int divisions)
+    {
+        this.capacity = Math.max(1, capacity);
+        this.divisions = Math.max(1, divisions);
+        this.lower = null;
+        this.upper = null;
+    }
+
+    /**
+     * Offers a solution to the archive.  It is added if no member dominates or equals
+     * it, and every member it dominates is removed.
+     * @param position the position.  It is copied.
+     * @param objectives its objective vector.  It is copied.
+     * @return true if the solution was added.
+     */
+    public boolean add(Double[] position, double[] objectives)
+    {
+        for (int i = entries.size() - 1; i >= 0; i--)
+        {
+            double[] member = entries.get(i).getObjectives();
+            if (dominatesOrEquals(member, objectives))
+            {
+                return false;
+            }
+            else if (dominates(objectives, member))
+            {
+                this.remove(i);
+            }
+        }
+
+        Entry entry = new Entry(position.clone(), objectives.clone());
+        entries.add(entry);
+
+        if (lower == null || isOutsideGrid(objectives))
+        {
+            this.rebuildGrid();
+        }
+        else
+        {
+            entry.cell = getCell(objectives);
+            occupancy.put(entry.cell, getOccupancy(entry.cell) + 1);
+        }
+
+        if (entries.size() > capacity)
+        {
+            this.removeFromMostCrowdedCell();
+        }
+
+        return entries.contains(entry);
+    }
+
+    /**
+     * Chooses a leader by roulette-wheel selection over the occupied cells, each
+     * weighted by the inverse of its occupancy, followed by a uniform choice within
+     * the cell.
+     * @return a member of the archive, or null if it is empty.
+     */
+    public Entry selectLeader()
+    {
+        if (entries.isEmpty())
+        {
+            return null;
+        }
+
+        double total = 0.;
+        for (int count : occupancy.values())
+        {
+            total += 1. / count;
+        }
+
+        double spin = RandomSource.getInstance().nextDouble() * total;
+        long chosen = 0;
+        for (Map.Entry<Long, Integer> cell : occupancy.entrySet())
+        {
+            chosen = cell.getKey();
+            spin -= 1. / cell.getValue();
+            if (spin <= 0.)
+            {
+                break;
+            }
+        }
+
+        int pick = RandomSource.getInstance().nextInt(getOccupancy(chosen));
+        for (Entry e : entries)
+        {
+            if (e.cell == chosen && pick-- == 0)
+            {
+                return e;
+            }
+        }
+        return entries.get(entries.size() - 1);
+    }
+
+    /**
+     * Returns the members of the archive.
+     * @return list of members.
+     */
+    public List<Entry> getEntries()
+    {
+        return new ArrayList<Entry>(entries);
+    }
+
+    /**
+     * Returns the number of members.
+     * @return number of members.
+     */
+    public int getSize()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Writes the members to a file, one per line, as tab-separated objective values
+     * followed by position values.
+     * @param file the file to write.
+     * @return true if there was an IOException.
+     */
+    public boolean write(File file)
+    {
+        boolean error = false;
+
+        try
+        {
+            PrintWriter outFile = new PrintWriter(new FileWriter(file, false));
+            for (Entry e : entries)
+            {
+                StringBuilder line = new StringBuilder();
+                for (double f : e.getObjectives())
+                {
+                    line.append(f).append('\t');
+                }
+                for (Double x : e.getPosition())
+                {
+                    line.append(x).append('\t');
+                }
+                outFile.println(line.toString().trim());
+            }
+            outFile.close();
+        }
+        catch (IOException e)
+        {
+            logger.error("ERROR - Could not write to file: " +
+                file.getAbsolutePath());
+            logger.error("IO Exception: " + e);
+            error = true;
+        }
+
+        return error;
+    }
+
+    /**
+     * Returns whether one objective vector dominates another: no worse in every
+     * objective and better in at least one.
+     * @param a objective vector.
+     * @param b objective vector.
+     * @return true if a dominates b.
+     */
+    public static boolean dominates(double[] a, double[] b)
+    {
+        boolean better = false;
+        for (int i = 0; i < a.length; i++)
+        {
+            if (a[i] > b[i])
+            {
+                return false;
+            }
+            else if (a[i] < b[i])
+            {
+                better = true;
+            }
+        }
+        return better;
+    }
+
+    /**
+     * Returns whether one objective vector is no worse than another in every objective.
+     * @param a objective vector.
+     * @param b objective vector.
+     * @return true if a dominates or equals b.
+     */
+    private static boolean dominatesOrEquals(double[] a, double[] b)
+    {
+        for (int i = 0; i < a.length; i++)
+        {
+            if (a[i] > b[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the member at an index.
+     * @param index index of the member.
+     */
+    private void remove(int index)
+    {
+        Entry e = entries.get(index);
+
+        //  Order of members does not matter, so move the last into the gap
+        Entry last = entries.remove(entries.size() - 1);
+        if (index < entries.size())
+        {
+            entries.set(index, last);
+        }
+
+        int count = getOccupancy(e.cell) - 1;
+        if (count > 0)
+        {
+            occupancy.put(e.cell, count);
+        }
+        else
+        {
+            occupancy.remove(e.cell);
+        }
+    }
+
+    /**
+     * Removes a randomly chosen member of the most crowded cell.
+     */
+    private void removeFromMostCrowdedCell()
+    {
+        long crowded = 0;
+        int most = 0;
+        for (Map.Entry<Long, Integer> cell : occupancy.entrySet())
+        {
+            if (cell.getValue() > most)
+            {
+                most = cell.getValue();
+                crowded = cell.getKey();
+            }
+        }
+
+        int pick = RandomSource.getInstance().nextInt(most);
+        for (int i = 0; i < entries.size(); i++)
+        {
+            if (entries.get(i).cell == crowded && pick-- == 0)
+            {
+                this.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of members in a cell.
+     * @param cell the cell key.
+     * @return occupancy.
+     */
+    private int getOccupancy(long cell)
+    {
+        Integer count = occupancy.get(cell);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Returns whether an objective vector lies outside the current grid.
+     * @param objectives objective vector.
+     * @return true if outside.
+     */
+    private boolean isOutsideGrid(double[] objectives)
+    {
+        for (int i = 0; i < objectives.length; i++)
+        {
+            if (objectives[i] < lower[i] || objectives[i] > upper[i])
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fits the grid to the members, with a margin of half a division on each side,
+     * and reassigns every member to its cell.
+     */
+    private void rebuildGrid()
+    {
+        int k = entries.get(0).getObjectives().length;
+        lower = new double[k];
+        upper = new double[k];
+        for (int i = 0; i < k; i++)
+        {
+            lower[i] = Double.MAX_VALUE;
+            upper[i] = -Double.MAX_VALUE;
+        }
+
+        for (Entry e : entries)
+        {
+            for (int i = 0; i < k; i++)
+            {
+                lower[i] = Math.min(lower[i], e.getObjectives()[i]);
+                upper[i] = Math.max(upper[i], e.getObjectives()[i]);
+            }
+        }
+
+        for (int i = 0; i < k; i++)
+        {
+            double margin = 0.5 * (upper[i] - lower[i]) / divisions;
+            if (margin <= 0.)
+            {
+                margin = Math.max(1.e-12, 1.e-6 * Math.abs(lower[i]));
+            }
+            lower[i] -= margin;
+            upper[i] += margin;
+        }
+
+        occupancy.clear();
+        for (Entry e : entries)
+        {
+            e.cell = getCell(e.getObjectives());
+            occupancy.put(e.cell, getOccupancy(e.cell) + 1);
+        }
+    }
+
+    /**
+     * Returns the key of the grid cell containing an objective vector.
+     * @param objectives objective vector.
+     * @return the cell key.
+     */
+    private long getCell(double[] objectives)
+    {
+        long key = 0;
+        for (int i = 0; i < objectives.length; i++)
+        {
+            int index = (int) ((objectives[i] - lower[i]) / (upper[i] - lower[i]) *
+                divisions);
+            key = key * divisions + Math.max(0, Math.min(divisions - 1, index));
+        }
+        return key;
+    }
+}
@@ -18,8 +18,6 @@
  */
 package com.ridderware.jpso;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-
 /**
  * Class defining a particle - the basic unit of a swarm.
  * @author Jeff Ridder
@@ -36,6 +34,10 @@ public class Particle
 
     private State personal_best;
 
+    private int iterationsSinceImprovement;
+
+    private State evaluated;
+
     /**
      * Creates a new instance of Particle.
      * @param id The ID number of the new particle.
@@ -50,6 +52,84 @@ public class Particle
 
         this.current = new State(valueLimitSet.getSize());
         this.personal_best = new State(valueLimitSet.getSize());
+        this.iterationsSinceImprovement = 0;
+        this.evaluated = null;
+    }
+
+    /**
+     * Returns the ID number of the particle.  This is the particle's index in the swarm.
+     * @return ID number.
+     */
+    public int getID()
+    {
+        return this.id;
+    }
+
+    /**
+     * Sets the ID number of the particle.  Called by the swarm when particles are
+     * added or removed.
+     * @param id ID number.
+     */
+    void setID(int id)
+    {
+        this.id = id;
+    }
+
+    /**
+     * Returns a copy of the current state as of the particle's last evaluation, kept
+     * by the swarm so that an unmoved particle need not be evaluated again.
+     * @return State object, or null if none has been kept.
+     */
+    State getEvaluatedState()
+    {
+        return this.evaluated;
+    }
+
+    /**
+     * Copies the current state as that of the particle's last evaluation.  The copy
+     * reuses its buffer, so nothing is allocated after the first call.
+     */
+    void recordEvaluatedState()
+    {
+        if (this.evaluated == null)
+        {
+            this.evaluated = new State(valueLimitSet.getSize());
+        }
+
+        this.evaluated.copyPosition(this.current);
+        this.evaluated.setFitness(this.current.getFitness());
+        this.evaluated.setConstraintViolation(this.current.getConstraintViolation());
+        this.evaluated.setObjectives(this.current.getObjectives());
+        this.evaluated.setFitnessBound(this.current.isFitnessBound());
+    }
+
+    /**
+     * Discards the copy of the state of the particle's last evaluation, so that the
+     * particle is evaluated again even if it does not move.
+     */
+    void clearEvaluatedState()
+    {
+        this.evaluated = null;
+    }
+
+    /**
+     * Returns the number of consecutive iterations in which the personal best has
+     * not improved.
+     * @return iterations since the last improvement.
+     */
+    public int getIterationsSinceImprovement()
+    {
+        return this.iterationsSinceImprovement;
+    }
+
+    /**
+     * Sets the number of consecutive iterations in which the personal best has not
+     * improved.
+     * @param iterations iterations since the last improvement.
+     */
+    public void setIterationsSinceImprovement(int iterations)
+    {
+        this.iterationsSinceImprovement = iterations;
     }
 
     /**
@@ -61,17 +141,40 @@ public class Particle
 
         for (int i = 0; i < valueLimitSet.getSize(); i++)
         {
-            double minimum = valueLimitSet.getValueLimits(i).getMinimum();
-            double maximum = valueLimitSet.getValueLimits(i).getMaximum();
+            ValueLimits vLim = valueLimitSet.getValueLimits(i);
+            double minimum = vLim.getMinimum();
+            double maximum = vLim.getMaximum();
 
-            double value = minimum + MersenneTwisterFast.getInstance().
-                nextDouble() * (maximum - minimum);
+            double value;
+            if (vLim.isDiscrete())
+            {
+                //  Scaling makes the end values as likely as the others
+                value = vLim.discretize(vLim.scale(RandomSource.getInstance().
+                    nextDouble()), 0.);
+            }
+            else
+            {
+                value = minimum + RandomSource.getInstance().
+                    nextDouble() * (maximum - minimum);
+            }
             position[i] = value;
         }
 
         current.setPosition(position);
     }
 
+    /**
+     * Initializes a particle at the position chosen for it by an initializer, which
+     * fills the buffer of the current position directly.
+     * @param initializer the initializer, already prepared.
+     * @param index index of the particle amongst those being initialized.
+     */
+    public void initialize(IInitializer initializer, int index)
+    {
+        initializer.initializePosition(index, current.getPositionBuffer());
+        current.positionChanged();
+    }
+
     /**
      * Returns the ValueLimitSet object that contains the search space.
      * @return a ValueLimitSet object.
@@ -127,6 +230,53 @@ public class Particle
         return this.current.getFitness();
     }
 
+    /**
+     * Sets the current constraint violation of the particle.
+     * @param violation total constraint violation, 0 if feasible.
+     */
+    public void setCurrentConstraintViolation(double violation)
+    {
+        current.setConstraintViolation(violation);
+    }
+
+    /**
+     * Returns the current constraint violation of the particle.
+     * @return total constraint violation, 0 if feasible.
+     */
+    public double getCurrentConstraintViolation()
+    {
+        return this.current.getConstraintViolation();
+    }
+
+    /**
+     * Sets the constraint violation of the best position of the particle.
+     * @param violation total constraint violation, 0 if feasible.
+     */
+    public void setBestConstraintViolation(double violation)
+    {
+        this.personal_best.setConstraintViolation(violation);
+    }
+
+    /**
+     * Returns the constraint violation of the best position of the particle.
+     * @return total constraint violation, 0 if feasible.
+     */
+    public double getBestConstraintViolation()
+    {
+        return this.personal_best.getConstraintViolation();
+    }
+
+    /**
+     * Returns whether the personal best of this particle is better than that of
+     * another particle, by the feasibility rules of State.isBetter.
+     * @param other the other particle.
+     * @return true if this particle's personal best is better.
+     */
+    public boolean hasBetterBestThan(Particle other)
+    {
+        return personal_best.isBetterThan(other.getBestState());
+    }
+
     /**
      * Sets the best position of the particle.
      * @param best_position position vector.
@@ -164,7 +314,8 @@ public class Particle
     }
 
     /**
-     * Calls the moveParticle method of the particle's IMover.
+     * Calls the moveParticle method of the particle's IMover.  If the mover is an
+     * IInPlaceMover, it updates the buffers of the current state in place.
      * @param neighbors Java array of my neighbors.
      * @param current_iteration current iteration.
      * @param max_iterations max number of iterations.
@@ -172,8 +323,20 @@ public class Particle
     public void moveParticle(Particle[] neighbors, int current_iteration,
         int max_iterations)
     {
-        mover.moveParticle(current, personal_best, valueLimitSet, neighbors,
-            current_iteration, max_iterations);
+        if (mover instanceof IInPlaceMover)
+        {
+            ((IInPlaceMover) mover).moveInPlace(this.id,
+                current.getPositionBuffer(), current.getVelocityBuffer(),
+                personal_best.getPositionBuffer(), valueLimitSet, neighbors,
+                current_iteration, max_iterations);
+            current.positionChanged();
+            current.velocityChanged();
+        }
+        else
+        {
+            mover.moveParticle(current, personal_best, valueLimitSet, neighbors,
+                current_iteration, max_iterations);
+        }
     }
 
     /**
@@ -192,20 +355,29 @@ public class Particle
      * @return position vector.
      */
     public static Double[] getNeighborhoodBestPosition(Particle[] particles)
+    {
+        return getNeighborhoodBest(particles).getBestPosition();
+    }
+
+    /**
+     * Returns the particle with the best personal best amongst the neighbors of a
+     * particle.
+     *
+     * @param particles Java array of particles from which the best is to be determined.
+     * @return the most fit particle.
+     */
+    public static Particle getNeighborhoodBest(Particle[] particles)
     {
         //  Find most fit particle in neighborhood
-        double best_fitness = Double.MAX_VALUE;
-        Particle best = null;
+        Particle best = particles[0];
         for (Particle p : particles)
         {
-            if (p.getBestFitness() < best_fitness)
+            if (p.hasBetterBestThan(best))
             {
                 best = p;
-                best_fitness = p.getBestFitness();
             }
         }
 
-        //  return most fit particle's position
-        return best.getBestPosition();
+        return best;
     }
 }
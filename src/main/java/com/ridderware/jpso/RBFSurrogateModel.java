@@ -0,0 +1,284 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ *  Radial basis function surrogate model.  The model is a Gaussian-process style
+ *  interpolant with a Gaussian kernel and a constant mean, fitted to a bounded
+ *  window of the most recent samples.  Positions are scaled to the unit box of the
+ *  search space before the kernel is applied.
+ *
+ *  The Cholesky factor of the kernel matrix is extended one row at a time as
+ *  samples are added, so a refit costs O(n^2) rather than O(n^3).  When the window
+ *  is full the oldest quarter of the samples is dropped and the factor is rebuilt.
+ *
+ * @author Jeff Ridder
+ */
+public class RBFSurrogateModel implements ISurrogateModel
+{
+    private ValueLimitSet valueLimitSet;
+
+    private double lengthScale;
+
+    private double nugget;
+
+    private int capacity;
+
+    private double[][] samples;
+
+    private double[] fitness;
+
+    private double[][] cholesky;
+
+    private double[] alpha;
+
+    private double mean;
+
+    private int numSamples;
+
+    private boolean dirty;
+
+    /**
+     * Creates a new instance of RBFSurrogateModel
+     * @param valueLimitSet The search space, used to scale positions to the unit box.
+     * @param lengthScale Width of the Gaussian kernel in scaled units (e.g., 0.2).
+     * @param nugget Regularization added to the diagonal of the kernel matrix (e.g., 1.e-8).
+     * @param capacity Maximum number of samples in the model.
+     */
+    public RBFSurrogateModel(ValueLimitSet valueLimitSet, double lengthScale,
+        double nugget, int capacity)
+    {
+        this.valueLimitSet = valueLimitSet;
+        this.lengthScale = lengthScale;
+        this.nugget = nugget;
+        this.capacity = Math.max(4, capacity);
+
+        this.samples = new double[this.capacity][];
+        this.fitness = new double[this.capacity];
+        this.cholesky = new double[this.capacity][];
+        this.alpha = new double[this.capacity];
+        this.mean = 0.;
+        this.numSamples = 0;
+        this.dirty = false;
+    }
+
+    /**
+     * Adds an evaluated position to the model.  Positions that are numerically
+     * indistinguishable from a sample already in the model are ignored.
+     * @param position The evaluated position.
+     * @param fitness The fitness of the position.
+     */
+    public void addSample(Double[] position, double fitness)
+    {
+        if (Double.isNaN(fitness) || Double.isInfinite(fitness) ||
+            fitness == Double.MAX_VALUE)
+        {
+            return;
+        }
+
+        if (numSamples == capacity)
+        {
+            this.evict(capacity / 4);
+        }
+
+        this.addScaledSample(this.scale(position), fitness);
+    }
+
+    /**
+     * Predicts the fitness of a position.
+     * @param position The position to be predicted.
+     * @return The predicted fitness, or 0 if the model has no samples.
+     */
+    public double predict(Double[] position)
+    {
+        if (numSamples == 0)
+        {
+            return 0.;
+        }
+
+        if (dirty)
+        {
+            this.solve();
+        }
+
+        double[] x = this.scale(position);
+
+        double prediction = mean;
+        for (int i = 0; i < numSamples; i++)
+        {
+            prediction += alpha[i] * this.kernel(x, samples[i]);
+        }
+
+        return prediction;
+    }
+
+    /**
+     * Returns the number of samples the model is currently fitted to.
+     * @return number of samples.
+     */
+    public int getNumberOfSamples()
+    {
+        return this.numSamples;
+    }
+
+    /**
+     * Removes all samples.
+     */
+    public void clear()
+    {
+        this.samples = new double[capacity][];
+        this.fitness = new double[capacity];
+        this.cholesky = new double[capacity][];
+        this.mean = 0.;
+        this.numSamples = 0;
+        this.dirty = false;
+    }
+
+    /**
+     * Drops the oldest samples and rebuilds the Cholesky factor from the rest.
+     * @param count number of samples to drop.
+     */
+    private void evict(int count)
+    {
+        int kept = numSamples - count;
+        System.arraycopy(samples, count, samples, 0, kept);
+        System.arraycopy(fitness, count, fitness, 0, kept);
+
+        double[][] kept_samples = samples;
+        double[] kept_fitness = fitness;
+        this.samples = new double[capacity][];
+        this.fitness = new double[capacity];
+        this.numSamples = 0;
+
+        for (int i = 0; i < kept; i++)
+        {
+            this.addScaledSample(kept_samples[i], kept_fitness[i]);
+        }
+    }
+
+    /**
+     * Adds an already-scaled sample to the model.  Samples that would make the
+     * kernel matrix singular are dropped.
+     * @param x scaled position.
+     * @param f fitness.
+     */
+    private void addScaledSample(double[] x, double f)
+    {
+        //  Extend the Cholesky factor by one row
+        double[] row = new double[numSamples + 1];
+        double sum = 0.;
+        for (int i = 0; i < numSamples; i++)
+        {
+            double l = this.kernel(x, samples[i]);
+            for (int j = 0; j < i; j++)
+            {
+                l -= cholesky[i][j] * row[j];
+            }
+            l /= cholesky[i][i];
+            row[i] = l;
+            sum += l * l;
+        }
+
+        double diagonal = 1. + nugget - sum;
+        if (diagonal <= nugget)
+        {
+            return;
+        }
+        row[numSamples] = Math.sqrt(diagonal);
+
+        samples[numSamples] = x;
+        fitness[numSamples] = f;
+        cholesky[numSamples] = row;
+        numSamples++;
+        dirty = true;
+    }
+
+    /**
+     * Solves for the kernel weights by forward and back substitution.
+     */
+    private void solve()
+    {
+        mean = 0.;
+        for (int i = 0; i < numSamples; i++)
+        {
+            mean += fitness[i];
+        }
+        mean /= numSamples;
+
+        //  L z = y - mean
+        for (int i = 0; i < numSamples; i++)
+        {
+            double z = fitness[i] - mean;
+            for (int j = 0; j < i; j++)
+            {
+                z -= cholesky[i][j] * alpha[j];
+            }
+            alpha[i] = z / cholesky[i][i];
+        }
+
+        //  L^T alpha = z
+        for (int i = numSamples - 1; i >= 0; i--)
+        {
+            double a = alpha[i];
+            for (int j = i + 1; j < numSamples; j++)
+            {
+                a -= cholesky[j][i] * alpha[j];
+            }
+            alpha[i] = a / cholesky[i][i];
+        }
+
+        dirty = false;
+    }
+
+    /**
+     * Scales a position to the unit box of the search space.
+     * @param position position vector.
+     * @return scaled position.
+     */
+    private double[] scale(Double[] position)
+    {
+        double[] x = new double[position.length];
+        for (int i = 0; i < position.length; i++)
+        {
+            ValueLimits vLim = valueLimitSet.getValueLimits(i);
+            double range = vLim.getMaximum() - vLim.getMinimum();
+            x[i] = range > 0. ? (position[i] - vLim.getMinimum()) / range : 0.;
+        }
+
+        return x;
+    }
+
+    /**
+     * Returns the Gaussian kernel of two scaled positions.
+     * @param a scaled position.
+     * @param b scaled position.
+     * @return kernel value.
+     */
+    private double kernel(double[] a, double[] b)
+    {
+        double sum = 0.;
+        for (int i = 0; i < a.length; i++)
+        {
+            double diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+
+        return Math.exp(-sum / (2. * lengthScale * lengthScale));
+    }
+}
@@ -0,0 +1,570 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.apache.logging.log4j.*;
+
+/**
+ *  Tunes swarm configurations by racing (the F-Race of Birattari et al.).  The
+ *  candidates are run on a sequence of blocks, each a problem instance paired with
+ *  a seed.  After every block, once a minimum number of blocks has been seen, a
+ *  Friedman test on the ranks of the surviving candidates decides whether they
+ *  differ.  If they do, the candidates that are significantly worse than the best
+ *  in pairwise post-hoc comparisons are dropped, so the remaining budget is spent
+ *  on the promising ones.  With two survivors the Wilcoxon signed-rank test is used
+ *  instead.  All trials of a block run in parallel on an ExperimentRunner, and when
+ *  few candidates survive several blocks are run at once to keep every core busy.
+ *
+ * @author Jeff Ridder
+ */
+public class RaceTuner
+{
+    private ExperimentRunner runner;
+
+    private int numberOfThreads;
+
+    private int numberOfInstances;
+
+    private int iterations;
+
+    private int minBlocks;
+
+    private int maxTrials;
+
+    private double alpha;
+
+    private long firstSeed;
+
+    private int trials;
+
+    private final HashMap<IRaceCandidate, Double> meanFitness = new HashMap<IRaceCandidate, Double>();
+
+    private final static Logger logger = LogManager.getLogger(RaceTuner.class);
+
+    /**
+     * Creates a new instance of RaceTuner
+     * @param runner ExperimentRunner on which the trials are run.
+     * @param numberOfThreads Number of threads of the runner, used to decide how many blocks to run at once.
+     * @param numberOfInstances Number of problem instances; block k uses instance k modulo this number.
+     * @param iterations Number of iterations per trial.
+     * @param minBlocks Number of blocks run before the first test (e.g., 5).
+     * @param maxTrials Total budget of trials (one trial is one run of one candidate).
+     * @param alpha Significance level of the tests (e.g., 0.05).
+     * @param firstSeed Seed of the first block; block k uses firstSeed + k.
+     */
+    public RaceTuner(ExperimentRunner runner, int numberOfThreads,
+        int numberOfInstances, int iterations, int minBlocks, int maxTrials,
+        double alpha, long firstSeed)
+    {
+        this.runner = runner;
+        this.numberOfThreads = Math.max(1, numberOfThreads);
+        this.numberOfInstances = Math.max(1, numberOfInstances);
+        this.iterations = iterations;
+        this.minBlocks = Math.max(2, minBlocks);
+        this.maxTrials = maxTrials;
+        this.alpha = alpha;
+        this.firstSeed = firstSeed;
+        this.trials = 0;
+    }
+
+    /**
+     * Races the candidates until one survives or the budget is spent.
+     * @param candidates the candidate configurations.
+     * @return the surviving candidates, best mean rank first.
+     * @throws InterruptedException if interrupted while waiting for trials.
+     */
+    public List<IRaceCandidate> race(List<IRaceCandidate> candidates)
+        throws InterruptedException
+    {
+        int m = candidates.size();
+        boolean[] alive = new boolean[m];
+        Arrays.fill(alive, true);
+        int survivors = m;
+
+        ArrayList<double[]> blocks = new ArrayList<double[]>();
+        this.trials = 0;
+
+        while (survivors > 1 && trials + survivors <= maxTrials)
+        {
+            //  Run enough blocks at once to keep the threads busy
+            int batch = Math.max(1, numberOfThreads / survivors);
+            batch = Math.min(batch, (maxTrials - trials) / survivors);
+            if (blocks.size() < minBlocks)
+            {
+                batch = Math.max(batch, Math.min(minBlocks - blocks.size(),
+                    (maxTrials - trials) / survivors));
+            }
+
+            boolean[] submitted = alive.clone();
+            List<Future<RunResult>> futures = new ArrayList<Future<RunResult>>();
+            for (int b = 0; b < batch; b++)
+            {
+                final int instance = (blocks.size() + b) % numberOfInstances;
+                long seed = firstSeed + blocks.size() + b;
+                for (int c = 0; c < m; c++)
+                {
+                    if (alive[c])
+                    {
+                        final IRaceCandidate candidate = candidates.get(c);
+                        futures.add(runner.submit(candidate.getName(),
+                            new ISwarmFactory()
+                            {
+                                public Swarm createSwarm()
+                                {
+                                    return candidate.createSwarm(instance);
+                                }
+                            }, iterations, seed));
+                    }
+                }
+            }
+
+            int f = 0;
+            for (int b = 0; b < batch; b++)
+            {
+                double[] block = new double[m];
+                Arrays.fill(block, Double.NaN);
+                for (int c = 0; c < m; c++)
+                {
+                    if (submitted[c])
+                    {
+                        block[c] = getFitness(futures.get(f++));
+                        trials++;
+                    }
+                }
+                blocks.add(block);
+
+                if (survivors > 1 && blocks.size() >= minBlocks)
+                {
+                    survivors = this.eliminate(blocks, alive);
+                }
+            }
+
+            logger.info("Race: " + blocks.size() + " blocks, " + trials +
+                " trials, " + survivors + " survivors");
+        }
+
+        //  Order the survivors by mean rank over all blocks
+        final double[] ranks = getRankSums(blocks, alive);
+        List<Integer> order = new ArrayList<Integer>();
+        for (int c = 0; c < m; c++)
+        {
+            if (alive[c])
+            {
+                order.add(c);
+            }
+        }
+        Collections.sort(order, new Comparator<Integer>()
+        {
+            public int compare(Integer a, Integer b)
+            {
+                return Double.compare(ranks[a], ranks[b]);
+            }
+        });
+
+        meanFitness.clear();
+        List<IRaceCandidate> result = new ArrayList<IRaceCandidate>();
+        for (int c : order)
+        {
+            double mean = 0.;
+            for (double[] block : blocks)
+            {
+                mean += block[c];
+            }
+            meanFitness.put(candidates.get(c), blocks.isEmpty() ? Double.NaN :
+                mean / blocks.size());
+            result.add(candidates.get(c));
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of trials run by the last race.
+     * @return number of trials.
+     */
+    public int getNumberOfTrials()
+    {
+        return this.trials;
+    }
+
+    /**
+     * Returns the mean best fitness of a surviving candidate over the blocks of the
+     * last race.
+     * @param candidate a surviving candidate.
+     * @return mean fitness, or NaN if the candidate did not survive.
+     */
+    public double getMeanFitness(IRaceCandidate candidate)
+    {
+        Double mean = meanFitness.get(candidate);
+        return mean != null ? mean : Double.NaN;
+    }
+
+    /**
+     * Returns the fitness of a finished trial.  A failed trial scores the worst
+     * possible fitness.
+     * @param future the trial.
+     * @return best fitness found by the trial.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private double getFitness(Future<RunResult> future)
+        throws InterruptedException
+    {
+        try
+        {
+            return future.get().getBestFitness();
+        }
+        catch (ExecutionException e)
+        {
+            logger.error("Trial failed: " + e.getCause());
+            return Double.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Tests the surviving candidates and drops those that are significantly worse
+     * than the best.
+     * @param blocks fitness of each candidate on each block.
+     * @param alive flags of the surviving candidates, updated in place.
+     * @return number of survivors.
+     */
+    private int eliminate(List<double[]> blocks, boolean[] alive)
+    {
+        int n = blocks.size();
+        int m = 0;
+        for (boolean a : alive)
+        {
+            m += a ? 1 : 0;
+        }
+
+        if (m == 2)
+        {
+            return this.eliminatePair(blocks, alive);
+        }
+
+        double[] rank_sums = getRankSums(blocks, alive);
+
+        double a = 0.;
+        for (double[] block : blocks)
+        {
+            double[] ranks = getRanks(block, alive);
+            for (int c = 0; c < alive.length; c++)
+            {
+                if (alive[c])
+                {
+                    a += ranks[c] * ranks[c];
+                }
+            }
+        }
+        double cc = n * m * (m + 1) * (m + 1) / 4.;
+
+        if (a - cc <= 0.)
+        {
+            return m;
+        }
+
+        double t = 0.;
+        int best = -1;
+        for (int c = 0; c < alive.length; c++)
+        {
+            if (alive[c])
+            {
+                t += Math.pow(rank_sums[c] - n * (m + 1) / 2., 2.);
+                if (best < 0 || rank_sums[c] < rank_sums[best])
+                {
+                    best = c;
+                }
+            }
+        }
+        t *= (m - 1) / (a - cc);
+
+        if (t <= getChiSquareQuantile(1. - alpha, m - 1))
+        {
+            return m;
+        }
+
+        //  Conover's post-hoc comparison of every survivor with the best
+        double denominator = Math.sqrt(2. * n * (1. - t / (n * (m - 1.))) *
+            (a - cc) / ((n - 1.) * (m - 1.)));
+        double critical = getStudentTQuantile(1. - alpha / 2., (n - 1) * (m - 1));
+
+        int survivors = 0;
+        for (int c = 0; c < alive.length; c++)
+        {
+            if (alive[c] && c != best)
+            {
+                double difference = rank_sums[c] - rank_sums[best];
+                if (denominator <= 0. ? difference > 0. :
+                    difference / denominator > critical)
+                {
+                    alive[c] = false;
+                }
+            }
+            survivors += alive[c] ? 1 : 0;
+        }
+
+        return survivors;
+    }
+
+    /**
+     * Compares the last two survivors with the Wilcoxon signed-rank test and drops
+     * the worse one if the difference is significant.
+     * @param blocks fitness of each candidate on each block.
+     * @param alive flags of the surviving candidates, updated in place.
+     * @return number of survivors.
+     */
+    private int eliminatePair(List<double[]> blocks, boolean[] alive)
+    {
+        int first = -1;
+        int second = -1;
+        for (int c = 0; c < alive.length; c++)
+        {
+            if (alive[c])
+            {
+                if (first < 0)
+                {
+                    first = c;
+                }
+                else
+                {
+                    second = c;
+                }
+            }
+        }
+
+        double[] differences = new double[blocks.size()];
+        int n = 0;
+        for (double[] block : blocks)
+        {
+            double d = block[first] - block[second];
+            if (d != 0.)
+            {
+                differences[n++] = d;
+            }
+        }
+
+        if (n == 0)
+        {
+            return 2;
+        }
+
+        double[] magnitudes = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            magnitudes[i] = Math.abs(differences[i]);
+        }
+        double[] ranks = getRanks(magnitudes);
+
+        double w = 0.;
+        for (int i = 0; i < n; i++)
+        {
+            if (differences[i] > 0.)
+            {
+                w += ranks[i];
+            }
+        }
+
+        double z = (w - n * (n + 1) / 4.) /
+            Math.sqrt(n * (n + 1) * (2 * n + 1) / 24.);
+
+        if (Math.abs(z) > getNormalQuantile(1. - alpha / 2.))
+        {
+            //  A large W means the first candidate is usually worse
+            alive[z > 0. ? first : second] = false;
+            return 1;
+        }
+
+        return 2;
+    }
+
+    /**
+     * Returns the sum over all blocks of the rank of each surviving candidate.
+     * @param blocks fitness of each candidate on each block.
+     * @param alive flags of the surviving candidates.
+     * @return rank sums, indexed by candidate.
+     */
+    private static double[] getRankSums(List<double[]> blocks, boolean[] alive)
+    {
+        double[] sums = new double[alive.length];
+        for (double[] block : blocks)
+        {
+            double[] ranks = getRanks(block, alive);
+            for (int c = 0; c < alive.length; c++)
+            {
+                sums[c] += ranks[c];
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Ranks the surviving candidates on one block, lowest fitness first, with tied
+     * candidates sharing the average of their ranks.
+     * @param block fitness of each candidate.
+     * @param alive flags of the surviving candidates.
+     * @return ranks, indexed by candidate, zero for candidates not alive.
+     */
+    private static double[] getRanks(double[] block, boolean[] alive)
+    {
+        int m = 0;
+        for (boolean a : alive)
+        {
+            m += a ? 1 : 0;
+        }
+
+        double[] values = new double[m];
+        int[] index = new int[m];
+        for (int c = 0, k = 0; c < alive.length; c++)
+        {
+            if (alive[c])
+            {
+                values[k] = block[c];
+                index[k++] = c;
+            }
+        }
+
+        double[] compact = getRanks(values);
+        double[] ranks = new double[alive.length];
+        for (int k = 0; k < m; k++)
+        {
+            ranks[index[k]] = compact[k];
+        }
+        return ranks;
+    }
+
+    /**
+     * Ranks values, lowest first, with tied values sharing the average of their ranks.
+     * @param values the values.
+     * @return ranks starting at 1.
+     */
+    private static double[] getRanks(final double[] values)
+    {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            public int compare(Integer a, Integer b)
+            {
+                return Double.compare(values[a], values[b]);
+            }
+        });
+
+        double[] ranks = new double[values.length];
+        int i = 0;
+        while (i < order.length)
+        {
+            int j = i;
+            while (j + 1 < order.length &&
+                values[order[j + 1]] == values[order[i]])
+            {
+                j++;
+            }
+
+            double rank = (i + j) / 2. + 1.;
+            for (int k = i; k <= j; k++)
+            {
+                ranks[order[k]] = rank;
+            }
+            i = j + 1;
+        }
+        return ranks;
+    }
+
+    /**
+     * Returns a quantile of the standard normal distribution (algorithm of Acklam).
+     * @param p probability.
+     * @return the quantile.
+     */
+    static double getNormalQuantile(double p)
+    {
+        final double[] a = { -3.969683028665376e+01, 2.209460984245205e+02,
+            -2.759285104469687e+02, 1.383577518672690e+02,
+            -3.066479806614716e+01, 2.506628277459239e+00 };
+        final double[] b = { -5.447609879822406e+01, 1.615858368580409e+02,
+            -1.556989798598866e+02, 6.680131188771972e+01,
+            -1.328068155288572e+01 };
+        final double[] c = { -7.784894002430293e-03, -3.223964580411365e-01,
+            -2.400758277161838e+00, -2.549732539343734e+00,
+            4.374664141464968e+00, 2.938163982698783e+00 };
+        final double[] d = { 7.784695709041462e-03, 3.224671290700398e-01,
+            2.445134137142996e+00, 3.754408661907416e+00 };
+
+        if (p < 0.02425)
+        {
+            double q = Math.sqrt(-2. * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5]) /
+                ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1.);
+        }
+        else if (p > 1. - 0.02425)
+        {
+            return -getNormalQuantile(1. - p);
+        }
+
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q /
+            (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1.);
+    }
+
+    /**
+     * Returns a quantile of the chi-square distribution (approximation of Wilson and
+     * Hilferty).
+     * @param p probability.
+     * @param df degrees of freedom.
+     * @return the quantile.
+     */
+    static double getChiSquareQuantile(double p, int df)
+    {
+        double z = getNormalQuantile(p);
+        double h = 2. / (9. * df);
+        return df * Math.pow(1. - h + z * Math.sqrt(h), 3.);
+    }
+
+    /**
+     * Returns a quantile of Student's t distribution (Cornish-Fisher expansion).
+     * @param p probability.
+     * @param df degrees of freedom.
+     * @return the quantile.
+     */
+    static double getStudentTQuantile(double p, int df)
+    {
+        double z = getNormalQuantile(p);
+        double z3 = z * z * z;
+        double z5 = z3 * z * z;
+        double z7 = z5 * z * z;
+        double z9 = z7 * z * z;
+        double v = Math.max(1, df);
+
+        return z + (z3 + z) / (4. * v) +
+            (5. * z5 + 16. * z3 + 3. * z) / (96. * v * v) +
+            (3. * z7 + 19. * z5 + 17. * z3 - 15. * z) / (384. * v * v * v) +
+            (79. * z9 + 776. * z7 + 1482. * z5 - 1920. * z3 - 945. * z) /
+            (92160. * v * v * v * v);
+    }
+}
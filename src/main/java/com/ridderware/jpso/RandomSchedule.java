@@ -0,0 +1,97 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ *  A parameter drawn uniformly at random each iteration, as the random inertia
+ *  weight of Eberhart and Shi, which suits dynamic problems.  Each particle may
+ *  draw its own value.
+ *
+ * @author Jeff Ridder
+ */
+public class RandomSchedule implements IParameterSchedule
+{
+    private double minimum;
+
+    private double maximum;
+
+    private boolean perParticle;
+
+    private double value;
+
+    private double[] values;
+
+    /**
+     * Creates a new instance of RandomSchedule
+     * @param minimum Smallest value.
+     * @param maximum Largest value.
+     * @param perParticle If true, each particle draws its own value.
+     */
+    public RandomSchedule(double minimum, double maximum, boolean perParticle)
+    {
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.perParticle = perParticle;
+        this.value = 0.5 * (minimum + maximum);
+        this.values = new double[0];
+    }
+
+    /**
+     * Draws the values for an iteration.
+     * @param swarm the swarm whose particles are about to move.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    public void update(Swarm swarm, int current_iteration, int max_iterations)
+    {
+        this.value = this.draw();
+
+        if (this.perParticle)
+        {
+            int n = swarm.getParticles().length;
+            if (this.values.length != n)
+            {
+                this.values = new double[n];
+            }
+            for (int i = 0; i < n; i++)
+            {
+                this.values[i] = this.draw();
+            }
+        }
+    }
+
+    /**
+     * Returns the value for a particle in the current iteration.
+     * @param pid ID of the particle, or -1 if it is not known.
+     * @return the particle's value, or the value shared by all particles.
+     */
+    public double getValue(int pid)
+    {
+        return pid >= 0 && pid < this.values.length ? this.values[pid] : this.value;
+    }
+
+    /**
+     * Draws a value.
+     * @return the value.
+     */
+    private double draw()
+    {
+        return minimum + RandomSource.getInstance().nextDouble() * (maximum - minimum);
+    }
+}
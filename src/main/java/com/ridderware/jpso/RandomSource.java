@@ -0,0 +1,78 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import com.ridderware.jrandom.MersenneTwisterFast;
+
+/**
+ *  Source of the random number generators used by particles and movers.  By
+ *  default every thread shares the MersenneTwisterFast singleton, but a thread may
+ *  be given its own generator so that swarms running concurrently draw from
+ *  isolated, reproducible streams.
+ *
+ * @author Jeff Ridder
+ */
+public final class RandomSource
+{
+    private static final ThreadLocal<MersenneTwisterFast> threadInstance =
+        new ThreadLocal<MersenneTwisterFast>();
+
+    /**
+     * Not instantiable.
+     */
+    private RandomSource()
+    {
+    }
+
+    /**
+     * Returns the random number generator for the calling thread.
+     * @return the thread's own generator if one has been set, otherwise the shared singleton.
+     */
+    public static MersenneTwisterFast getInstance()
+    {
+        MersenneTwisterFast random = threadInstance.get();
+        return random != null ? random : MersenneTwisterFast.getInstance();
+    }
+
+    /**
+     * Returns the generator set for the calling thread, so that a caller replacing it
+     * for a while can restore it afterwards.
+     * @return the thread's own generator, or null if the thread uses the shared singleton.
+     */
+    public static MersenneTwisterFast getThreadInstance()
+    {
+        return threadInstance.get();
+    }
+
+    /**
+     * Sets the random number generator for the calling thread.
+     * @param random the generator, or null to return the thread to the shared singleton.
+     */
+    public static void setThreadInstance(MersenneTwisterFast random)
+    {
+        if (random == null)
+        {
+            threadInstance.remove();
+        }
+        else
+        {
+            threadInstance.set(random);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ *  The outcome of one run of an experiment.
+ *
+ * @author Jeff Ridder
+ */
+public class RunResult
+{
+    private String name;
+
+    private long seed;
+
+    private double bestFitness;
+
+    private double bestConstraintViolation;
+
+    private Double[] bestPosition;
+
+    private double[] convergence;
+
+    private long evaluations;
+
+    private long elapsedMillis;
+
+    /**
+     * Creates a new instance of RunResult
+     * @param name Name of the configuration that was run.
+     * @param seed Seed of the run's random number stream.
+     * @param bestFitness Best fitness found.
+     * @param bestConstraintViolation Constraint violation of the best found, 0 if it is feasible.
+     * @param bestPosition Position of the best fitness found.
+     * @param convergence Best-so-far fitness at the end of each iteration.
+     * @param evaluations Number of fitness evaluations performed.
+     * @param elapsedMillis Wall-clock duration of the run in milliseconds.
+     */
+    public RunResult(String name, long seed, double bestFitness,
+        double bestConstraintViolation, Double[] bestPosition, double[] convergence, long evaluations,
+        long elapsedMillis)
+    {
+        this.name = name;
+        this.seed = seed;
+        this.bestFitness = bestFitness;
+        this.bestConstraintViolation = bestConstraintViolation;
+        this.bestPosition = bestPosition;
+        this.convergence = convergence;
+        this.evaluations = evaluations;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Returns the name of the configuration that was run.
+     * @return configuration name.
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Returns the seed of the run's random number stream.
+     * @return seed.
+     */
+    public long getSeed()
+    {
+        return this.seed;
+    }
+
+    /**
+     * Returns the best fitness found.
+     * @return best fitness.
+     */
+    public double getBestFitness()
+    {
+        return this.bestFitness;
+    }
+
+    /**
+     * Returns the constraint violation of the best found.
+     * @return the violation, 0 if it is feasible.
+     */
+    public double getBestConstraintViolation()
+    {
+        return this.bestConstraintViolation;
+    }
+
+    /**
+     * Returns whether this run is better than another by the feasibility rules of
+     * State.isBetter.
+     * @param other the other run.
+     * @return true if this run found the better best.
+     */
+    public boolean isBetterThan(RunResult other)
+    {
+        return State.isBetter(this.bestFitness, this.bestConstraintViolation,
+            other.bestFitness, other.bestConstraintViolation);
+    }
+
+    /**
+     * Returns the position of the best fitness found.
+     * @return position vector.
+     */
+    public Double[] getBestPosition()
+    {
+        return this.bestPosition;
+    }
+
+    /**
+     * Returns the best-so-far fitness at the end of each iteration.
+     * @return convergence curve.
+     */
+    public double[] getConvergence()
+    {
+        return this.convergence;
+    }
+
+    /**
+     * Returns the number of fitness evaluations performed.
+     * @return number of evaluations.
+     */
+    public long getNumberOfEvaluations()
+    {
+        return this.evaluations;
+    }
+
+    /**
+     * Returns the wall-clock duration of the run.
+     * @return duration in milliseconds.
+     */
+    public long getElapsedMillis()
+    {
+        return this.elapsedMillis;
+    }
+}
@@ -0,0 +1,208 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.logging.log4j.*;
+
+/**
+ *  Places the first particles at supplied points, such as good designs already
+ *  known, and the rest by another initializer.  Each point is clamped to the range
+ *  of each dimension and rounded to a value the variable can take.  Points of the
+ *  wrong size are skipped, and if there are more points than particles, the first
+ *  are used.  To warm-start a swarm, the points may be read from the personal bests
+ *  or evaluation archive of an earlier run.  Seeding only part of the swarm, and
+ *  placing the rest with another initializer, keeps it diverse enough to follow an
+ *  objective that has since changed.
+ *
+ * @author Jeff Ridder
+ */
+public class SeededInitializer implements IInitializer
+{
+    private final List<Double[]> points = new ArrayList<Double[]>();
+
+    private IInitializer initializer;
+
+    private ValueLimitSet valueLimitSet;
+
+    private final List<Double[]> seeds = new ArrayList<Double[]>();
+
+    private final static Logger logger = LogManager.getLogger(SeededInitializer.class);
+
+    /**
+     * Creates a new instance of SeededInitializer
+     * @param points the points at which particles are placed.
+     * @param initializer initializer of the particles beyond the points.
+     */
+    public SeededInitializer(List<Double[]> points, IInitializer initializer)
+    {
+        this.points.addAll(points);
+        this.initializer = initializer;
+        this.valueLimitSet = null;
+    }
+
+    /**
+     * Reads points written by Swarm.exportPersonalBests or EvaluationArchive.export,
+     * one per line as tab-separated fitness, constraint violation and position
+     * values.  The points are ordered by the feasibility rules of State.isBetter, so
+     * feasible points are seeded ahead of infeasible ones.
+     * @param file the file to read.
+     * @param count maximum number of points, or 0 for all.
+     * @return the points, best first, or null if there was an IOException.
+     */
+    public static List<Double[]> read(File file, int count)
+    {
+        final List<double[]> rows = new ArrayList<double[]>();
+
+        try
+        {
+            BufferedReader inFile = new BufferedReader(new FileReader(file));
+            String line;
+            while ((line = inFile.readLine()) != null)
+            {
+                line = line.trim();
+                if (line.isEmpty())
+                {
+                    continue;
+                }
+
+                String[] fields = line.split("\\s+");
+                if (fields.length < 3)
+                {
+                    logger.error("Skipping line without fitness, violation and position: " +
+                        line);
+                    continue;
+                }
+                double[] row = new double[fields.length];
+                for (int i = 0; i < fields.length; i++)
+                {
+                    row[i] = Double.parseDouble(fields[i]);
+                }
+                rows.add(row);
+            }
+            inFile.close();
+        }
+        catch (IOException e)
+        {
+            logger.error("ERROR - Could not read from file: " +
+                file.getAbsolutePath());
+            logger.error("IO Exception: " + e);
+            return null;
+        }
+        catch (NumberFormatException e)
+        {
+            logger.error("ERROR - Invalid number in file: " +
+                file.getAbsolutePath());
+            logger.error("Number Format Exception: " + e);
+            return null;
+        }
+
+        Collections.sort(rows, new Comparator<double[]>()
+        {
+            public int compare(double[] a, double[] b)
+            {
+                if (State.isBetter(a[0], a[1], b[0], b[1]))
+                {
+                    return -1;
+                }
+                return State.isBetter(b[0], b[1], a[0], a[1]) ? 1 : 0;
+            }
+        });
+
+        List<Double[]> points = new ArrayList<Double[]>();
+        for (double[] row : rows)
+        {
+            if (count > 0 && points.size() >= count)
+            {
+                break;
+            }
+
+            Double[] point = new Double[row.length - 2];
+            for (int i = 0; i < point.length; i++)
+            {
+                point[i] = row[i + 2];
+            }
+            points.add(point);
+        }
+
+        return points;
+    }
+
+    /**
+     * Returns the supplied points.
+     * @return list of position vectors.
+     */
+    public List<Double[]> getPoints()
+    {
+        return this.points;
+    }
+
+    /**
+     * Prepares the other initializer for the particles beyond the points.
+     * @param numberOfParticles number of particles to be initialized.
+     * @param valueLimitSet the search space.
+     */
+    public void prepare(int numberOfParticles, ValueLimitSet valueLimitSet)
+    {
+        this.valueLimitSet = valueLimitSet;
+
+        this.seeds.clear();
+        for (int i = 0; i < this.points.size() && this.seeds.size() < numberOfParticles; i++)
+        {
+            if (this.points.get(i).length != valueLimitSet.getSize())
+            {
+                logger.error("Point " + i + " has " + this.points.get(i).length +
+                    " dimensions, expected " + valueLimitSet.getSize());
+                continue;
+            }
+            this.seeds.add(this.points.get(i));
+        }
+
+        this.initializer.prepare(numberOfParticles - this.seeds.size(), valueLimitSet);
+    }
+
+    /**
+     * Fills the position of a particle with its point, or by the other initializer.
+     * @param index index of the particle.
+     * @param position buffer holding the position, to be filled in place.
+     */
+    public void initializePosition(int index, double[] position)
+    {
+        if (index >= this.seeds.size())
+        {
+            this.initializer.initializePosition(index - this.seeds.size(), position);
+            return;
+        }
+
+        Double[] point = this.seeds.get(index);
+        for (int d = 0; d < position.length; d++)
+        {
+            ValueLimits vLim = this.valueLimitSet.getValueLimits(d);
+            position[d] = vLim.round(Math.max(vLim.getMinimum(),
+                Math.min(vLim.getMaximum(), point[d])));
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import com.ridderware.jrandom.MersenneTwisterFast;
+
+/**
+ *  Initializes the particles at the points of a Sobol sequence, a digital
+ *  sequence in base 2 whose first 2^k points are evenly spread in each dimension
+ *  and, for good direction numbers, in projections onto several dimensions.  The
+ *  first point, at the origin, is skipped.  The direction numbers of the first 21
+ *  dimensions are those of Joe and Kuo; further dimensions use the next primitive
+ *  polynomials with random initial direction numbers from a fixed seed, so the
+ *  sequence is still a valid Sobol sequence but less evenly spread in projections.
+ *  Each point is computed directly from its index in Gray code order, so particles
+ *  may be initialized in any order.  If randomized, each dimension is given a random
+ *  digital shift, which keeps the evenness but varies the points from run to run.
+ *
+ * @author Jeff Ridder
+ */
+public class SobolInitializer implements IInitializer
+{
+    /**
+     * Degree s, coefficients a and initial direction numbers m of the primitive
+     * polynomials of dimensions 2 to 21, from the tables of Joe and Kuo.
+     */
+    private static final int[][] JOE_KUO =
+    {
+        { 1, 0, 1 },
+        { 2, 1, 1, 3 },
+        { 3, 1, 1, 3, 1 },
+        { 3, 2, 1, 1, 1 },
+        { 4, 1, 1, 1, 3, 3 },
+        { 4, 4, 1, 3, 5, 13 },
+        { 5, 2, 1, 1, 5, 5, 17 },
+        { 5, 4, 1, 1, 5, 5, 5 },
+        { 5, 7, 1, 1, 7, 11, 19 },
+        { 5, 11, 1, 1, 5, 1, 1 },
+        { 5, 13, 1, 1, 1, 3, 11 },
+        { 5, 14, 1, 3, 5, 5, 31 },
+        { 6, 1, 1, 3, 3, 9, 7, 49 },
+        { 6, 13, 1, 1, 1, 15, 21, 21 },
+        { 6, 16, 1, 3, 1, 13, 27, 49 },
+        { 6, 19, 1, 1, 1, 15, 7, 5 },
+        { 6, 22, 1, 3, 1, 15, 13, 25 },
+        { 6, 25, 1, 1, 5, 5, 19, 61 },
+        { 7, 1, 1, 3, 7, 11, 23, 15, 103 },
+        { 7, 4, 1, 3, 7, 13, 13, 15, 69 }
+    };
+
+    /**
+     * Number of bits of each coordinate.
+     */
+    private static final int BITS = 32;
+
+    /**
+     * Seed of the initial direction numbers of dimensions beyond the tables.
+     */
+    private static final long DIRECTION_SEED = 5489L;
+
+    private boolean randomized;
+
+    private ValueLimitSet valueLimitSet;
+
+    private int[][] directions;
+
+    private int[] shifts;
+
+    /**
+     * Creates a new instance of SobolInitializer
+     * @param randomized if true, the points are given a random digital shift along each dimension.
+     */
+    public SobolInitializer(boolean randomized)
+    {
+        this.randomized = randomized;
+        this.valueLimitSet = null;
+        this.directions = null;
+        this.shifts = null;
+    }
+
+    /**
+     * Computes the direction numbers of each dimension, and draws the shifts if
+     * randomized.
+     * @param numberOfParticles number of particles to be initialized.
+     * @param valueLimitSet the search space.
+     */
+    public void prepare(int numberOfParticles, ValueLimitSet valueLimitSet)
+    {
+        int dimensions = valueLimitSet.getSize();
+
+        this.valueLimitSet = valueLimitSet;
+        this.directions = new int[dimensions][BITS];
+        this.shifts = new int[dimensions];
+
+        //  The first dimension is the van der Corput sequence
+        for (int j = 0; j < BITS && dimensions > 0; j++)
+        {
+            this.directions[0][j] = 1 << (BITS - 1 - j);
+        }
+
+        MersenneTwisterFast random = new MersenneTwisterFast(DIRECTION_SEED);
+        int degree = JOE_KUO[JOE_KUO.length - 1][0];
+        int coefficients = JOE_KUO[JOE_KUO.length - 1][1];
+
+        for (int d = 1; d < dimensions; d++)
+        {
+            int[] m;
+            if (d <= JOE_KUO.length)
+            {
+                degree = JOE_KUO[d - 1][0];
+                coefficients = JOE_KUO[d - 1][1];
+                m = new int[degree];
+                System.arraycopy(JOE_KUO[d - 1], 2, m, 0, degree);
+            }
+            else
+            {
+                //  Find the next primitive polynomial, and choose odd m_k < 2^k
+                do
+                {
+                    coefficients++;
+                    if (coefficients >= 1 << (degree - 1))
+                    {
+                        degree++;
+                        coefficients = 0;
+                    }
+                }
+                while (!isPrimitive(degree, coefficients));
+
+                m = new int[degree];
+                for (int k = 0; k < degree; k++)
+                {
+                    m[k] = (random.nextInt(1 << k) << 1) | 1;
+                }
+            }
+
+            int[] v = this.directions[d];
+            for (int j = 0; j < BITS; j++)
+            {
+                if (j < degree)
+                {
+                    v[j] = m[j] << (BITS - 1 - j);
+                }
+                else
+                {
+                    v[j] = v[j - degree] ^ (v[j - degree] >>> degree);
+                    for (int k = 1; k < degree; k++)
+                    {
+                        if (((coefficients >>> (degree - 1 - k)) & 1) != 0)
+                        {
+                            v[j] ^= v[j - k];
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int d = 0; d < dimensions; d++)
+        {
+            this.shifts[d] = this.randomized ? RandomSource.getInstance().nextInt() : 0;
+        }
+    }
+
+    /**
+     * Fills the position of a particle with the point of the sequence at its index.
+     * @param index index of the particle.
+     * @param position buffer holding the position, to be filled in place.
+     */
+    public void initializePosition(int index, double[] position)
+    {
+        long n = index + 1L;
+        long gray = n ^ (n >>> 1);
+
+        for (int d = 0; d < position.length; d++)
+        {
+            int x = this.shifts[d];
+            for (int j = 0; j < BITS; j++)
+            {
+                if (((gray >>> j) & 1L) != 0)
+                {
+                    x ^= this.directions[d][j];
+                }
+            }
+
+            double u = (x & 0xffffffffL) / 4294967296.;
+            position[d] = this.valueLimitSet.getValueLimits(d).scale(u);
+        }
+    }
+
+    /**
+     * Returns whether the polynomial x^s + a_1 x^(s-1) + ... + a_(s-1) x + 1 over
+     * GF(2) is primitive, that is whether x has order 2^s - 1 modulo it.
+     * @param degree degree s.
+     * @param coefficients the bits a_1 ... a_(s-1), with a_1 the most significant.
+     * @return true if primitive.
+     */
+    private static boolean isPrimitive(int degree, int coefficients)
+    {
+        long polynomial = (1L << degree) | ((long) coefficients << 1) | 1L;
+        long order = (1L << degree) - 1;
+
+        if (powerOfX(order, polynomial, degree) != 1L)
+        {
+            return false;
+        }
+
+        long n = order;
+        for (long f = 2; f * f <= n; f++)
+        {
+            if (n % f == 0)
+            {
+                if (powerOfX(order / f, polynomial, degree) == 1L)
+                {
+                    return false;
+                }
+                while (n % f == 0)
+                {
+                    n /= f;
+                }
+            }
+        }
+
+        return n == 1 || powerOfX(order / n, polynomial, degree) != 1L;
+    }
+
+    /**
+     * Returns x^e modulo a polynomial over GF(2).
+     * @param e the exponent.
+     * @param polynomial the polynomial, as bits.
+     * @param degree degree of the polynomial.
+     * @return the remainder, as bits.
+     */
+    private static long powerOfX(long e, long polynomial, int degree)
+    {
+        long result = 1L;
+        long square = reduce(2L, polynomial, degree);
+        while (e > 0)
+        {
+            if ((e & 1L) != 0)
+            {
+                result = multiply(result, square, polynomial, degree);
+            }
+            square = multiply(square, square, polynomial, degree);
+            e >>>= 1;
+        }
+        return result;
+    }
+
+    /**
+     * Multiplies two polynomials over GF(2) modulo a third.
+     * @param a first polynomial, of lower degree than the modulus.
+     * @param b second polynomial, of lower degree than the modulus.
+     * @param polynomial the modulus.
+     * @param degree degree of the modulus.
+     * @return the product, as bits.
+     */
+    private static long multiply(long a, long b, long polynomial, int degree)
+    {
+        long product = 0L;
+        while (b != 0)
+        {
+            if ((b & 1L) != 0)
+            {
+                product ^= a;
+            }
+            b >>>= 1;
+            a = reduce(a << 1, polynomial, degree);
+        }
+        return product;
+    }
+
+    /**
+     * Reduces a polynomial of degree at most that of the modulus.
+     * @param a the polynomial, as bits.
+     * @param polynomial the modulus.
+     * @param degree degree of the modulus.
+     * @return the remainder, as bits.
+     */
+    private static long reduce(long a, long polynomial, int degree)
+    {
+        return ((a >>> degree) & 1L) != 0 ? a ^ polynomial : a;
+    }
+}
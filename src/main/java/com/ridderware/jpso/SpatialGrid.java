@@ -0,0 +1,462 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import java.util.HashMap;
+
+/**
+ *  A grid hash over the search space for fast neighbor queries.  Points are
+ *  identified by non-negative integer IDs chosen by the caller.  The grid is laid
+ *  over at most three dimensions of the ValueLimitSet box; queries use the grid to
+ *  prune candidates and then compute full Euclidean distances over every dimension,
+ *  so results are exact for any number of dimensions.
+ *
+ * @author Jeff Ridder
+ */
+public class SpatialGrid
+{
+    /**
+     * Maximum number of dimensions the grid is laid over.
+     */
+    public static final int MAX_GRID_DIMENSIONS = 3;
+
+    private double[] minimum;
+
+    private double[] cellWidth;
+
+    private int gridDimensions;
+
+    private int cellsPerDimension;
+
+    private final HashMap<Long, Cell> cells = new HashMap<Long, Cell>();
+
+    private double[][] points;
+
+    private int size;
+
+    /**
+     *  The IDs of the points in one cell.
+     */
+    private static class Cell
+    {
+        int[] ids = new int[4];
+
+        int count = 0;
+    }
+
+    /**
+     * Creates a new instance of SpatialGrid
+     * @param valueLimitSet The search space.
+     * @param cellsPerDimension Number of grid cells along each gridded dimension.
+     */
+    public SpatialGrid(ValueLimitSet valueLimitSet, int cellsPerDimension)
+    {
+        this.gridDimensions = Math.min(MAX_GRID_DIMENSIONS, valueLimitSet.getSize());
+        this.cellsPerDimension = Math.max(1, cellsPerDimension);
+        this.minimum = new double[gridDimensions];
+        this.cellWidth = new double[gridDimensions];
+
+        for (int i = 0; i < gridDimensions; i++)
+        {
+            ValueLimits vLim = valueLimitSet.getValueLimits(i);
+            minimum[i] = vLim.getMinimum();
+            cellWidth[i] = (vLim.getMaximum() - vLim.getMinimum()) /
+                this.cellsPerDimension;
+            if (cellWidth[i] <= 0.)
+            {
+                cellWidth[i] = 1.;
+            }
+        }
+
+        this.points = new double[16][];
+        this.size = 0;
+    }
+
+    /**
+     * Inserts a point.
+     * @param id ID of the point.
+     * @param position position of the point.  The array is kept, not copied.
+     */
+    public void insert(int id, double[] position)
+    {
+        if (id >= points.length)
+        {
+            double[][] grown = new double[Math.max(id + 1, 2 * points.length)][];
+            System.arraycopy(points, 0, grown, 0, points.length);
+            points = grown;
+        }
+
+        points[id] = position;
+
+        Long key = getKey(position);
+        Cell cell = cells.get(key);
+        if (cell == null)
+        {
+            cell = new Cell();
+            cells.put(key, cell);
+        }
+
+        if (cell.count == cell.ids.length)
+        {
+            int[] grown = new int[2 * cell.count];
+            System.arraycopy(cell.ids, 0, grown, 0, cell.count);
+            cell.ids = grown;
+        }
+        cell.ids[cell.count++] = id;
+        size++;
+    }
+
+    /**
+     * Removes a point.
+     * @param id ID of the point.
+     */
+    public void remove(int id)
+    {
+        if (id >= points.length || points[id] == null)
+        {
+            return;
+        }
+
+        Long key = getKey(points[id]);
+        Cell cell = cells.get(key);
+        for (int i = 0; i < cell.count; i++)
+        {
+            if (cell.ids[i] == id)
+            {
+                cell.ids[i] = cell.ids[--cell.count];
+                break;
+            }
+        }
+
+        if (cell.count == 0)
+        {
+            cells.remove(key);
+        }
+
+        points[id] = null;
+        size--;
+    }
+
+    /**
+     * Removes all points.
+     */
+    public void clear()
+    {
+        cells.clear();
+        for (int i = 0; i < points.length; i++)
+        {
+            points[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the number of points in the grid.
+     * @return number of points.
+     */
+    public int getSize()
+    {
+        return this.size;
+    }
+
+    /**
+     * Returns the position of a point.
+     * @param id ID of the point.
+     * @return position, or null if there is no such point.
+     */
+    public double[] getPosition(int id)
+    {
+        return id < points.length ? points[id] : null;
+    }
+
+    /**
+     * Returns the ID of the point nearest to a position.
+     * @param position the query position.
+     * @return ID of the nearest point, or -1 if the grid is empty.
+     */
+    public int getNearest(double[] position)
+    {
+        if (size == 0)
+        {
+            return -1;
+        }
+
+        int[] center = getCell(position);
+
+        double min_width = Double.MAX_VALUE;
+        for (int i = 0; i < gridDimensions; i++)
+        {
+            min_width = Math.min(min_width, cellWidth[i]);
+        }
+
+        int best = -1;
+        double best_distance = Double.MAX_VALUE;
+
+        //  Search outward in rings of cells until no closer point can exist
+        for (int ring = 0; ring <= cellsPerDimension; ring++)
+        {
+            if (Math.pow(2 * ring + 1, gridDimensions) > cells.size())
+            {
+                //  Cheaper to visit the remaining occupied cells directly
+                for (Cell cell : cells.values())
+                {
+                    for (int k = 0; k < cell.count; k++)
+                    {
+                        double d = getDistance(position, points[cell.ids[k]]);
+                        if (d < best_distance)
+                        {
+                            best_distance = d;
+                            best = cell.ids[k];
+                        }
+                    }
+                }
+                break;
+            }
+
+            int[] ranges = new int[2 * gridDimensions];
+            for (int i = 0; i < gridDimensions; i++)
+            {
+                ranges[2 * i] = center[i] - ring;
+                ranges[2 * i + 1] = center[i] + ring;
+            }
+
+            int[] index = new int[gridDimensions];
+            boolean more = startCells(ranges, index);
+            while (more)
+            {
+                if (isOnRing(index, center, ring))
+                {
+                    Cell cell = cells.get(getKey(index));
+                    if (cell != null)
+                    {
+                        for (int k = 0; k < cell.count; k++)
+                        {
+                            double d = getDistance(position, points[cell.ids[k]]);
+                            if (d < best_distance)
+                            {
+                                best_distance = d;
+                                best = cell.ids[k];
+                            }
+                        }
+                    }
+                }
+                more = nextCell(ranges, index);
+            }
+
+            if (best >= 0 && best_distance <= ring * min_width)
+            {
+                break;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Returns the IDs of all points within a distance of a position.
+     * @param position the query position.
+     * @param radius the distance.
+     * @return IDs of the points.
+     */
+    public int[] getWithinRadius(double[] position, double radius)
+    {
+        int[] found = new int[8];
+        int count = 0;
+
+        int[] ranges = new int[2 * gridDimensions];
+        long span = 1;
+        for (int i = 0; i < gridDimensions; i++)
+        {
+            ranges[2 * i] = (int) Math.floor((position[i] - radius - minimum[i]) / cellWidth[i]);
+            ranges[2 * i + 1] = (int) Math.floor((position[i] + radius - minimum[i]) / cellWidth[i]);
+            span *= (ranges[2 * i + 1] - ranges[2 * i] + 1);
+        }
+
+        if (span > cells.size())
+        {
+            //  Cheaper to visit the occupied cells than the covered ones
+            for (Cell cell : cells.values())
+            {
+                for (int k = 0; k < cell.count; k++)
+                {
+                    if (getDistance(position, points[cell.ids[k]]) <= radius)
+                    {
+                        found = append(found, count++, cell.ids[k]);
+                    }
+                }
+            }
+        }
+        else
+        {
+            int[] index = new int[gridDimensions];
+            boolean more = startCells(ranges, index);
+            while (more)
+            {
+                Cell cell = cells.get(getKey(index));
+                if (cell != null)
+                {
+                    for (int k = 0; k < cell.count; k++)
+                    {
+                        if (getDistance(position, points[cell.ids[k]]) <= radius)
+                        {
+                            found = append(found, count++, cell.ids[k]);
+                        }
+                    }
+                }
+                more = nextCell(ranges, index);
+            }
+        }
+
+        int[] result = new int[count];
+        System.arraycopy(found, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Returns the Euclidean distance between two positions.
+     * @param a position vector.
+     * @param b position vector.
+     * @return the distance.
+     */
+    public static double getDistance(double[] a, double[] b)
+    {
+        double sum = 0.;
+        for (int i = 0; i < a.length; i++)
+        {
+            double diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Appends an ID to a growable array.
+     * @param ids the array.
+     * @param count number of IDs already in the array.
+     * @param id the ID to append.
+     * @return the array, grown if necessary.
+     */
+    private static int[] append(int[] ids, int count, int id)
+    {
+        if (count == ids.length)
+        {
+            int[] grown = new int[2 * count];
+            System.arraycopy(ids, 0, grown, 0, count);
+            ids = grown;
+        }
+        ids[count] = id;
+        return ids;
+    }
+
+    /**
+     * Returns the cell indices of a position.
+     * @param position the position.
+     * @return cell indices.
+     */
+    private int[] getCell(double[] position)
+    {
+        int[] index = new int[gridDimensions];
+        for (int i = 0; i < gridDimensions; i++)
+        {
+            index[i] = (int) Math.floor((position[i] - minimum[i]) / cellWidth[i]);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the hash key of the cell containing a position.
+     * @param position the position.
+     * @return the key.
+     */
+    private Long getKey(double[] position)
+    {
+        return getKey(getCell(position));
+    }
+
+    /**
+     * Returns the hash key of a cell.
+     * @param index cell indices.
+     * @return the key.
+     */
+    private Long getKey(int[] index)
+    {
+        long key = 0;
+        for (int i = 0; i < gridDimensions; i++)
+        {
+            key = key * 2097152L + (index[i] & 0x1FFFFF);
+        }
+        return key;
+    }
+
+    /**
+     * Positions a cell iterator at the first cell of a range.
+     * @param ranges lower and upper cell index for each gridded dimension.
+     * @param index the iterator.
+     * @return true if the range is not empty.
+     */
+    private boolean startCells(int[] ranges, int[] index)
+    {
+        for (int i = 0; i < gridDimensions; i++)
+        {
+            index[i] = ranges[2 * i];
+        }
+        return true;
+    }
+
+    /**
+     * Advances a cell iterator to the next cell of a range.
+     * @param ranges lower and upper cell index for each gridded dimension.
+     * @param index the iterator.
+     * @return false once the range has been exhausted.
+     */
+    private boolean nextCell(int[] ranges, int[] index)
+    {
+        for (int i = 0; i < gridDimensions; i++)
+        {
+            if (index[i] < ranges[2 * i + 1])
+            {
+                index[i]++;
+                return true;
+            }
+            index[i] = ranges[2 * i];
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a cell lies on the ring at a given Chebyshev distance from a
+     * center cell.
+     * @param index cell indices.
+     * @param center center cell indices.
+     * @param ring ring number.
+     * @return true if on the ring.
+     */
+    private boolean isOnRing(int[] index, int[] center, int ring)
+    {
+        for (int i = 0; i < gridDimensions; i++)
+        {
+            if (Math.abs(index[i] - center[i]) == ring)
+            {
+                return true;
+            }
+        }
+        return ring == 0;
+    }
+}
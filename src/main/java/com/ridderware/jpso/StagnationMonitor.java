@@ -0,0 +1,329 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import org.apache.logging.log4j.*;
+
+/**
+ *  Restarts particles whose personal best has stopped improving, leaving the
+ *  others alone.  The age of each particle's personal best, in iterations, is kept
+ *  in a primitive array indexed by particle ID.  Once it reaches the stagnation
+ *  limit the particle is either placed afresh at random or perturbed about its
+ *  personal best, given a random velocity, evaluated, and made to forget its old
+ *  personal best.  The best particle of the swarm is never restarted.  With more
+ *  than one candidate, the candidate farthest from the personal bests of the other
+ *  particles and, if there is an archive, from the nearest archived position is
+ *  chosen, so that restarts go to regions not yet covered.  Distances are measured
+ *  relative to the range of each dimension.  Add it to the swarm with addListener.
+ *
+ * @author Jeff Ridder
+ */
+public class StagnationMonitor implements ISwarmListener
+{
+    /**
+     *  How a stagnant particle is restarted.
+     */
+    public enum Mode
+    {
+        /**
+         * Placed at random over the whole search space.
+         */
+        REINITIALIZE,
+
+        /**
+         * Displaced from its personal best by a Gaussian step.
+         */
+        PERTURB
+    }
+
+    private int stagnationLimit;
+
+    private Mode mode;
+
+    private double perturbation;
+
+    private int numberOfCandidates;
+
+    private EvaluationArchive archive;
+
+    private int[] age;
+
+    private double[] bestFitness;
+
+    private double[] bestViolation;
+
+    private long restarts;
+
+    private final static Logger logger = LogManager.getLogger(StagnationMonitor.class);
+
+    /**
+     * Creates a new instance of StagnationMonitor.
+     * @param stagnationLimit Number of iterations without improvement of its personal best after which a particle is restarted.
+     * @param mode How a stagnant particle is restarted.
+     * @param perturbation Standard deviation of a PERTURB step, as a fraction of the range of each dimension.
+     * @param numberOfCandidates Number of candidate positions from which the one farthest from covered regions is chosen; 1 places the particle without regard to them.
+     * @param archive Archive whose positions also count as covered, or null to consider only the swarm.
+     */
+    public StagnationMonitor(int stagnationLimit, Mode mode, double perturbation,
+        int numberOfCandidates, EvaluationArchive archive)
+    {
+        this.stagnationLimit = Math.max(1, stagnationLimit);
+        this.mode = mode;
+        this.perturbation = perturbation;
+        this.numberOfCandidates = Math.max(1, numberOfCandidates);
+        this.archive = archive;
+        this.age = new int[0];
+        this.bestFitness = new double[0];
+        this.bestViolation = new double[0];
+        this.restarts = 0;
+    }
+
+    /**
+     * Updates the ages of the personal bests and restarts the stagnant particles.
+     * @param swarm the swarm.
+     * @param current_iteration the iteration just completed.
+     */
+    public void iterationCompleted(Swarm swarm, int current_iteration)
+    {
+        Particle[] particles = swarm.getParticles();
+        if (this.age.length != particles.length)
+        {
+            this.resize(particles);
+        }
+
+        swarm.getBestSoFar();
+        int best_index = swarm.getBestSoFarIndex();
+
+        int count = 0;
+        for (int i = 0; i < particles.length; i++)
+        {
+            Particle p = particles[i];
+            if (State.isBetter(p.getBestFitness(), p.getBestConstraintViolation(),
+                this.bestFitness[i], this.bestViolation[i]))
+            {
+                this.age[i] = 0;
+            }
+            else
+            {
+                this.age[i]++;
+            }
+
+            if (this.age[i] >= this.stagnationLimit && i != best_index)
+            {
+                this.restart(swarm, particles, i);
+                count++;
+            }
+
+            this.bestFitness[i] = p.getBestFitness();
+            this.bestViolation[i] = p.getBestConstraintViolation();
+        }
+
+        if (count > 0)
+        {
+            this.restarts += count;
+            logger.info("Restarted " + count + " stagnant particles at iteration " +
+                current_iteration);
+        }
+    }
+
+    /**
+     * Carries the ages of surviving particles over to their new IDs.  Added
+     * particles start with an age of zero.
+     * @param swarm the swarm.
+     * @param id_map maps each old particle ID to its new ID, or to -1 if the particle was removed.
+     */
+    public void swarmResized(Swarm swarm, int[] id_map)
+    {
+        Particle[] particles = swarm.getParticles();
+
+        int[] new_age = new int[particles.length];
+        for (int i = 0; i < id_map.length && i < this.age.length; i++)
+        {
+            if (id_map[i] >= 0)
+            {
+                new_age[id_map[i]] = this.age[i];
+            }
+        }
+
+        this.age = new_age;
+        this.bestFitness = new double[particles.length];
+        this.bestViolation = new double[particles.length];
+        for (int i = 0; i < particles.length; i++)
+        {
+            this.bestFitness[i] = particles[i].getBestFitness();
+            this.bestViolation[i] = particles[i].getBestConstraintViolation();
+        }
+    }
+
+    /**
+     * Returns the number of iterations since the personal best of a particle last improved.
+     * @param id ID of the particle.
+     * @return age of the personal best.
+     */
+    public int getAge(int id)
+    {
+        return id < this.age.length ? this.age[id] : 0;
+    }
+
+    /**
+     * Returns the number of particles restarted.
+     * @return number of restarts.
+     */
+    public long getNumberOfRestarts()
+    {
+        return this.restarts;
+    }
+
+    /**
+     * Starts tracking a swarm whose particles are not yet known, with every age zero.
+     * @param particles the particles of the swarm.
+     */
+    private void resize(Particle[] particles)
+    {
+        this.age = new int[particles.length];
+        this.bestFitness = new double[particles.length];
+        this.bestViolation = new double[particles.length];
+        for (int i = 0; i < particles.length; i++)
+        {
+            this.bestFitness[i] = Double.MAX_VALUE;
+            this.bestViolation[i] = Double.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Places a stagnant particle at the best of the candidate positions, gives it a
+     * random velocity, and has the swarm evaluate it and reset its personal best.
+     * @param swarm the swarm.
+     * @param particles the particles of the swarm.
+     * @param index ID of the particle.
+     */
+    private void restart(Swarm swarm, Particle[] particles, int index)
+    {
+        Particle particle = particles[index];
+        ValueLimitSet vls = particle.getValueLimitSet();
+        double[] position = particle.getCurrentState().getPositionBuffer();
+        double[] velocity = particle.getCurrentState().getVelocityBuffer();
+        double[] best = particle.getBestState().getPositionBuffer();
+
+        double[] candidate = new double[position.length];
+        double farthest = -1.;
+        for (int c = 0; c < this.numberOfCandidates; c++)
+        {
+            for (int d = 0; d < candidate.length; d++)
+            {
+                ValueLimits vLim = vls.getValueLimits(d);
+                if (this.mode == Mode.PERTURB)
+                {
+                    double x = best[d] + RandomSource.getInstance().nextGaussian() *
+                        this.perturbation * (vLim.getMaximum() - vLim.getMinimum());
+                    candidate[d] = vLim.round(Math.max(vLim.getMinimum(),
+                        Math.min(vLim.getMaximum(), x)));
+                }
+                else
+                {
+                    candidate[d] = vLim.scale(RandomSource.getInstance().nextDouble());
+                }
+            }
+
+            double distance = this.numberOfCandidates > 1 ?
+                this.getCoverageDistance(candidate, particles, index, vls) : 0.;
+            if (distance > farthest)
+            {
+                farthest = distance;
+                System.arraycopy(candidate, 0, position, 0, position.length);
+            }
+        }
+
+        double scale = this.mode == Mode.PERTURB ? this.perturbation : 0.5;
+        for (int d = 0; d < velocity.length; d++)
+        {
+            ValueLimits vLim = vls.getValueLimits(d);
+            velocity[d] = (2. * RandomSource.getInstance().nextDouble() - 1.) *
+                scale * (vLim.getMaximum() - vLim.getMinimum());
+        }
+
+        particle.getCurrentState().positionChanged();
+        particle.getCurrentState().velocityChanged();
+        swarm.restartParticle(particle);
+
+        this.age[index] = 0;
+    }
+
+    /**
+     * Returns the distance from a candidate position to the nearest covered point:
+     * the personal bests of the other particles and the nearest archived position.
+     * @param candidate the candidate position.
+     * @param particles the particles of the swarm.
+     * @param index ID of the particle being restarted.
+     * @param vls the search space.
+     * @return the distance, relative to the range of each dimension.
+     */
+    private double getCoverageDistance(double[] candidate, Particle[] particles,
+        int index, ValueLimitSet vls)
+    {
+        double nearest = Double.MAX_VALUE;
+        for (int i = 0; i < particles.length; i++)
+        {
+            if (i != index)
+            {
+                nearest = Math.min(nearest, getDistance(candidate,
+                    particles[i].getBestState().getPositionBuffer(), vls));
+            }
+        }
+
+        if (this.archive != null && this.archive.getSize() > 0)
+        {
+            Double[] boxed = new Double[candidate.length];
+            for (int d = 0; d < candidate.length; d++)
+            {
+                boxed[d] = candidate[d];
+            }
+
+            EvaluationArchive.Entry entry = this.archive.getNearest(boxed);
+            if (entry != null)
+            {
+                nearest = Math.min(nearest, getDistance(candidate, entry.getPosition(), vls));
+            }
+        }
+
+        return nearest;
+    }
+
+    /**
+     * Returns the Euclidean distance between two positions, with each dimension
+     * divided by its range.
+     * @param a position vector.
+     * @param b position vector.
+     * @param vls the search space.
+     * @return the distance.
+     */
+    private static double getDistance(double[] a, double[] b, ValueLimitSet vls)
+    {
+        double sum = 0.;
+        for (int d = 0; d < a.length; d++)
+        {
+            ValueLimits vLim = vls.getValueLimits(d);
+            double range = vLim.getMaximum() - vLim.getMinimum();
+            double diff = range > 0. ? (a[d] - b[d]) / range : 0.;
+            sum += diff * diff;
+        }
+
+        return Math.sqrt(sum);
+    }
+}
@@ -18,10 +18,14 @@
  */
 package com.ridderware.jpso;
 
+import java.util.Arrays;
+
 /**
  *  Describes the state of the particle.  The State is the current position,
  *  velocity that resulted in the position, and fitness of the particle at that
- *  position.
+ *  position.  The position and velocity are held in primitive buffers, which an
+ *  IInPlaceMover updates without allocating; the Double[] vectors are views of the
+ *  buffers that are created only when asked for.
  *
  * @author Jeff Ridder
  */
@@ -31,39 +35,62 @@ public class State
 
     private Double[] velocity;
 
+    private double[] positionBuffer;
+
+    private double[] velocityBuffer;
+
     private double fitness;
 
+    private double constraintViolation;
+
+    private double[] objectives;
+
+    private boolean fitnessBound;
+
+    private boolean fitnessPenalty;
+
     /**
      * Creates a new instance of State
      * @param size Length of position and velocity vectors in the state.
      */
     public State(int size)
     {
-        this.position = new Double[size];
-        this.velocity = new Double[size];
-        for (int i = 0; i < size; i++)
-        {
-            this.position[i] = 0.;
-            this.velocity[i] = 0.;
-        }
+        this.positionBuffer = new double[size];
+        this.velocityBuffer = new double[size];
+        this.position = null;
+        this.velocity = null;
         this.fitness = Double.MAX_VALUE;
+        this.constraintViolation = 0.;
+        this.objectives = null;
+        this.fitnessBound = false;
+        this.fitnessPenalty = false;
     }
 
     /**
-     * Returns the position.
+     * Returns the position.  The vector may be shared with other states, and must not
+     * be modified.
      * @return position vector.
      */
     public Double[] getPosition()
     {
+        if (this.position == null)
+        {
+            this.position = box(this.positionBuffer);
+        }
         return this.position;
     }
 
     /**
-     * Returns the velocity.
+     * Returns the velocity.  The vector may be shared with other states, and must not
+     * be modified.
      * @return velocity vector.
      */
     public Double[] getVelocity()
     {
+        if (this.velocity == null)
+        {
+            this.velocity = box(this.velocityBuffer);
+        }
         return this.velocity;
     }
 
@@ -73,6 +100,7 @@ public class State
      */
     public void setPosition(Double[] position)
     {
+        this.positionBuffer = unbox(position, this.positionBuffer);
         this.position = position;
     }
 
@@ -82,9 +110,108 @@ public class State
      */
     public void setVelocity(Double[] velocity)
     {
+        this.velocityBuffer = unbox(velocity, this.velocityBuffer);
         this.velocity = velocity;
     }
 
+    /**
+     * Returns the buffer holding the position.  It may be updated in place, after
+     * which positionChanged must be called.
+     * @return position buffer.
+     */
+    public double[] getPositionBuffer()
+    {
+        return this.positionBuffer;
+    }
+
+    /**
+     * Returns the buffer holding the velocity.  It may be updated in place, after
+     * which velocityChanged must be called.
+     * @return velocity buffer.
+     */
+    public double[] getVelocityBuffer()
+    {
+        return this.velocityBuffer;
+    }
+
+    /**
+     * Records that the position buffer has been updated in place.
+     */
+    public void positionChanged()
+    {
+        this.position = null;
+    }
+
+    /**
+     * Records that the velocity buffer has been updated in place.
+     */
+    public void velocityChanged()
+    {
+        this.velocity = null;
+    }
+
+    /**
+     * Copies the position of another state into this state's buffer.  Nothing is
+     * allocated unless the sizes differ.
+     * @param source the state whose position is copied.
+     */
+    public void copyPosition(State source)
+    {
+        if (this.positionBuffer.length != source.positionBuffer.length)
+        {
+            this.positionBuffer = new double[source.positionBuffer.length];
+        }
+        System.arraycopy(source.positionBuffer, 0, this.positionBuffer, 0,
+            this.positionBuffer.length);
+
+        //  Views are never modified, so the source's can be shared
+        this.position = source.position;
+    }
+
+    /**
+     * Returns whether this state is at the same position as another.
+     * @param other the other state.
+     * @return true if every element of the positions is equal.
+     */
+    public boolean hasSamePosition(State other)
+    {
+        return Arrays.equals(this.positionBuffer, other.positionBuffer);
+    }
+
+    /**
+     * Returns a new vector holding the values of a buffer.
+     * @param buffer the buffer.
+     * @return vector.
+     */
+    private static Double[] box(double[] buffer)
+    {
+        Double[] vector = new Double[buffer.length];
+        for (int i = 0; i < buffer.length; i++)
+        {
+            vector[i] = buffer[i];
+        }
+        return vector;
+    }
+
+    /**
+     * Copies a vector into a buffer, allocating a new buffer if the sizes differ.
+     * @param vector the vector.
+     * @param buffer the buffer.
+     * @return the buffer holding the values.
+     */
+    private static double[] unbox(Double[] vector, double[] buffer)
+    {
+        if (buffer.length != vector.length)
+        {
+            buffer = new double[vector.length];
+        }
+        for (int i = 0; i < vector.length; i++)
+        {
+            buffer[i] = vector[i];
+        }
+        return buffer;
+    }
+
     /**
      * Sets the fitness.
      * @param fitness fitness.
@@ -102,4 +229,111 @@ public class State
     {
         return this.fitness;
     }
+
+    /**
+     * Sets the constraint violation.
+     * @param constraintViolation total constraint violation, 0 if feasible.
+     */
+    public void setConstraintViolation(double constraintViolation)
+    {
+        this.constraintViolation = constraintViolation;
+    }
+
+    /**
+     * Returns the constraint violation.
+     * @return total constraint violation, 0 if feasible.
+     */
+    public double getConstraintViolation()
+    {
+        return this.constraintViolation;
+    }
+
+    /**
+     * Sets the objective values of a multi-objective problem.
+     * @param objectives objective vector.
+     */
+    public void setObjectives(double[] objectives)
+    {
+        this.objectives = objectives;
+    }
+
+    /**
+     * Returns the objective values of a multi-objective problem.
+     * @return objective vector, or null for a single-objective problem.
+     */
+    public double[] getObjectives()
+    {
+        return this.objectives;
+    }
+
+    /**
+     * Sets whether the fitness is only a lower bound, from an abandoned evaluation.
+     * @param fitnessBound true if the fitness is a lower bound.
+     */
+    public void setFitnessBound(boolean fitnessBound)
+    {
+        this.fitnessBound = fitnessBound;
+    }
+
+    /**
+     * Returns whether the fitness is only a lower bound, from an abandoned evaluation.
+     * @return true if the fitness is a lower bound.
+     */
+    public boolean isFitnessBound()
+    {
+        return this.fitnessBound;
+    }
+
+    /**
+     * Sets whether the fitness is the penalty given to an evaluation that timed out
+     * or was interrupted, rather than a result of the evaluator.
+     * @param fitnessPenalty true if the fitness is a penalty.
+     */
+    public void setFitnessPenalty(boolean fitnessPenalty)
+    {
+        this.fitnessPenalty = fitnessPenalty;
+    }
+
+    /**
+     * Returns whether the fitness is the penalty given to an evaluation that timed
+     * out or was interrupted, rather than a result of the evaluator.
+     * @return true if the fitness is a penalty.
+     */
+    public boolean isFitnessPenalty()
+    {
+        return this.fitnessPenalty;
+    }
+
+    /**
+     * Returns whether this state is better than another.
+     * @param other the other state.
+     * @return true if this state is better.
+     */
+    public boolean isBetterThan(State other)
+    {
+        return isBetter(fitness, constraintViolation, other.getFitness(),
+            other.getConstraintViolation());
+    }
+
+    /**
+     * Compares two states by the feasibility rules of Deb: a feasible state beats an
+     * infeasible one, two feasible states are compared by fitness, and two infeasible
+     * states by constraint violation.  Without constraints this is simply a
+     * comparison of fitness.
+     * @param fitness fitness of the first state.
+     * @param violation constraint violation of the first state.
+     * @param other_fitness fitness of the second state.
+     * @param other_violation constraint violation of the second state.
+     * @return true if the first state is better.
+     */
+    public static boolean isBetter(double fitness, double violation,
+        double other_fitness, double other_violation)
+    {
+        if (violation <= 0. && other_violation <= 0.)
+        {
+            return fitness < other_fitness;
+        }
+
+        return violation < other_violation;
+    }
 }
@@ -78,6 +78,7 @@ public class Statistics
             header += "\tAverage Fitness Score";
             header += "\tMaximum Fitness Score";
             header += "\tStandard Deviation";
+            header += "\tLower Bounds";
 
             string2file(false, header, file);
         }
@@ -110,10 +111,16 @@ public class Statistics
         double ave_fitness = 0.;
         double min_fitness = Double.MAX_VALUE;
         double max_fitness = -Double.MAX_VALUE;
+        int bounds = 0;
         for (Particle p : particles)
         {
             double f = p.getCurrentFitness();
 
+            if (p.getCurrentState().isFitnessBound())
+            {
+                bounds++;
+            }
+
             ave_fitness += f;
 
             min_fitness = Math.min(f, min_fitness);
@@ -147,6 +154,8 @@ public class Statistics
         line += "\t\t\t" + max_fitness;
         //average fitness standard deviation
         line += "\t\t\t" + sigma;
+        //number of fitness values that are only lower bounds from abandoned evaluations
+        line += "\t\t\t" + bounds;
 
         string2file(true, line, file);
     }
@@ -0,0 +1,279 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import java.util.Arrays;
+
+/**
+ *  Pre-screens the moves proposed by a swarm with a surrogate model, so that the
+ *  true evaluator is only called for candidates the model expects to improve a
+ *  personal best, plus a fraction chosen at random for exploration.  Candidates that
+ *  are screened out are assigned their predicted fitness and cannot become
+ *  personal bests.  Every true evaluation is fed back into the model.
+ *
+ * @author Jeff Ridder
+ */
+public class SurrogateScreen
+{
+    private ISurrogateModel model;
+
+    private double explorationProbability;
+
+    private int minSamples;
+
+    private int maxEvaluations;
+
+    private double[] predictions;
+
+    private boolean screening;
+
+    private long candidates;
+
+    private long screenedOut;
+
+    private long evaluations;
+
+    private long improvements;
+
+    private long predictedEvaluations;
+
+    private double absoluteError;
+
+    /**
+     * Creates a new instance of SurrogateScreen
+     * @param model The surrogate model.
+     * @param explorationProbability Probability that a candidate the model does not expect to improve is evaluated anyway.
+     * @param minSamples Number of samples the model must hold before it is used for screening.
+     * @param maxEvaluations Maximum number of candidates evaluated per iteration, taken in order of predicted improvement.  Zero means no limit.
+     */
+    public SurrogateScreen(ISurrogateModel model, double explorationProbability,
+        int minSamples, int maxEvaluations)
+    {
+        this.model = model;
+        this.explorationProbability = explorationProbability;
+        this.minSamples = minSamples;
+        this.maxEvaluations = maxEvaluations;
+        this.predictions = new double[0];
+    }
+
+    /**
+     * Returns the surrogate model.
+     * @return ISurrogateModel object.
+     */
+    public ISurrogateModel getModel()
+    {
+        return this.model;
+    }
+
+    /**
+     * Decides which particles are to be evaluated with the true evaluator.
+     * @param particles the particles, at their newly moved positions.
+     * @return flags, indexed like the particles, of those to be evaluated.
+     */
+    public boolean[] screen(Particle[] particles)
+    {
+        boolean[] evaluate = new boolean[particles.length];
+
+        candidates += particles.length;
+
+        screening = model.getNumberOfSamples() >= minSamples;
+        if (!screening)
+        {
+            for (int i = 0; i < particles.length; i++)
+            {
+                evaluate[i] = true;
+            }
+            return evaluate;
+        }
+
+        if (predictions.length < particles.length)
+        {
+            predictions = new double[particles.length];
+        }
+
+        //  Rank the candidates by the improvement the model expects
+        double[] expected = new double[particles.length];
+        int count = 0;
+        for (int i = 0; i < particles.length; i++)
+        {
+            predictions[i] = model.predict(particles[i].getCurrentPosition());
+            expected[i] = particles[i].getBestFitness() - predictions[i];
+
+            if (expected[i] > 0. || RandomSource.getInstance().nextDouble() <
+                explorationProbability)
+            {
+                evaluate[i] = true;
+                count++;
+            }
+        }
+
+        if (maxEvaluations > 0 && count > maxEvaluations)
+        {
+            //  Keep only the candidates with the largest expected improvement
+            double[] sorted = new double[count];
+            for (int i = 0, j = 0; i < particles.length; i++)
+            {
+                if (evaluate[i])
+                {
+                    sorted[j++] = expected[i];
+                }
+            }
+            Arrays.sort(sorted);
+            double cutoff = sorted[count - maxEvaluations];
+
+            count = 0;
+            for (int i = 0; i < particles.length; i++)
+            {
+                evaluate[i] = evaluate[i] && expected[i] >= cutoff &&
+                    count < maxEvaluations;
+                if (evaluate[i])
+                {
+                    count++;
+                }
+            }
+        }
+
+        return evaluate;
+    }
+
+    /**
+     * Returns the fitness predicted by the last call to screen.
+     * @param index index of the particle.
+     * @return predicted fitness, or NaN if the model was not yet used.
+     */
+    public double getPrediction(int index)
+    {
+        return screening ? predictions[index] : Double.NaN;
+    }
+
+    /**
+     * Records that a candidate was screened out and not evaluated.
+     * @param index index of the particle.
+     */
+    public void recordScreenedOut(int index)
+    {
+        screenedOut++;
+    }
+
+    /**
+     * Records the outcome of a true evaluation of a screened candidate.  Only
+     * evaluations in which the evaluator actually ran and gave the exact fitness of a
+     * feasible position are to be recorded, not reused results, infeasible
+     * positions, lower bounds or penalties.
+     * @param index index of the particle.
+     * @param fitness the true fitness.
+     * @param improved whether the evaluation improved the particle's personal best.
+     */
+    public void recordEvaluation(int index, double fitness, boolean improved)
+    {
+        evaluations++;
+        if (improved)
+        {
+            improvements++;
+        }
+
+        if (screening)
+        {
+            predictedEvaluations++;
+            absoluteError += Math.abs(fitness - predictions[index]);
+        }
+    }
+
+    /**
+     * Adds an evaluated position to the model.
+     * @param position the position.
+     * @param fitness its true fitness.
+     */
+    public void addSample(Double[] position, double fitness)
+    {
+        model.addSample(position, fitness);
+    }
+
+    /**
+     * Removes the samples of the model, as when the fitness landscape has changed,
+     * so that it stops predicting from the old landscape.  Screening resumes once
+     * the model again holds the minimum number of samples.
+     */
+    public void clearModel()
+    {
+        model.clear();
+        screening = false;
+    }
+
+    /**
+     * Returns the number of candidate moves screened.
+     * @return number of candidates.
+     */
+    public long getNumberOfCandidates()
+    {
+        return this.candidates;
+    }
+
+    /**
+     * Returns the number of candidates the true evaluator gave an exact fitness
+     * for, as recorded by recordEvaluation.
+     * @return number of evaluations.
+     */
+    public long getNumberOfEvaluations()
+    {
+        return this.evaluations;
+    }
+
+    /**
+     * Returns the number of true evaluations saved by screening, that is, the
+     * number of candidates screened out.
+     * @return number of evaluations saved.
+     */
+    public long getNumberOfEvaluationsSaved()
+    {
+        return this.screenedOut;
+    }
+
+    /**
+     * Returns the fraction of true evaluations that improved a personal best.
+     * @return hit rate.
+     */
+    public double getHitRate()
+    {
+        return evaluations > 0 ? (double) improvements / evaluations : 0.;
+    }
+
+    /**
+     * Returns the mean absolute error of the model's predictions for candidates
+     * that were then evaluated with the true evaluator.
+     * @return mean absolute error.
+     */
+    public double getMeanAbsoluteError()
+    {
+        return predictedEvaluations > 0 ? absoluteError / predictedEvaluations : 0.;
+    }
+
+    /**
+     * Returns a summary of the screening statistics.
+     * @return summary string.
+     */
+    @Override
+    public String toString()
+    {
+        return "Surrogate screened " + candidates + " candidates, evaluated " +
+            evaluations + ", saved " + getNumberOfEvaluationsSaved() +
+            ", hit rate " + getHitRate() + ", mean absolute error " +
+            getMeanAbsoluteError();
+    }
+}
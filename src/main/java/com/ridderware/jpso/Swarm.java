@@ -18,6 +18,24 @@
  */
 package com.ridderware.jpso;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.logging.log4j.*;
 
 /**
@@ -27,6 +45,21 @@ import org.apache.logging.log4j.*;
  */
 public class Swarm
 {
+    /**
+     *  The evaluation context of a particle, for an IIncrementalEvaluator, with the
+     *  position it was evaluated at.
+     */
+    private static final class EvaluationContext
+    {
+        private Object context;
+
+        private Double[] position;
+
+        private int[] changed;
+
+        private double[] values;
+    }
+
     private IEvaluator evaluator;
 
     private NeighborhoodTopology neighborhoodTopology;
@@ -41,6 +74,110 @@ public class Swarm
     
     private int bestSoFarIndex;
 
+    private ValueLimitSet valueLimitSet;
+
+    private SwarmSizeController sizeController;
+
+    private final ArrayList<ISwarmListener> listeners = new ArrayList<ISwarmListener>();
+
+    private long evaluations;
+
+    private SurrogateScreen surrogateScreen;
+
+    private EvaluationArchive archive;
+
+    private boolean skipDuplicates;
+
+    private double infeasibilityThreshold;
+
+    private long objectivesSkipped;
+
+    private LinkedHashMap<List<Double>, Double> designCache;
+
+    private int designCacheCapacity;
+
+    private long duplicateDesigns;
+
+    private volatile boolean cancelled;
+
+    private long deadline;
+
+    private boolean stopped;
+
+    private double evaluationCost;
+
+    private double iterationCost;
+
+    private volatile SwarmSnapshot snapshot;
+
+    private volatile boolean snapshotsEnabled;
+
+    private long moveNanos;
+
+    private long evaluateNanos;
+
+    private long updateNanos;
+
+    private long rateEvaluations;
+
+    private long rateStart;
+
+    private long evaluationTimeout;
+
+    private double timeoutPenalty;
+
+    private int timeoutRetries;
+
+    private long timeouts;
+
+    private ExecutorService evaluationExecutor;
+
+    private EvaluationContext[] evaluationContexts;
+
+    private long incrementalEvaluations;
+
+    private long thresholdEvaluations;
+
+    private long abandonedEvaluations;
+
+    private long abandonedNanos;
+
+    private long completedNanos;
+
+    private boolean forceReevaluation;
+
+    private long unmovedParticles;
+
+    private long sharedEvaluations;
+
+    private int[] positionTable;
+
+    private Particle[][] neighborCache;
+
+    private int neighborCacheVersion;
+
+    private double[] averagePosition;
+
+    private IInitializer initializer;
+
+    private int initializerThreads;
+
+    private ChangeDetector changeDetector;
+
+    private long iterations;
+
+    /**
+     * Smoothing factor of the moving averages of evaluation and iteration cost.
+     */
+    private static final double COST_SMOOTHING = 0.2;
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * Default number of designs held by the design cache.
+     */
+    public static final int DEFAULT_DESIGN_CACHE_CAPACITY = 100000;
+
     private final static Logger logger = LogManager.getLogger(Swarm.class);
 
     /**
@@ -58,6 +195,50 @@ public class Swarm
         this.stats = null;
         this.bestSoFar = null;
         this.bestSoFarIndex = -1;
+        this.sizeController = null;
+        this.evaluations = 0;
+        this.surrogateScreen = null;
+        this.archive = null;
+        this.skipDuplicates = false;
+        this.infeasibilityThreshold = 0.;
+        this.objectivesSkipped = 0;
+        this.designCache = null;
+        this.designCacheCapacity = DEFAULT_DESIGN_CACHE_CAPACITY;
+        this.duplicateDesigns = 0;
+        this.cancelled = false;
+        this.deadline = NO_DEADLINE;
+        this.stopped = false;
+        this.evaluationCost = 0.;
+        this.iterationCost = 0.;
+        this.snapshot = null;
+        this.snapshotsEnabled = false;
+        this.moveNanos = 0;
+        this.evaluateNanos = 0;
+        this.updateNanos = 0;
+        this.rateEvaluations = 0;
+        this.rateStart = System.nanoTime();
+        this.evaluationTimeout = 0;
+        this.timeoutPenalty = Double.MAX_VALUE;
+        this.timeoutRetries = 0;
+        this.timeouts = 0;
+        this.evaluationExecutor = null;
+        this.evaluationContexts = null;
+        this.incrementalEvaluations = 0;
+        this.thresholdEvaluations = 0;
+        this.abandonedEvaluations = 0;
+        this.abandonedNanos = 0;
+        this.completedNanos = 0;
+        this.forceReevaluation = false;
+        this.unmovedParticles = 0;
+        this.sharedEvaluations = 0;
+        this.positionTable = null;
+        this.neighborCache = null;
+        this.neighborCacheVersion = 0;
+        this.averagePosition = null;
+        this.initializer = null;
+        this.initializerThreads = 1;
+        this.changeDetector = null;
+        this.iterations = 0;
     }
 
     /**
@@ -84,13 +265,31 @@ public class Swarm
     }
 
     /**
-     * Creates the particles in the swarm.
+     * Creates the particles in the swarm.  If every variable is discrete, the fitness
+     * of each design is cached so that a recently evaluated design is not evaluated
+     * again.  The cache holds the most recently used designs, up to its capacity.
+     * Spaces with continuous variables are not cached, since their rounded
+     * positions rarely repeat; use an EvaluationArchive to skip duplicates there.
      * @param valueLimitSet ValueLimitSet object defining the search space for the particles.
      * @param mover IMover object defining particle kinematics.
      */
     public void createParticles(ValueLimitSet valueLimitSet, IMover mover)
     {
         this.mover = mover;
+        this.valueLimitSet = valueLimitSet;
+        this.designCache = null;
+        if (valueLimitSet.isDiscrete())
+        {
+            this.designCache = new LinkedHashMap<List<Double>, Double>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Double>, Double> eldest)
+                {
+                    return size() > designCacheCapacity;
+                }
+            };
+        }
+        this.neighborCache = null;
 
         for (int i = 0; i < particles.length; i++)
         {
@@ -106,148 +305,1761 @@ public class Swarm
     {
         return this.mover;
     }
-    
 
     /**
-     * Initializes the particles in the swarm.  Randomly sets initial position and evaluates fitness of that position.
+     * Returns the search space of the particles.
+     * @return ValueLimitSet object.
      */
-    public void initializeParticles()
+    public ValueLimitSet getValueLimitSet()
     {
-        logger.info("Initializing Swarm");
+        return this.valueLimitSet;
+    }
 
-        for (int i = 0; i < particles.length; i++)
-        {
-            particles[i].initialize();
-        }
+    /**
+     * Sets the controller that adds and removes particles while the swarm iterates.
+     * @param sizeController SwarmSizeController object, or null for a fixed-size swarm.
+     */
+    public void setSwarmSizeController(SwarmSizeController sizeController)
+    {
+        this.sizeController = sizeController;
+    }
 
-        this.preevaluateSwarm();
+    /**
+     * Returns the swarm size controller.
+     * @return SwarmSizeController object, or null if the swarm size is fixed.
+     */
+    public SwarmSizeController getSwarmSizeController()
+    {
+        return this.sizeController;
+    }
 
-        for (int i = 0; i < particles.length; i++)
-        {
-            particles[i].setCurrentFitness(evaluator.evaluateFitness(particles[i].getCurrentPosition()));
+    /**
+     * Sets the detector of changes to the fitness landscape, for a dynamic problem.
+     * @param changeDetector ChangeDetector object, or null if the landscape is static.
+     */
+    public void setChangeDetector(ChangeDetector changeDetector)
+    {
+        this.changeDetector = changeDetector;
+    }
 
-            particles[i].setBestPosition(particles[i].getCurrentPosition());
-            particles[i].setBestFitness(particles[i].getCurrentFitness());
-        }
+    /**
+     * Returns the detector of changes to the fitness landscape.
+     * @return ChangeDetector object, or null if the landscape is static.
+     */
+    public ChangeDetector getChangeDetector()
+    {
+        return this.changeDetector;
+    }
 
-        this.postevaluateSwarm();
+    /**
+     * Sets the surrogate screen used to decide which moved particles are evaluated
+     * with the true evaluator.
+     * @param surrogateScreen SurrogateScreen object, or null to evaluate every particle.
+     */
+    public void setSurrogateScreen(SurrogateScreen surrogateScreen)
+    {
+        this.surrogateScreen = surrogateScreen;
     }
 
     /**
-     * Evaluates the particles in the swarm.
+     * Returns the surrogate screen.
+     * @return SurrogateScreen object, or null if there is none.
      */
-    protected void evaluateParticles()
+    public SurrogateScreen getSurrogateScreen()
     {
-        for (int i = 0; i < particles.length; i++)
-        {
-            particles[i].setCurrentFitness(evaluator.evaluateFitness(particles[i].getCurrentPosition()));
+        return this.surrogateScreen;
+    }
 
-            if (particles[i].getCurrentFitness() < particles[i].getBestFitness())
-            {
-                particles[i].setBestPosition(particles[i].getCurrentPosition());
-                particles[i].setBestFitness(particles[i].getCurrentFitness());
-            }
-        }
+    /**
+     * Sets the archive in which every evaluated position is recorded.
+     * @param archive EvaluationArchive object, or null for none.
+     * @param skipDuplicates if true, positions already in the archive are not evaluated again.
+     */
+    public void setEvaluationArchive(EvaluationArchive archive,
+        boolean skipDuplicates)
+    {
+        this.archive = archive;
+        this.skipDuplicates = skipDuplicates;
     }
 
     /**
-     * Preevaluates the swarm.
+     * Returns the evaluation archive.
+     * @return EvaluationArchive object, or null if there is none.
      */
-    protected void preevaluateSwarm()
+    public EvaluationArchive getEvaluationArchive()
     {
-        evaluator.preevaluate(particles);
+        return this.archive;
     }
 
     /**
-     * Postevaluates the swarm.
+     * Sets the number of designs held by the design cache of a fully discrete space.
+     * Once it is full, the least recently used design is dropped.
+     * @param capacity maximum number of designs; the default is DEFAULT_DESIGN_CACHE_CAPACITY.
      */
-    protected void postevaluateSwarm()
+    public void setDesignCacheCapacity(int capacity)
     {
-        evaluator.postevaluate(particles);
+        this.designCacheCapacity = Math.max(1, capacity);
     }
 
     /**
-     * Iterates the swarm.
-     * @param max_iterations max number of iterations to be computed by the swarm.
+     * Returns the number of designs held by the design cache.
+     * @return maximum number of designs.
      */
-    public void iterate(int max_iterations)
+    public int getDesignCacheCapacity()
     {
-        for (int i = 0; i < max_iterations; i++)
-        {
-            logger.info("Iteration: " + (i + 1));
+        return this.designCacheCapacity;
+    }
 
-            if (this.stats != null)
-            {
-                this.stats.outputSwarmStats(particles, i);
-            }
+    /**
+     * Sets the constraint violation above which a position is considered clearly
+     * infeasible and its objective is not evaluated.  Only used when the evaluator is
+     * an IConstrainedEvaluator.
+     * @param infeasibilityThreshold the threshold; the default of 0 skips the objective for every infeasible position.
+     */
+    public void setInfeasibilityThreshold(double infeasibilityThreshold)
+    {
+        this.infeasibilityThreshold = infeasibilityThreshold;
+    }
+
+    /**
+     * Returns the number of objective evaluations skipped because the position was
+     * clearly infeasible.
+     * @return number of skipped evaluations.
+     */
+    public long getNumberOfObjectivesSkipped()
+    {
+        return this.objectivesSkipped;
+    }
+
+    /**
+     * Sets a time limit on each call to the evaluator.  Calls are then made on a
+     * worker thread.  A call that runs past the limit is cancelled, interrupting the
+     * worker, and is retried; once the retries are used up the position is given the
+     * penalty fitness.  An evaluator that ignores interruption is abandoned on its
+     * worker thread, and later calls are made on a new one.  Penalties are never
+     * recorded in the evaluation archive, design cache or surrogate model.
+     * @param timeout_millis time limit in milliseconds, or 0 for none.
+     * @param penaltyFitness fitness of a position whose evaluation timed out.
+     * @param retries number of further attempts after the first times out.
+     */
+    public void setEvaluationTimeout(long timeout_millis, double penaltyFitness,
+        int retries)
+    {
+        this.evaluationTimeout = timeout_millis;
+        this.timeoutPenalty = penaltyFitness;
+        this.timeoutRetries = Math.max(0, retries);
+    }
 
-            this.moveParticles(i, max_iterations);
+    /**
+     * Returns the number of evaluator calls that timed out.
+     * @return number of timeouts.
+     */
+    public long getNumberOfTimeouts()
+    {
+        return this.timeouts;
+    }
 
-            this.preevaluateSwarm();
+    /**
+     * Returns the number of evaluations made incrementally, by an
+     * IIncrementalEvaluator updating a particle's context.
+     * @return number of incremental evaluations.
+     */
+    public long getNumberOfIncrementalEvaluations()
+    {
+        return this.incrementalEvaluations;
+    }
 
-            this.evaluateParticles();
+    /**
+     * Returns the number of evaluations given an abandon threshold, made when the
+     * evaluator is an IAbandoningEvaluator.
+     * @return number of evaluations with a threshold.
+     */
+    public long getNumberOfThresholdEvaluations()
+    {
+        return this.thresholdEvaluations;
+    }
 
-            this.postevaluateSwarm();
-        }
+    /**
+     * Returns the number of evaluations the evaluator abandoned, giving only a lower
+     * bound on the fitness.
+     * @return number of abandoned evaluations.
+     */
+    public long getNumberOfAbandonedEvaluations()
+    {
+        return this.abandonedEvaluations;
     }
 
     /**
-     * Moves the particles in the swarm.
-     * @param current_iteration Current iteration.
-     * @param max_iterations Max number of iterations.
+     * Returns an estimate of the evaluation time saved by abandoning evaluations: the
+     * number abandoned times the difference between the mean durations of completed
+     * and abandoned evaluations.
+     * @return estimated time saved, in milliseconds.
      */
-    protected void moveParticles(int current_iteration, int max_iterations)
+    public double getEstimatedAbandonSavingMillis()
     {
-        for (int p = 0; p < particles.length; p++)
+        long completed = this.thresholdEvaluations - this.abandonedEvaluations;
+        if (completed <= 0 || this.abandonedEvaluations <= 0)
         {
-            particles[p].moveParticle(getNeighbors(p), current_iteration,
-                max_iterations);
+            return 0.;
         }
+
+        double saved = this.abandonedEvaluations *
+            ((double) this.completedNanos / completed -
+            (double) this.abandonedNanos / this.abandonedEvaluations);
+        return Math.max(0., saved) * 1.e-6;
     }
 
     /**
-     * Returns the neighboring particles.
-     * @param pid ID of the particle for which neighbors are to be returned.
-     * @return a Java array of particles.
+     * Sets whether every particle is evaluated each iteration.  By default a particle
+     * that has not moved since its last evaluation, or that lands exactly on a
+     * position already evaluated in the same iteration, takes the earlier result.
+     * Noisy objectives should force re-evaluation.
+     * @param forceReevaluation if true, every particle is evaluated.
      */
-    protected Particle[] getNeighbors(int pid)
+    public void setForceReevaluation(boolean forceReevaluation)
+    {
+        this.forceReevaluation = forceReevaluation;
+    }
+
+    /**
+     * Returns the number of evaluations avoided because the particle had not moved
+     * since its last evaluation.
+     * @return number of unmoved particles.
+     */
+    public long getNumberOfUnmovedParticles()
+    {
+        return this.unmovedParticles;
+    }
+
+    /**
+     * Returns the number of evaluations avoided because another particle was at the
+     * same position in the same iteration.
+     * @return number of shared evaluations.
+     */
+    public long getNumberOfSharedEvaluations()
+    {
+        return this.sharedEvaluations;
+    }
+
+    /**
+     * Returns the number of evaluations avoided because the design had already been
+     * evaluated.  Designs are only cached when every variable is discrete, and only
+     * the most recently used are kept.
+     * @return number of duplicate designs.
+     */
+    public long getNumberOfDuplicateDesigns()
+    {
+        return this.duplicateDesigns;
+    }
+
+    /**
+     * Adds a listener to be notified of the progress of the swarm.
+     * @param listener ISwarmListener object.
+     */
+    public void addListener(ISwarmListener listener)
+    {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     * @param listener ISwarmListener object.
+     */
+    public void removeListener(ISwarmListener listener)
+    {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Returns the number of fitness evaluations performed by the swarm so far.
+     * @return number of evaluations.
+     */
+    public long getNumberOfEvaluations()
+    {
+        return this.evaluations;
+    }
+
+    /**
+     * Returns the number of iterations started by the swarm so far, over all runs.
+     * @return number of iterations.
+     */
+    public long getNumberOfIterations()
+    {
+        return this.iterations;
+    }
+
+    /**
+     * Evaluates the fitness of a position with the swarm's evaluator.  A design that
+     * has already been evaluated is given its cached fitness, and if duplicates are
+     * being skipped, so is a position already in the evaluation archive.
+     * @param position position vector.
+     * @return fitness.
+     */
+    protected double evaluateFitness(Double[] position)
+    {
+        return this.evaluateFitness(position, -1);
+    }
+
+    /**
+     * Evaluates the fitness of a particle's position.  If the evaluator is an
+     * IIncrementalEvaluator, the particle's evaluation context is updated with the
+     * elements that have changed since it was last evaluated.
+     * @param position position vector.
+     * @param pid ID of the particle at the position, or -1 if it is not a particle's.
+     * @return fitness.
+     */
+    protected double evaluateFitness(Double[] position, int pid)
+    {
+        return this.evaluateFitness(position, pid, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Evaluates the fitness of a particle's position, allowing an
+     * IAbandoningEvaluator to stop once the fitness exceeds a threshold.  A result
+     * the evaluator reports as a lower bound is not recorded in the design cache,
+     * evaluation archive or surrogate model.
+     * @param position position vector.
+     * @param pid ID of the particle at the position, or -1 if it is not a particle's.
+     * @param threshold fitness above which the evaluation may be abandoned, or positive infinity for none.
+     * @return fitness, or a lower bound on it that exceeds the threshold.
+     */
+    protected double evaluateFitness(Double[] position, int pid, double threshold)
     {
-        Integer[] neighbors = this.neighborhoodTopology.getNeighborIDs(pid);
+        BoundedFitness result = this.evaluate(position, pid, threshold, 0.);
+        return result != null ? result.getFitness() : this.timeoutPenalty;
+    }
+
+    /**
+     * Evaluates the fitness of a particle's position as evaluateFitness does, but
+     * reports whether the result is only a lower bound, and gives no result rather
+     * than the penalty fitness if the evaluation timed out or was interrupted.
+     * @param position position vector.
+     * @param pid ID of the particle at the position, or -1 if it is not a particle's.
+     * @param threshold fitness above which the evaluation may be abandoned, or positive infinity for none.
+     * @param violation constraint violation of the position, recorded with it in the evaluation archive.
+     * @return the result, or null if every attempt timed out or the calling thread was interrupted.
+     */
+    private BoundedFitness evaluate(Double[] position, int pid, double threshold,
+        double violation)
+    {
+        List<Double> design = null;
+        if (this.designCache != null)
+        {
+            design = Arrays.asList(this.valueLimitSet.round(position));
+            Double cached = this.designCache.get(design);
+            if (cached != null)
+            {
+                this.duplicateDesigns++;
+                return new BoundedFitness(cached, false);
+            }
+        }
+
+        if (this.archive != null && this.skipDuplicates)
+        {
+            EvaluationArchive.Entry entry = this.archive.lookup(position);
+            if (entry != null)
+            {
+                return new BoundedFitness(entry.getFitness(), false);
+            }
+        }
+
+        this.evaluations++;
+        EvaluationContext context = this.getEvaluationContext(pid);
+        boolean abandoning = context == null &&
+            evaluator instanceof IAbandoningEvaluator && threshold < Double.POSITIVE_INFINITY;
+
+        long start = System.nanoTime();
+        BoundedFitness result = this.callEvaluator(position, context,
+            abandoning ? threshold : Double.POSITIVE_INFINITY);
+        if (result == null)
+        {
+            return null;
+        }
+        double fitness = result.getFitness();
+
+        if (abandoning)
+        {
+            this.thresholdEvaluations++;
+            if (result.isLowerBound())
+            {
+                this.abandonedEvaluations++;
+                this.abandonedNanos += System.nanoTime() - start;
+                return result;
+            }
+            this.completedNanos += System.nanoTime() - start;
+        }
+
+        if (design != null)
+        {
+            this.designCache.put(design, fitness);
+        }
 
-        Particle[] nbrs = new Particle[neighbors.length];
+        if (this.surrogateScreen != null)
+        {
+            this.surrogateScreen.addSample(position, fitness);
+        }
 
-        for (int i = 0; i < nbrs.length; i++)
+        if (this.archive != null)
         {
-            nbrs[i] = particles[neighbors[i]];
+            this.archive.add(position, fitness, violation);
         }
 
-        return nbrs;
+        return result;
     }
 
     /**
-     * Returns the best state achieved by any particle so far.
-     * @return State object.
+     * Evaluates a position afresh, bypassing the design cache and evaluation
+     * archive, as when the fitness landscape may have changed.  The result is not
+     * recorded anywhere.
+     * @param position position vector.
+     * @return fitness, or NaN if every attempt timed out or the calling thread was interrupted.
      */
-    public State getBestSoFar()
+    public double reevaluateFitness(Double[] position)
     {
-        int best_index = 0;
-        double best_fitness = Double.MAX_VALUE;
+        this.evaluations++;
+        BoundedFitness result = this.callEvaluator(position, null,
+            Double.POSITIVE_INFINITY);
+        return result != null ? result.getFitness() : Double.NaN;
+    }
+
+    /**
+     * Responds to a change of the fitness landscape.  The design cache, evaluation
+     * archive, evaluation contexts and kept results of unmoved particles are
+     * discarded.  The chosen particles are placed afresh at random with zero velocity
+     * and take their new position as personal best, and the personal bests of the
+     * others are evaluated again, so that the swarm's memory reflects the new
+     * landscape.  The model of a surrogate screen is cleared too, so that every move
+     * is evaluated until it has been refitted to the new landscape.
+     * @param reinitialize which particles are to be placed afresh, indexed by ID.
+     */
+    public void resetPersonalBests(boolean[] reinitialize)
+    {
+        if (this.designCache != null)
+        {
+            this.designCache.clear();
+        }
+        if (this.archive != null)
+        {
+            this.archive.clear();
+        }
+        if (this.surrogateScreen != null)
+        {
+            this.surrogateScreen.clearModel();
+        }
+        this.evaluationContexts = null;
 
         for (int i = 0; i < particles.length; i++)
         {
-            if (particles[i].getBestFitness() < best_fitness)
+            Particle particle = particles[i];
+            particle.clearEvaluatedState();
+            particle.setIterationsSinceImprovement(0);
+
+            if (reinitialize[i])
             {
-                best_index = i;
-                best_fitness = particles[i].getBestFitness();
+                particle.initialize();
+                Arrays.fill(particle.getCurrentState().getVelocityBuffer(), 0.);
+                particle.getCurrentState().velocityChanged();
+                this.restartParticle(particle);
+            }
+            else
+            {
+                double violation = 0.;
+                if (evaluator instanceof IConstrainedEvaluator)
+                {
+                    violation = ((IConstrainedEvaluator) evaluator).
+                        evaluateConstraintViolation(particle.getBestPosition());
+                }
+                double fitness = Double.MAX_VALUE;
+                if (violation <= this.infeasibilityThreshold)
+                {
+                    fitness = this.reevaluateFitness(particle.getBestPosition());
+                    if (Double.isNaN(fitness))
+                    {
+                        fitness = this.timeoutPenalty;
+                    }
+                }
+                particle.setBestConstraintViolation(violation);
+                particle.setBestFitness(fitness);
             }
         }
 
-        this.bestSoFar = particles[best_index];
-        this.bestSoFarIndex = best_index;
+        this.neighborhoodTopology.updateTopology(particles);
+    }
+
+    /**
+     * Evaluates a particle at its current position and makes that its personal best,
+     * forgetting the old one, as after the particle has been placed afresh.
+     * @param particle the particle.
+     */
+    public void restartParticle(Particle particle)
+    {
+        particle.clearEvaluatedState();
+
+        //  The old personal best must not serve as an abandon threshold
+        particle.setBestFitness(Double.MAX_VALUE);
+        this.evaluateParticle(particle);
+        this.keepEvaluation(particle);
+        this.setPersonalBest(particle);
+    }
+
+    /**
+     * Returns the evaluation context of a particle, creating an empty one if need be.
+     * @param pid ID of the particle, or -1.
+     * @return the context, or null if the evaluator is not an IIncrementalEvaluator or pid is -1.
+     */
+    private EvaluationContext getEvaluationContext(int pid)
+    {
+        if (pid < 0 || !(evaluator instanceof IIncrementalEvaluator))
+        {
+            return null;
+        }
+
+        if (this.evaluationContexts == null ||
+            this.evaluationContexts.length < particles.length)
+        {
+            EvaluationContext[] grown = new EvaluationContext[particles.length];
+            if (this.evaluationContexts != null)
+            {
+                System.arraycopy(this.evaluationContexts, 0, grown, 0,
+                    this.evaluationContexts.length);
+            }
+            this.evaluationContexts = grown;
+        }
+
+        if (this.evaluationContexts[pid] == null)
+        {
+            this.evaluationContexts[pid] = new EvaluationContext();
+        }
+
+        return this.evaluationContexts[pid];
+    }
+
+    /**
+     * Calls the evaluator, subject to the evaluation timeout if one is set.  If a
+     * call with a particle's evaluation context times out, the context is discarded,
+     * as the abandoned call may still be updating it.
+     * @param position position vector.
+     * @param context the particle's evaluation context, or null.
+     * @param threshold abandon threshold for an IAbandoningEvaluator, or positive infinity for none.
+     * @return the result, or null if every attempt timed out or the calling thread was interrupted.
+     */
+    private BoundedFitness callEvaluator(final Double[] position,
+        final EvaluationContext context, final double threshold)
+    {
+        if (this.evaluationTimeout <= 0)
+        {
+            return this.invokeEvaluator(position, context, threshold);
+        }
+
+        for (int attempt = 0; attempt <= this.timeoutRetries; attempt++)
+        {
+            if (this.evaluationExecutor == null)
+            {
+                this.evaluationExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+                {
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread t = new Thread(r, "jpso-evaluation");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            }
+
+            Future<BoundedFitness> future = this.evaluationExecutor.submit(new Callable<BoundedFitness>()
+            {
+                public BoundedFitness call()
+                {
+                    return invokeEvaluator(position, context, threshold);
+                }
+            });
+
+            try
+            {
+                return future.get(this.evaluationTimeout, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e)
+            {
+                this.timeouts++;
+                logger.warn("Evaluation timed out after " +
+                    this.evaluationTimeout + " ms (attempt " + (attempt + 1) + ")");
+                future.cancel(true);
+
+                //  The worker may still be stuck, so leave it behind
+                this.evaluationExecutor.shutdownNow();
+                this.evaluationExecutor = null;
+                this.discardEvaluationContext(context);
+            }
+            catch (InterruptedException e)
+            {
+                future.cancel(true);
+                this.discardEvaluationContext(context);
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Evaluates a position, incrementally if there is an evaluation context that has
+     * already been evaluated at a position of the same size.
+     * @param position position vector.
+     * @param context the particle's evaluation context, or null.
+     * @param threshold abandon threshold for an IAbandoningEvaluator, or positive infinity for none.
+     * @return the result.
+     */
+    private BoundedFitness invokeEvaluator(Double[] position,
+        EvaluationContext context, double threshold)
+    {
+        if (context == null)
+        {
+            if (threshold < Double.POSITIVE_INFINITY)
+            {
+                return ((IAbandoningEvaluator) evaluator).evaluateFitness(position,
+                    threshold);
+            }
+            return new BoundedFitness(evaluator.evaluateFitness(position), false);
+        }
+
+        IIncrementalEvaluator incremental = (IIncrementalEvaluator) evaluator;
+        if (context.context == null || context.position.length != position.length)
+        {
+            context.context = incremental.createContext(position);
+            context.position = position.clone();
+            context.changed = new int[position.length];
+            context.values = new double[position.length];
+            return new BoundedFitness(incremental.getFitness(context.context), false);
+        }
+
+        int count = 0;
+        for (int i = 0; i < position.length; i++)
+        {
+            if (!position[i].equals(context.position[i]))
+            {
+                context.changed[count] = i;
+                context.values[count] = position[i];
+                context.position[i] = position[i];
+                count++;
+            }
+        }
+
+        this.incrementalEvaluations++;
+        return new BoundedFitness(incremental.evaluateChanges(context.context,
+            context.changed, context.values, count), false);
+    }
+
+    /**
+     * Discards an evaluation context after a failed call, by replacing it with an
+     * empty one so the particle is next evaluated in full.
+     * @param context the context, or null.
+     */
+    private void discardEvaluationContext(EvaluationContext context)
+    {
+        if (context == null)
+        {
+            return;
+        }
+
+        for (int i = 0; i < this.evaluationContexts.length; i++)
+        {
+            if (this.evaluationContexts[i] == context)
+            {
+                this.evaluationContexts[i] = new EvaluationContext();
+            }
+        }
+    }
+
+    /**
+     * Adds to the count of fitness evaluations, for subclasses that call the
+     * evaluator directly.
+     * @param count number of evaluations performed.
+     */
+    protected void addEvaluations(long count)
+    {
+        this.evaluations += count;
+    }
+
+    /**
+     * Evaluates the current position of a particle.  If the evaluator is an
+     * IConstrainedEvaluator the constraints are checked first, and a clearly
+     * infeasible position is given the worst possible fitness without evaluating the
+     * objective.  If the evaluator is an IAbandoningEvaluator, the particle's personal
+     * best fitness is given as the abandon threshold, and a result the evaluator
+     * reports as abandoned is marked as a lower bound.
+     * @param particle the particle to evaluate.
+     */
+    protected void evaluateParticle(Particle particle)
+    {
+        double violation = 0.;
+        if (evaluator instanceof IConstrainedEvaluator)
+        {
+            violation = ((IConstrainedEvaluator) evaluator).
+                evaluateConstraintViolation(particle.getCurrentPosition());
+        }
+        particle.setCurrentConstraintViolation(violation);
+
+        boolean bound = false;
+        boolean penalty = false;
+        if (violation > this.infeasibilityThreshold)
+        {
+            this.objectivesSkipped++;
+            particle.setCurrentFitness(Double.MAX_VALUE);
+        }
+        else
+        {
+            //  A feasible position can only beat a feasible personal best on fitness
+            double threshold = Double.POSITIVE_INFINITY;
+            if (evaluator instanceof IAbandoningEvaluator && violation <= 0. &&
+                particle.getBestConstraintViolation() <= 0.)
+            {
+                threshold = particle.getBestFitness();
+            }
+
+            if (this.isPrimitiveEvaluation())
+            {
+                this.evaluations++;
+                particle.setCurrentFitness(((IPrimitiveEvaluator) evaluator).
+                    evaluateFitness(particle.getCurrentState().getPositionBuffer()));
+            }
+            else
+            {
+                BoundedFitness result = this.evaluate(particle.getCurrentPosition(),
+                    particle.getID(), threshold, violation);
+                if (result == null)
+                {
+                    particle.setCurrentFitness(this.timeoutPenalty);
+                    penalty = true;
+                }
+                else
+                {
+                    particle.setCurrentFitness(result.getFitness());
+                    bound = result.isLowerBound();
+                }
+            }
+        }
+        particle.getCurrentState().setFitnessBound(bound);
+        particle.getCurrentState().setFitnessPenalty(penalty);
+    }
+
+    /**
+     * Keeps the result of a particle's evaluation, so that it need not be evaluated
+     * again until it moves.  A penalty for an evaluation that timed out or was
+     * interrupted is not kept, so the particle is evaluated again next iteration.
+     * @param particle the particle just evaluated.
+     */
+    private void keepEvaluation(Particle particle)
+    {
+        if (particle.getCurrentState().isFitnessPenalty())
+        {
+            particle.clearEvaluatedState();
+        }
+        else
+        {
+            particle.recordEvaluatedState();
+        }
+    }
+
+    /**
+     * Returns whether particles may be evaluated by passing the buffer of their
+     * position to an IPrimitiveEvaluator, because nothing else needs the boxed
+     * position.
+     * @return true if evaluations may use the position buffer.
+     */
+    private boolean isPrimitiveEvaluation()
+    {
+        return evaluator instanceof IPrimitiveEvaluator &&
+            !(evaluator instanceof IIncrementalEvaluator) &&
+            !(evaluator instanceof IAbandoningEvaluator) &&
+            this.designCache == null && this.archive == null &&
+            this.surrogateScreen == null && this.evaluationTimeout <= 0;
+    }
+
+    /**
+     * Makes the current state of a particle its personal best.  The position is
+     * copied into the buffer of the personal best, so nothing is allocated.
+     * @param particle the particle.
+     */
+    protected void setPersonalBest(Particle particle)
+    {
+        particle.getBestState().copyPosition(particle.getCurrentState());
+        particle.setBestFitness(particle.getCurrentFitness());
+        particle.setBestConstraintViolation(particle.getCurrentConstraintViolation());
+        particle.getBestState().setObjectives(particle.getCurrentState().getObjectives());
+        particle.setIterationsSinceImprovement(0);
+    }
+
+    /**
+     * Replaces the personal best of a particle with its current state if that is
+     * better, by the feasibility rules of State.isBetter.  A fitness that is only a
+     * lower bound, or a penalty for an evaluation that timed out, never replaces it.
+     * @param particle the particle.
+     * @return true if the personal best improved.
+     */
+    protected boolean updatePersonalBest(Particle particle)
+    {
+        if (!particle.getCurrentState().isFitnessBound() &&
+            !particle.getCurrentState().isFitnessPenalty() &&
+            particle.getCurrentState().isBetterThan(particle.getBestState()))
+        {
+            this.setPersonalBest(particle);
+            return true;
+        }
+
+        particle.setIterationsSinceImprovement(particle.getIterationsSinceImprovement() + 1);
+        return false;
+    }
+
+    /**
+     * Sets the initializer that chooses the initial positions of the particles.
+     * Particles added later by a SwarmSizeController are still placed at random.
+     * @param initializer the initializer, or null to place each particle at random.
+     * @param numberOfThreads number of threads filling the positions at once.
+     */
+    public void setInitializer(IInitializer initializer, int numberOfThreads)
+    {
+        this.initializer = initializer;
+        this.initializerThreads = Math.max(1, numberOfThreads);
+    }
+
+    /**
+     * Returns the initializer that chooses the initial positions of the particles.
+     * @return the initializer, or null if each particle is placed at random.
+     */
+    public IInitializer getInitializer()
+    {
+        return this.initializer;
+    }
+
+    /**
+     * Initializes the particles in the swarm.  Sets initial positions, randomly or by
+     * the initializer if one is set, and evaluates fitness of those positions.
+     */
+    public void initializeParticles()
+    {
+        logger.info("Initializing Swarm");
+
+        this.initializePositions();
+
+        this.preevaluateSwarm();
+
+        for (int i = 0; i < particles.length; i++)
+        {
+            long start = System.nanoTime();
+            this.evaluateParticle(particles[i]);
+            this.evaluationCost = smoothCost(this.evaluationCost,
+                System.nanoTime() - start);
+            this.keepEvaluation(particles[i]);
+
+            this.setPersonalBest(particles[i]);
+        }
+
+        this.postevaluateSwarm();
+
+        this.neighborhoodTopology.updateTopology(particles);
+
+        this.publishSnapshot(-1);
+    }
+
+    /**
+     * Sets the initial positions of the particles.  With an initializer, the
+     * positions are filled in contiguous blocks of particles on a temporary thread
+     * pool.
+     */
+    private void initializePositions()
+    {
+        if (this.initializer == null)
+        {
+            for (int i = 0; i < particles.length; i++)
+            {
+                particles[i].initialize();
+            }
+            return;
+        }
+
+        final IInitializer init = this.initializer;
+        final Particle[] ps = this.particles;
+        init.prepare(ps.length, this.valueLimitSet);
+
+        int threads = Math.min(this.initializerThreads, ps.length);
+        if (threads <= 1)
+        {
+            for (int i = 0; i < ps.length; i++)
+            {
+                ps[i].initialize(init, i);
+            }
+            return;
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (int t = 0; t < threads; t++)
+        {
+            final int first = (int) ((long) t * ps.length / threads);
+            final int last = (int) ((long) (t + 1) * ps.length / threads);
+            tasks.add(new Callable<Object>()
+            {
+                public Object call()
+                {
+                    for (int i = first; i < last; i++)
+                    {
+                        ps[i].initialize(init, i);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "jpso-initializer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        try
+        {
+            for (Future<Object> future : pool.invokeAll(tasks))
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            //  Finish on this thread, so that no particle is left unplaced
+            for (int i = 0; i < ps.length; i++)
+            {
+                ps[i].initialize(init, i);
+            }
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Evaluates the particles in the swarm.  Unless re-evaluation is forced, only
+     * positions that are new this iteration are evaluated, and particles that have not
+     * moved or that share a position take the result already found.
+     */
+    protected void evaluateParticles()
+    {
+        boolean[] evaluate = null;
+        if (this.surrogateScreen != null)
+        {
+            evaluate = this.surrogateScreen.screen(particles);
+        }
+
+        int[] evaluated = this.forceReevaluation ? null : this.clearPositionTable();
+
+        for (int i = 0; i < particles.length; i++)
+        {
+            if (this.isStopRequested(this.evaluationCost))
+            {
+                //  Unevaluated particles keep their personal bests, so the best so far is intact
+                this.stopped = true;
+                return;
+            }
+
+            if (evaluate != null && !evaluate[i])
+            {
+                //  Screened out: keep the prediction, but never as a personal best
+                particles[i].setCurrentFitness(this.surrogateScreen.getPrediction(i));
+                particles[i].setIterationsSinceImprovement(particles[i].getIterationsSinceImprovement() + 1);
+                this.surrogateScreen.recordScreenedOut(i);
+                continue;
+            }
+
+            int slot = -1;
+            boolean reused = false;
+            if (evaluated != null)
+            {
+                slot = this.findPosition(particles[i].getCurrentState());
+                if (this.reuseEvaluation(particles[i], particles[i]))
+                {
+                    this.unmovedParticles++;
+                    reused = true;
+                }
+                else if (evaluated[slot] > 0 &&
+                    this.reuseEvaluation(particles[evaluated[slot] - 1], particles[i]))
+                {
+                    this.sharedEvaluations++;
+                    reused = true;
+                }
+            }
+
+            long previous = this.evaluations;
+            if (!reused)
+            {
+                long start = System.nanoTime();
+                this.evaluateParticle(particles[i]);
+                this.evaluationCost = smoothCost(this.evaluationCost,
+                    System.nanoTime() - start);
+                this.keepEvaluation(particles[i]);
+            }
+
+            if (slot >= 0 && evaluated[slot] == 0)
+            {
+                evaluated[slot] = i + 1;
+            }
+
+            boolean improved = this.updatePersonalBest(particles[i]);
+
+            //  Only an exact, feasible result of the evaluator itself measures the model
+            State current = particles[i].getCurrentState();
+            if (evaluate != null && this.evaluations > previous &&
+                current.getConstraintViolation() <= 0. && !current.isFitnessBound() &&
+                !current.isFitnessPenalty())
+            {
+                this.surrogateScreen.recordEvaluation(i, current.getFitness(), improved);
+            }
+        }
+    }
+
+    /**
+     * Empties the table of positions evaluated in this iteration, growing it if need
+     * be so that it is at most half full.
+     * @return the table.
+     */
+    private int[] clearPositionTable()
+    {
+        int capacity = 2;
+        while (capacity < 2 * particles.length)
+        {
+            capacity <<= 1;
+        }
+
+        if (this.positionTable == null || this.positionTable.length < capacity)
+        {
+            this.positionTable = new int[capacity];
+        }
+        else
+        {
+            Arrays.fill(this.positionTable, 0);
+        }
+
+        return this.positionTable;
+    }
+
+    /**
+     * Finds the slot of the position table holding a particle at the same position as
+     * a state, by open addressing with linear probing.  A slot holds the index of the
+     * particle plus one, or zero if empty.
+     * @param state the state.
+     * @return the slot holding a particle at the position, or the empty slot where one would be added.
+     */
+    private int findPosition(State state)
+    {
+        int mask = this.positionTable.length - 1;
+        int hash = Arrays.hashCode(state.getPositionBuffer());
+        int slot = (hash ^ (hash >>> 16)) & mask;
+
+        while (this.positionTable[slot] != 0 && !particles[this.positionTable[slot] - 1].
+            getCurrentState().hasSamePosition(state))
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Gives a particle the result of an earlier evaluation at its current position,
+     * if there is one.  A result that is only a lower bound is reused only if it
+     * still exceeds the particle's personal best.
+     * @param source the particle whose last evaluation is to be reused.
+     * @param particle the particle to receive it.
+     * @return true if the result was reused.
+     */
+    private boolean reuseEvaluation(Particle source, Particle particle)
+    {
+        State result = source.getEvaluatedState();
+        if (result == null || !result.hasSamePosition(particle.getCurrentState()) ||
+            (result.isFitnessBound() && !(result.getFitness() > particle.getBestFitness())))
+        {
+            return false;
+        }
+
+        State current = particle.getCurrentState();
+        current.setFitness(result.getFitness());
+        current.setConstraintViolation(result.getConstraintViolation());
+        current.setObjectives(result.getObjectives());
+        current.setFitnessBound(result.isFitnessBound());
+        current.setFitnessPenalty(false);
+
+        if (source != particle)
+        {
+            particle.recordEvaluatedState();
+        }
+        return true;
+    }
+
+    /**
+     * Preevaluates the swarm.
+     */
+    protected void preevaluateSwarm()
+    {
+        evaluator.preevaluate(particles);
+    }
+
+    /**
+     * Postevaluates the swarm.
+     */
+    protected void postevaluateSwarm()
+    {
+        evaluator.postevaluate(particles);
+    }
+
+    /**
+     * Iterates the swarm.  The run stops early if it is cancelled or the thread is
+     * interrupted.
+     * @param max_iterations max number of iterations to be computed by the swarm.
+     */
+    public void iterate(int max_iterations)
+    {
+        for (int i = 0; i < max_iterations && !this.isStopRequested(0.); i++)
+        {
+            if (!this.performIteration(i, max_iterations))
+            {
+                break;
+            }
+        }
+
+        this.finishRun();
+    }
+
+    /**
+     * Iterates the swarm until a time budget is spent, and returns the best state
+     * found.  The costs of an iteration and of an evaluation are measured as the swarm
+     * runs.  Another iteration is started only if it is expected to finish within the
+     * budget, and the evaluations of an iteration stop once the next would overrun
+     * it.  The number of iterations given to the movers, which drives schedules such as
+     * a decreasing inertia weight, is estimated from the time remaining.  The run also
+     * stops early if it is cancelled.
+     * @param budget_millis time budget in milliseconds.
+     * @return the best state found, as returned by getBestSoFar.
+     */
+    public State iterateFor(long budget_millis)
+    {
+        long start = System.nanoTime();
+        this.deadline = start + budget_millis * 1000000L;
+
+        if (this.iterationCost <= 0.)
+        {
+            //  Until an iteration has been timed, assume it costs one evaluation per particle
+            this.iterationCost = this.evaluationCost * particles.length;
+        }
+
+        int i = 0;
+        while (!this.isStopRequested(0.))
+        {
+            long remaining = this.deadline - System.nanoTime();
+            if (remaining <= 0 || (i > 0 && remaining < this.iterationCost))
+            {
+                break;
+            }
+
+            int max_iterations = i + 1;
+            if (this.iterationCost > 0.)
+            {
+                max_iterations += (int) Math.min(Integer.MAX_VALUE - i - 1,
+                    Math.max(0., remaining / this.iterationCost - 1.));
+            }
+
+            if (!this.performIteration(i, max_iterations))
+            {
+                break;
+            }
+            i++;
+        }
+
+        logger.info("Completed " + i + " iterations in " +
+            (System.nanoTime() - start) / 1000000L + " ms");
+
+        this.deadline = NO_DEADLINE;
+        this.finishRun();
+
+        return this.getBestSoFar();
+    }
+
+    /**
+     * Performs a single iteration, for callers such as CooperativeSwarm that drive
+     * the swarm themselves.  The swarm must have been initialized.
+     * @param current_iteration the current iteration.
+     * @param max_iterations max number of iterations, as given to the movers.
+     * @return false if the iteration was stopped before it completed.
+     */
+    public boolean step(int current_iteration, int max_iterations)
+    {
+        return this.performIteration(current_iteration, max_iterations);
+    }
+
+    /**
+     * Performs one iteration of the swarm.  If the run is stopped while the particles
+     * are being evaluated, the rest of the iteration is skipped.
+     * @param current_iteration the current iteration.
+     * @param max_iterations max number of iterations, as given to the movers.
+     * @return false if the iteration was stopped before it completed.
+     */
+    private boolean performIteration(int current_iteration, int max_iterations)
+    {
+        long start = System.nanoTime();
+        this.iterations++;
+
+        if (logger.isInfoEnabled())
+        {
+            logger.info("Iteration: " + (current_iteration + 1));
+        }
+
+        if (this.changeDetector != null)
+        {
+            this.changeDetector.detectChange(this, current_iteration);
+        }
+
+        if (this.stats != null)
+        {
+            this.stats.outputSwarmStats(particles, current_iteration);
+        }
+
+        if (this.mover instanceof IScheduledMover)
+        {
+            //  Update the mover's parameters once, rather than as each particle moves
+            ((IScheduledMover) this.mover).updateSchedules(this, current_iteration,
+                max_iterations);
+        }
+
+        long move_start = System.nanoTime();
+        this.moveParticles(current_iteration, max_iterations);
+
+        long evaluate_start = System.nanoTime();
+        this.moveNanos += evaluate_start - move_start;
+
+        this.preevaluateSwarm();
+
+        this.stopped = false;
+        this.evaluateParticles();
+        if (this.stopped)
+        {
+            logger.info("Stopped during iteration " + (current_iteration + 1));
+            this.evaluateNanos += System.nanoTime() - evaluate_start;
+            this.publishSnapshot(current_iteration);
+            return false;
+        }
+
+        this.postevaluateSwarm();
+
+        long update_start = System.nanoTime();
+        this.evaluateNanos += update_start - evaluate_start;
+
+        if (this.sizeController != null)
+        {
+            this.sizeController.adjustSwarm(this, current_iteration);
+        }
+
+        this.neighborhoodTopology.updateTopology(particles);
+
+        this.publishSnapshot(current_iteration);
+
+        for (int i = 0; i < listeners.size(); i++)
+        {
+            listeners.get(i).iterationCompleted(this, current_iteration);
+        }
+
+        long end = System.nanoTime();
+        this.updateNanos += (end - update_start) + (move_start - start);
+        this.iterationCost = smoothCost(this.iterationCost, end - start);
+
+        return true;
+    }
+
+    /**
+     * Completes a run of the swarm, clearing any cancellation.
+     */
+    private void finishRun()
+    {
+        this.cancelled = false;
+
+        if (this.evaluationExecutor != null)
+        {
+            this.evaluationExecutor.shutdown();
+            this.evaluationExecutor = null;
+        }
+
+        if (this.surrogateScreen != null)
+        {
+            logger.info(this.surrogateScreen.toString());
+        }
+    }
+
+    /**
+     * Requests that the current run stop.  May be called from any thread.  The swarm
+     * stops before its next evaluation, and its personal bests and best so far remain
+     * valid.  If no run is in progress, the next run stops at once.  Interrupting the
+     * thread running the swarm has the same effect, and leaves its interrupt status
+     * set.
+     */
+    public void cancel()
+    {
+        this.cancelled = true;
+    }
+
+    /**
+     * Returns whether cancellation of the current run has been requested.
+     * @return true if cancelled.
+     */
+    public boolean isCancelled()
+    {
+        return this.cancelled;
+    }
+
+    /**
+     * Returns whether work expected to take some time should not be started, because
+     * the run has been cancelled, the thread has been interrupted, or the work would
+     * overrun the deadline of iterateFor.
+     * @param cost expected duration of the work in nanoseconds.
+     * @return true if the swarm should stop.
+     */
+    protected boolean isStopRequested(double cost)
+    {
+        return this.cancelled || Thread.currentThread().isInterrupted() ||
+            (this.deadline != NO_DEADLINE &&
+            this.deadline - System.nanoTime() < cost);
+    }
+
+    /**
+     * Returns the moving average of the cost of an evaluation.
+     * @return average duration in nanoseconds.
+     */
+    public double getEvaluationCost()
+    {
+        return this.evaluationCost;
+    }
+
+    /**
+     * Returns the moving average of the cost of an iteration.
+     * @return average duration in nanoseconds.
+     */
+    public double getIterationCost()
+    {
+        return this.iterationCost;
+    }
+
+    /**
+     * Updates an exponentially weighted moving average of a cost.
+     * @param average the current average, or 0 if there is none.
+     * @param cost the latest cost.
+     * @return the updated average.
+     */
+    private static double smoothCost(double average, double cost)
+    {
+        if (average <= 0.)
+        {
+            return cost;
+        }
+        return average + COST_SMOOTHING * (cost - average);
+    }
+
+    /**
+     * Adds new particles to the swarm.  The new particles are randomly initialized and
+     * evaluated, and take the IDs following the existing particles.
+     * @param count number of particles to add.
+     */
+    public void addParticles(int count)
+    {
+        if (count <= 0)
+        {
+            return;
+        }
+
+        int[] id_map = new int[particles.length];
+        for (int i = 0; i < id_map.length; i++)
+        {
+            id_map[i] = i;
+        }
+
+        Particle[] added = new Particle[count];
+        Particle[] resized = new Particle[particles.length + count];
+        System.arraycopy(particles, 0, resized, 0, particles.length);
+        for (int i = 0; i < count; i++)
+        {
+            added[i] = new Particle(particles.length + i, valueLimitSet, mover);
+            added[i].initialize();
+            resized[particles.length + i] = added[i];
+        }
+
+        evaluator.preevaluate(added);
+        for (Particle p : added)
+        {
+            this.evaluateParticle(p);
+            this.setPersonalBest(p);
+        }
+        evaluator.postevaluate(added);
+
+        this.resizeSwarm(resized, id_map);
+    }
+
+    /**
+     * Removes particles from the swarm.  The surviving particles keep their order and
+     * are renumbered from zero.
+     * @param remove flags, indexed by particle ID, of the particles to be removed.
+     */
+    public void removeParticles(boolean[] remove)
+    {
+        int[] id_map = new int[particles.length];
+        int count = 0;
+        for (int i = 0; i < particles.length; i++)
+        {
+            id_map[i] = remove[i] ? -1 : count++;
+        }
+
+        if (count == particles.length)
+        {
+            return;
+        }
+        else if (count == 0)
+        {
+            logger.error("Cannot remove every particle from the swarm");
+            return;
+        }
+
+        Particle[] resized = new Particle[count];
+        for (int i = 0; i < particles.length; i++)
+        {
+            if (id_map[i] >= 0)
+            {
+                resized[id_map[i]] = particles[i];
+            }
+        }
+
+        this.resizeSwarm(resized, id_map);
+    }
+
+    /**
+     * Installs a resized particle array, renumbers the particles, and brings the
+     * topology and listeners up to date.
+     * @param resized the new particle array.
+     * @param id_map maps each old particle ID to its new ID, or to -1 if removed.
+     */
+    private void resizeSwarm(Particle[] resized, int[] id_map)
+    {
+        logger.info("Resizing swarm from " + particles.length + " to " +
+            resized.length + " particles");
+
+        this.particles = resized;
+        for (int i = 0; i < particles.length; i++)
+        {
+            particles[i].setID(i);
+        }
+
+        if (this.bestSoFarIndex >= 0)
+        {
+            this.bestSoFarIndex = id_map[bestSoFarIndex];
+            if (this.bestSoFarIndex < 0)
+            {
+                this.bestSoFar = null;
+            }
+        }
+
+        this.neighborhoodTopology.resize(id_map, particles.length);
+
+        if (this.evaluationContexts != null)
+        {
+            EvaluationContext[] remapped = new EvaluationContext[particles.length];
+            for (int i = 0; i < id_map.length && i < this.evaluationContexts.length; i++)
+            {
+                if (id_map[i] >= 0)
+                {
+                    remapped[id_map[i]] = this.evaluationContexts[i];
+                }
+            }
+            this.evaluationContexts = remapped;
+        }
+
+        for (ISwarmListener listener : listeners)
+        {
+            listener.swarmResized(this, id_map);
+        }
+    }
+
+    /**
+     * Moves the particles in the swarm.
+     * @param current_iteration Current iteration.
+     * @param max_iterations Max number of iterations.
+     */
+    protected void moveParticles(int current_iteration, int max_iterations)
+    {
+        for (int p = 0; p < particles.length; p++)
+        {
+            particles[p].moveParticle(getNeighbors(p), current_iteration,
+                max_iterations);
+        }
+    }
+
+    /**
+     * Returns the neighborhood topology.
+     * @return NeighborhoodTopology object.
+     */
+    public NeighborhoodTopology getNeighborhoodTopology()
+    {
+        return this.neighborhoodTopology;
+    }
+
+    /**
+     * Returns the neighboring particles.  The arrays are cached until the topology or
+     * the particles change, so the array returned must not be modified.
+     * @param pid ID of the particle for which neighbors are to be returned.
+     * @return a Java array of particles.
+     */
+    protected Particle[] getNeighbors(int pid)
+    {
+        if (this.neighborCache == null || this.neighborCache.length != particles.length ||
+            this.neighborCacheVersion != this.neighborhoodTopology.getVersion())
+        {
+            this.neighborCache = new Particle[particles.length][];
+            this.neighborCacheVersion = this.neighborhoodTopology.getVersion();
+        }
+
+        if (this.neighborCache[pid] == null)
+        {
+            Integer[] neighbors = this.neighborhoodTopology.getNeighborIDs(pid);
+
+            Particle[] nbrs = new Particle[neighbors.length];
+
+            for (int i = 0; i < nbrs.length; i++)
+            {
+                nbrs[i] = particles[neighbors[i]];
+            }
+
+            this.neighborCache[pid] = nbrs;
+        }
+
+        return this.neighborCache[pid];
+    }
+
+    /**
+     * Sets whether a snapshot is published at the end of each iteration.  Taking one
+     * costs a pass over the particles and their positions, so it is only done once a
+     * reader has asked for snapshots, by this method or by calling getSnapshot.
+     * @param snapshotsEnabled true to publish snapshots.
+     */
+    public void setSnapshotsEnabled(boolean snapshotsEnabled)
+    {
+        this.snapshotsEnabled = snapshotsEnabled;
+    }
+
+    /**
+     * Returns whether a snapshot is published at the end of each iteration.
+     * @return true if snapshots are published.
+     */
+    public boolean isSnapshotsEnabled()
+    {
+        return this.snapshotsEnabled;
+    }
+
+    /**
+     * Returns the snapshot published at the end of the latest iteration.  Unlike
+     * getBestSoFar, this may be called from any thread while the swarm iterates, and
+     * costs no more than a volatile read.  The first call enables snapshots if they
+     * were not already, so it may return null until the current iteration ends.
+     * @return SwarmSnapshot object, or null if none has been published yet.
+     */
+    public SwarmSnapshot getSnapshot()
+    {
+        if (!this.snapshotsEnabled)
+        {
+            this.snapshotsEnabled = true;
+        }
+        return this.snapshot;
+    }
+
+    /**
+     * Takes a snapshot of the swarm and publishes it to readers of getSnapshot, if
+     * snapshots are enabled.
+     * @param current_iteration the iteration just completed, or -1 after initialization.
+     */
+    protected void publishSnapshot(int current_iteration)
+    {
+        if (!this.snapshotsEnabled)
+        {
+            return;
+        }
+
+        State best = this.getBestSoFar();
+
+        double mean_best_fitness = 0.;
+        for (Particle p : particles)
+        {
+            mean_best_fitness += p.getBestFitness();
+        }
+        mean_best_fitness /= particles.length;
+
+        long now = System.nanoTime();
+        double evaluations_per_second = now > this.rateStart ?
+            (this.evaluations - this.rateEvaluations) * 1.e9 / (now - this.rateStart) : 0.;
+        this.rateEvaluations = this.evaluations;
+        this.rateStart = now;
+
+        this.snapshot = new SwarmSnapshot(current_iteration, this.evaluations,
+            best.getFitness(), best.getConstraintViolation(), best.getPositionBuffer(),
+            this.bestSoFarIndex, particles.length, mean_best_fitness,
+            this.getDiversity(particles), evaluations_per_second, this.moveNanos,
+            this.evaluateNanos, this.updateNanos);
+    }
+
+    /**
+     * Returns the best state achieved by any particle so far.  The state is the live
+     * personal best of a particle, so this should only be called from the thread
+     * iterating the swarm; other threads should use getSnapshot.
+     * @return State object.
+     */
+    public State getBestSoFar()
+    {
+        int best_index = 0;
+
+        for (int i = 1; i < particles.length; i++)
+        {
+            if (particles[i].hasBetterBestThan(particles[best_index]))
+            {
+                best_index = i;
+            }
+        }
+
+        this.bestSoFar = particles[best_index];
+        this.bestSoFarIndex = best_index;
         
         return bestSoFar.getBestState();
     }
 
+    /**
+     * Returns the diversity factor of the swarm.  This is calculated using the equation of Riget and Vesterstrom.
+     * @param particles The particles in the swarm.
+     * @return the diversity of the swarm.
+     */
+    protected double getDiversity(Particle[] particles)
+    {
+        int pos_length = particles[0].getCurrentState().getPositionBuffer().length;
+
+        //  Find average position
+        if (this.averagePosition == null || this.averagePosition.length != pos_length)
+        {
+            this.averagePosition = new double[pos_length];
+        }
+        double[] ave_position = this.averagePosition;
+        for (int i = 0; i < pos_length; i++)
+        {
+            ave_position[i] = 0.;
+            for (Particle p : particles)
+            {
+                ave_position[i] += p.getCurrentState().getPositionBuffer()[i];
+            }
+
+            ave_position[i] /= particles.length;
+        }
+
+        //  Find max diagonal in search space
+        ValueLimitSet vLim = particles[0].getValueLimitSet();
+        double diag_length = 0.;
+        for (int i = 0; i < vLim.getSize(); i++)
+        {
+            double diff = vLim.getValueLimits(i).getMaximum() - vLim.getValueLimits(i).
+                getMinimum();
+
+            diag_length += diff * diff;
+        }
+
+        diag_length = Math.sqrt(diag_length);
+
+        double diversity = 0.;
+        for (Particle p : particles)
+        {
+            double variance = 0.;
+            for (int i = 0; i < pos_length; i++)
+            {
+                double diff = p.getCurrentState().getPositionBuffer()[i] -
+                    ave_position[i];
+                variance += diff * diff;
+            }
+
+            diversity += Math.sqrt(variance);
+        }
+
+        diversity /= (particles.length * diag_length);
+
+        return diversity;
+    }
+
+    /**
+     * Writes the personal bests of the particles to a file, best first, one per line
+     * as tab-separated fitness, constraint violation and position values.  This is the format written by
+     * EvaluationArchive.export, so either may be read by SeededInitializer.read to
+     * warm-start a later swarm.
+     * @param file the file to write.
+     * @return true if there was an IOException.
+     */
+    public boolean exportPersonalBests(File file)
+    {
+        boolean error = false;
+
+        Particle[] sorted = particles.clone();
+        Arrays.sort(sorted, new Comparator<Particle>()
+        {
+            public int compare(Particle a, Particle b)
+            {
+                return a.hasBetterBestThan(b) ? -1 : b.hasBetterBestThan(a) ? 1 : 0;
+            }
+        });
+
+        try
+        {
+            PrintWriter outFile = new PrintWriter(new FileWriter(file, false));
+
+            for (Particle p : sorted)
+            {
+                StringBuilder line = new StringBuilder();
+                line.append(p.getBestFitness()).append('\t').append(
+                    p.getBestConstraintViolation());
+                for (Double x : p.getBestPosition())
+                {
+                    line.append('\t').append(x);
+                }
+                outFile.println(line);
+            }
+            outFile.close();
+        }
+        catch (IOException e)
+        {
+            logger.error("ERROR - Could not write to file: " +
+                file.getAbsolutePath());
+            logger.error("IO Exception: " + e);
+            error = true;
+        }
+
+        return error;
+    }
+
     /**
      * Returns the index of the particle with the best state so far
      * @return best particle so far
@@ -0,0 +1,237 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import org.apache.logging.log4j.*;
+
+/**
+ *  Adapts the number of particles in a swarm while it iterates.  Particles that
+ *  are stagnant, or redundant because they have collapsed onto the swarm's best
+ *  position, are removed so they stop costing evaluations.  New particles are
+ *  added when the swarm's best has stalled or its diversity has dropped.  After
+ *  particles are added, no more are added for stallLimit iterations, so that a swarm
+ *  that stays below the diversity threshold does not grow every iteration.
+ *
+ * @author Jeff Ridder
+ */
+public class SwarmSizeController
+{
+    private int minParticles;
+
+    private int maxParticles;
+
+    private int stagnationLimit;
+
+    private double redundancyRadius;
+
+    private int stallLimit;
+
+    private double diversityThreshold;
+
+    private int growthCount;
+
+    private int maxRemovals;
+
+    private double bestFitness;
+
+    private double bestViolation;
+
+    private int stallCount;
+
+    private int growthCooldown;
+
+    private final static Logger logger = LogManager.getLogger(SwarmSizeController.class);
+
+    /**
+     * Creates a new instance of SwarmSizeController.
+     * @param minParticles The swarm is never shrunk below this size.
+     * @param maxParticles The swarm is never grown above this size.
+     * @param stagnationLimit Number of iterations without improvement of its personal best after which a particle may be removed.
+     * @param redundancyRadius A particle whose current and best positions are both within this distance of the swarm's best position is redundant and may be removed.  Zero disables redundancy removal.
+     * @param stallLimit Number of iterations without improvement of the swarm's best after which particles are added.
+     * @param diversityThreshold Particles are added when the swarm diversity falls below this value, at most once every stallLimit iterations.  Zero disables diversity-driven growth.
+     * @param growthCount Number of particles added at a time.
+     * @param maxRemovals Maximum number of particles removed per iteration.
+     */
+    public SwarmSizeController(int minParticles, int maxParticles,
+        int stagnationLimit, double redundancyRadius, int stallLimit,
+        double diversityThreshold, int growthCount, int maxRemovals)
+    {
+        this.minParticles = Math.max(1, minParticles);
+        this.maxParticles = Math.max(this.minParticles, maxParticles);
+        this.stagnationLimit = stagnationLimit;
+        this.redundancyRadius = redundancyRadius;
+        this.stallLimit = stallLimit;
+        this.diversityThreshold = diversityThreshold;
+        this.growthCount = growthCount;
+        this.maxRemovals = maxRemovals;
+        this.bestFitness = Double.MAX_VALUE;
+        this.bestViolation = Double.MAX_VALUE;
+        this.stallCount = 0;
+        this.growthCooldown = 0;
+    }
+
+    /**
+     * Adds and removes particles.  Called by the swarm after each evaluation pass.
+     * @param swarm the swarm to adjust.
+     * @param current_iteration the current iteration.
+     */
+    public void adjustSwarm(Swarm swarm, int current_iteration)
+    {
+        Particle[] particles = swarm.getParticles();
+
+        //  Find the swarm's best and track how long it has stalled
+        int best_index = 0;
+        for (int i = 1; i < particles.length; i++)
+        {
+            if (particles[i].hasBetterBestThan(particles[best_index]))
+            {
+                best_index = i;
+            }
+        }
+
+        if (State.isBetter(particles[best_index].getBestFitness(),
+            particles[best_index].getBestConstraintViolation(), this.bestFitness,
+            this.bestViolation))
+        {
+            this.bestFitness = particles[best_index].getBestFitness();
+            this.bestViolation = particles[best_index].getBestConstraintViolation();
+            this.stallCount = 0;
+        }
+        else
+        {
+            this.stallCount++;
+        }
+
+        if (this.growthCooldown > 0)
+        {
+            this.growthCooldown--;
+        }
+
+        if (this.stallCount >= this.stallLimit ||
+            (this.growthCooldown == 0 && this.diversityThreshold > 0. &&
+            swarm.getDiversity(particles) < this.diversityThreshold))
+        {
+            int count = Math.min(this.growthCount,
+                this.maxParticles - particles.length);
+            if (count > 0)
+            {
+                logger.info("Adding " + count + " particles at iteration " +
+                    current_iteration);
+                swarm.addParticles(count);
+                this.stallCount = 0;
+                this.growthCooldown = this.stallLimit;
+                return;
+            }
+
+            //  Already at the largest size, so the stall is handled by shrinking instead
+            this.stallCount = 0;
+        }
+
+        //  Remove the worst of the stagnant and redundant particles
+        int removable = Math.min(this.maxRemovals,
+            particles.length - this.minParticles);
+        if (removable <= 0)
+        {
+            return;
+        }
+
+        Double[] best_position = particles[best_index].getBestPosition();
+        ArrayList<Integer> candidates = new ArrayList<Integer>();
+        for (int i = 0; i < particles.length; i++)
+        {
+            if (i != best_index && isRemovable(particles[i], best_position))
+            {
+                candidates.add(i);
+            }
+        }
+
+        if (candidates.isEmpty())
+        {
+            return;
+        }
+
+        if (candidates.size() > removable)
+        {
+            //  Worst first, by the feasibility rules
+            final Particle[] sorted = particles;
+            Collections.sort(candidates, new Comparator<Integer>()
+            {
+                public int compare(Integer a, Integer b)
+                {
+                    if (sorted[b].hasBetterBestThan(sorted[a]))
+                    {
+                        return -1;
+                    }
+                    return sorted[a].hasBetterBestThan(sorted[b]) ? 1 : 0;
+                }
+            });
+        }
+
+        boolean[] remove = new boolean[particles.length];
+        int count = Math.min(removable, candidates.size());
+        for (int i = 0; i < count; i++)
+        {
+            remove[candidates.get(i)] = true;
+        }
+
+        logger.info("Removing " + count + " particles at iteration " +
+            current_iteration);
+        swarm.removeParticles(remove);
+    }
+
+    /**
+     * Returns whether a particle is stagnant or redundant.
+     * @param particle the particle.
+     * @param best_position the best position found by the swarm.
+     * @return true if the particle may be removed.
+     */
+    protected boolean isRemovable(Particle particle, Double[] best_position)
+    {
+        if (particle.getIterationsSinceImprovement() >= this.stagnationLimit)
+        {
+            return true;
+        }
+
+        return this.redundancyRadius > 0. &&
+            getDistance(particle.getCurrentPosition(), best_position) < this.redundancyRadius &&
+            getDistance(particle.getBestPosition(), best_position) < this.redundancyRadius;
+    }
+
+    /**
+     * Returns the Euclidean distance between two positions.
+     * @param a position vector.
+     * @param b position vector.
+     * @return the distance.
+     */
+    private static double getDistance(Double[] a, Double[] b)
+    {
+        double sum = 0.;
+        for (int i = 0; i < a.length; i++)
+        {
+            double diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+
+        return Math.sqrt(sum);
+    }
+}
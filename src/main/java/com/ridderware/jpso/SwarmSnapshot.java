@@ -0,0 +1,255 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+/**
+ *  An immutable summary of a swarm, published by the swarm at the end of each
+ *  iteration.  A snapshot shares no state with the swarm, so it may be read from any
+ *  thread while the swarm continues to iterate.
+ *
+ * @author Jeff Ridder
+ */
+public final class SwarmSnapshot
+{
+    private final int iteration;
+
+    private final long evaluations;
+
+    private final double bestFitness;
+
+    private final double bestConstraintViolation;
+
+    private final double[] bestPosition;
+
+    private final int bestIndex;
+
+    private final int numberOfParticles;
+
+    private final double meanBestFitness;
+
+    private final double diversity;
+
+    private final double evaluationsPerSecond;
+
+    private final long moveNanos;
+
+    private final long evaluateNanos;
+
+    private final long updateNanos;
+
+    private final long timeMillis;
+
+    /**
+     * Creates a new instance of SwarmSnapshot
+     * @param iteration Iteration just completed, or -1 after initialization.
+     * @param evaluations Number of fitness evaluations performed so far.
+     * @param bestFitness Best fitness found so far.
+     * @param bestConstraintViolation Constraint violation of the best position.
+     * @param bestPosition Best position found so far.  It is copied.
+     * @param bestIndex Index of the particle holding the best position.
+     * @param numberOfParticles Number of particles in the swarm.
+     * @param meanBestFitness Mean personal best fitness of the particles.
+     * @param diversity Diversity of the swarm.
+     * @param evaluationsPerSecond Rate of evaluation over the latest iteration.
+     * @param moveNanos Total time spent moving particles, in nanoseconds.
+     * @param evaluateNanos Total time spent evaluating particles, in nanoseconds.
+     * @param updateNanos Total time spent on the rest of each iteration, in nanoseconds.
+     */
+    public SwarmSnapshot(int iteration, long evaluations, double bestFitness,
+        double bestConstraintViolation, double[] bestPosition, int bestIndex,
+        int numberOfParticles, double meanBestFitness, double diversity,
+        double evaluationsPerSecond, long moveNanos, long evaluateNanos,
+        long updateNanos)
+    {
+        this.iteration = iteration;
+        this.evaluations = evaluations;
+        this.bestFitness = bestFitness;
+        this.bestConstraintViolation = bestConstraintViolation;
+        this.bestPosition = bestPosition.clone();
+        this.bestIndex = bestIndex;
+        this.numberOfParticles = numberOfParticles;
+        this.meanBestFitness = meanBestFitness;
+        this.diversity = diversity;
+        this.evaluationsPerSecond = evaluationsPerSecond;
+        this.moveNanos = moveNanos;
+        this.evaluateNanos = evaluateNanos;
+        this.updateNanos = updateNanos;
+        this.timeMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the iteration just completed when the snapshot was taken.
+     * @return iteration, or -1 if taken after initialization.
+     */
+    public int getIteration()
+    {
+        return this.iteration;
+    }
+
+    /**
+     * Returns the number of fitness evaluations performed so far.
+     * @return number of evaluations.
+     */
+    public long getNumberOfEvaluations()
+    {
+        return this.evaluations;
+    }
+
+    /**
+     * Returns the best fitness found so far.
+     * @return best fitness.
+     */
+    public double getBestFitness()
+    {
+        return this.bestFitness;
+    }
+
+    /**
+     * Returns the constraint violation of the best position.
+     * @return constraint violation.
+     */
+    public double getBestConstraintViolation()
+    {
+        return this.bestConstraintViolation;
+    }
+
+    /**
+     * Returns a copy of the best position found so far.
+     * @return position vector.
+     */
+    public double[] getBestPosition()
+    {
+        return this.bestPosition.clone();
+    }
+
+    /**
+     * Returns one element of the best position found so far, without copying.
+     * @param index index of the element.
+     * @return the element.
+     */
+    public double getBestPosition(int index)
+    {
+        return this.bestPosition[index];
+    }
+
+    /**
+     * Returns the number of dimensions of the best position.
+     * @return number of dimensions.
+     */
+    public int getDimensions()
+    {
+        return this.bestPosition.length;
+    }
+
+    /**
+     * Returns the index of the particle holding the best position.
+     * @return particle index.
+     */
+    public int getBestIndex()
+    {
+        return this.bestIndex;
+    }
+
+    /**
+     * Returns the number of particles in the swarm.
+     * @return number of particles.
+     */
+    public int getNumberOfParticles()
+    {
+        return this.numberOfParticles;
+    }
+
+    /**
+     * Returns the mean personal best fitness of the particles.
+     * @return mean personal best fitness.
+     */
+    public double getMeanBestFitness()
+    {
+        return this.meanBestFitness;
+    }
+
+    /**
+     * Returns the diversity of the swarm, by the equation of Riget and Vesterstrom.
+     * @return diversity.
+     */
+    public double getDiversity()
+    {
+        return this.diversity;
+    }
+
+    /**
+     * Returns the rate of evaluation over the latest iteration.
+     * @return evaluations per second.
+     */
+    public double getEvaluationsPerSecond()
+    {
+        return this.evaluationsPerSecond;
+    }
+
+    /**
+     * Returns the total time the swarm has spent moving particles.
+     * @return time in nanoseconds.
+     */
+    public long getMoveNanos()
+    {
+        return this.moveNanos;
+    }
+
+    /**
+     * Returns the total time the swarm has spent evaluating particles, including
+     * preevaluation and postevaluation.
+     * @return time in nanoseconds.
+     */
+    public long getEvaluateNanos()
+    {
+        return this.evaluateNanos;
+    }
+
+    /**
+     * Returns the total time the swarm has spent on the rest of each iteration:
+     * statistics, resizing, topology updates, snapshots and listeners.
+     * @return time in nanoseconds.
+     */
+    public long getUpdateNanos()
+    {
+        return this.updateNanos;
+    }
+
+    /**
+     * Returns the time at which the snapshot was taken.
+     * @return time in milliseconds since the epoch.
+     */
+    public long getTimeMillis()
+    {
+        return this.timeMillis;
+    }
+
+    /**
+     * Returns a one-line description of the snapshot.
+     * @return description.
+     */
+    @Override
+    public String toString()
+    {
+        return "Iteration " + (this.iteration + 1) + ": best " + this.bestFitness +
+            " (particle " + this.bestIndex + "), mean best " + this.meanBestFitness +
+            ", diversity " + this.diversity + ", " + this.numberOfParticles +
+            " particles, " + this.evaluations + " evaluations";
+    }
+}
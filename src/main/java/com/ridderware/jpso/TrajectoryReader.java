@@ -0,0 +1,418 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ *  Reads a file written by TrajectoryRecorder.  Frames are numbered in the order
+ *  they were recorded.  Any frame or particle can be read directly: the chunk
+ *  holding it is located through the index at the end of the file, and only that
+ *  chunk, and within it only the columns needed, are decoded.  The most recently
+ *  decoded chunk is kept, so reading nearby frames in turn is cheap.
+ *  <p>
+ *  Particle numbers are those of the swarm at the time of the frame, and change if
+ *  the swarm is resized.
+ *
+ * @author Jeff Ridder
+ */
+public class TrajectoryReader
+{
+    private RandomAccessFile file;
+
+    private int dimensions;
+
+    private boolean compressed;
+
+    private int[] chunkFirstFrame;
+
+    private int[] chunkFrames;
+
+    private int[] chunkParticles;
+
+    private long[] chunkOffset;
+
+    private int[] chunkStoredLength;
+
+    private int[] chunkRawLength;
+
+    private int numberOfFrames;
+
+    private int cachedChunk;
+
+    private byte[] cached;
+
+    private int cachedDataStart;
+
+    /**
+     * Creates a new instance of TrajectoryReader and reads the index of the file.
+     * @param file the file to read.
+     * @throws IOException if the file cannot be read or is not a complete trajectory file.
+     */
+    public TrajectoryReader(File file) throws IOException
+    {
+        this.file = new RandomAccessFile(file, "r");
+
+        if (this.file.readLong() != TrajectoryRecorder.MAGIC ||
+            this.file.readInt() != TrajectoryRecorder.VERSION)
+        {
+            this.file.close();
+            throw new IOException("Not a trajectory file: " + file.getAbsolutePath());
+        }
+        this.dimensions = this.file.readInt();
+        this.compressed = this.file.readBoolean();
+
+        this.file.seek(this.file.length() - 20);
+        long index_offset = this.file.readLong();
+        int count = this.file.readInt();
+        if (this.file.readLong() != TrajectoryRecorder.MAGIC)
+        {
+            this.file.close();
+            throw new IOException("Trajectory file was not closed: " +
+                file.getAbsolutePath());
+        }
+
+        this.chunkFirstFrame = new int[count];
+        this.chunkFrames = new int[count];
+        this.chunkParticles = new int[count];
+        this.chunkOffset = new long[count];
+        this.chunkStoredLength = new int[count];
+        this.chunkRawLength = new int[count];
+
+        this.file.seek(index_offset);
+        for (int c = 0; c < count; c++)
+        {
+            this.chunkFirstFrame[c] = this.file.readInt();
+            this.chunkFrames[c] = this.file.readInt();
+            this.chunkParticles[c] = this.file.readInt();
+            this.chunkOffset[c] = this.file.readLong();
+            this.chunkStoredLength[c] = this.file.readInt();
+            this.chunkRawLength[c] = this.file.readInt();
+        }
+
+        this.numberOfFrames = count > 0 ?
+            this.chunkFirstFrame[count - 1] + this.chunkFrames[count - 1] : 0;
+        this.cachedChunk = -1;
+        this.cached = null;
+    }
+
+    /**
+     * Returns the number of frames in the file.
+     * @return number of frames.
+     */
+    public int getNumberOfFrames()
+    {
+        return this.numberOfFrames;
+    }
+
+    /**
+     * Returns the number of dimensions of the positions.
+     * @return number of dimensions.
+     */
+    public int getDimensions()
+    {
+        return this.dimensions;
+    }
+
+    /**
+     * Returns the number of particles in a frame.
+     * @param frame the frame.
+     * @return number of particles.
+     */
+    public int getNumberOfParticles(int frame)
+    {
+        return this.chunkParticles[this.findChunk(frame)];
+    }
+
+    /**
+     * Returns the iteration at which a frame was recorded.
+     * @param frame the frame.
+     * @return the iteration.
+     * @throws IOException if the file cannot be read.
+     */
+    public int getIteration(int frame) throws IOException
+    {
+        int c = this.loadChunk(this.findChunk(frame));
+        return readInt(this.cached, 12 + 4 * (frame - this.chunkFirstFrame[c]));
+    }
+
+    /**
+     * Returns the position of a particle in a frame.
+     * @param frame the frame.
+     * @param particle the particle.
+     * @return position vector.
+     * @throws IOException if the file cannot be read.
+     */
+    public double[] getPosition(int frame, int particle) throws IOException
+    {
+        int c = this.loadChunk(this.findChunk(frame));
+        int t = frame - this.chunkFirstFrame[c];
+
+        double[] position = new double[this.dimensions];
+        for (int d = 0; d < this.dimensions; d++)
+        {
+            position[d] = this.decode(c, particle, d, t, t + 1, null);
+        }
+
+        return position;
+    }
+
+    /**
+     * Returns the fitness of a particle in a frame.
+     * @param frame the frame.
+     * @param particle the particle.
+     * @return fitness.
+     * @throws IOException if the file cannot be read.
+     */
+    public double getFitness(int frame, int particle) throws IOException
+    {
+        int c = this.loadChunk(this.findChunk(frame));
+        int t = frame - this.chunkFirstFrame[c];
+
+        return this.decode(c, particle, this.dimensions, t, t + 1, null);
+    }
+
+    /**
+     * Returns the positions of all particles in a frame.
+     * @param frame the frame.
+     * @return array of position vectors, indexed by particle.
+     * @throws IOException if the file cannot be read.
+     */
+    public double[][] getPositions(int frame) throws IOException
+    {
+        int n = this.getNumberOfParticles(frame);
+
+        double[][] positions = new double[n][];
+        for (int p = 0; p < n; p++)
+        {
+            positions[p] = this.getPosition(frame, p);
+        }
+
+        return positions;
+    }
+
+    /**
+     * Returns the fitnesses of all particles in a frame.
+     * @param frame the frame.
+     * @return array of fitnesses, indexed by particle.
+     * @throws IOException if the file cannot be read.
+     */
+    public double[] getFitnesses(int frame) throws IOException
+    {
+        int n = this.getNumberOfParticles(frame);
+
+        double[] fitnesses = new double[n];
+        for (int p = 0; p < n; p++)
+        {
+            fitnesses[p] = this.getFitness(frame, p);
+        }
+
+        return fitnesses;
+    }
+
+    /**
+     * Returns the positions of one particle over a run of frames, decoding each
+     * column of each chunk once.
+     * @param particle the particle.
+     * @param first_frame the first frame.
+     * @param frame_count number of frames.
+     * @return array of position vectors, indexed by frame less first_frame.
+     * @throws IOException if the file cannot be read.
+     */
+    public double[][] getTrajectory(int particle, int first_frame, int frame_count)
+        throws IOException
+    {
+        double[][] trajectory = new double[frame_count][this.dimensions];
+
+        int frame = first_frame;
+        while (frame < first_frame + frame_count)
+        {
+            int c = this.loadChunk(this.findChunk(frame));
+            int from = frame - this.chunkFirstFrame[c];
+            int to = Math.min(this.chunkFrames[c], first_frame + frame_count -
+                this.chunkFirstFrame[c]);
+
+            double[] column = new double[to - from];
+            for (int d = 0; d < this.dimensions; d++)
+            {
+                this.decode(c, particle, d, from, to, column);
+                for (int t = 0; t < column.length; t++)
+                {
+                    trajectory[frame - first_frame + t][d] = column[t];
+                }
+            }
+
+            frame += to - from;
+        }
+
+        return trajectory;
+    }
+
+    /**
+     * Closes the file.
+     * @throws IOException if the file cannot be closed.
+     */
+    public void close() throws IOException
+    {
+        this.file.close();
+        this.cached = null;
+    }
+
+    /**
+     * Returns the chunk holding a frame.
+     * @param frame the frame.
+     * @return chunk index.
+     */
+    private int findChunk(int frame)
+    {
+        if (frame < 0 || frame >= this.numberOfFrames)
+        {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " +
+                this.numberOfFrames);
+        }
+
+        int low = 0;
+        int high = this.chunkFirstFrame.length - 1;
+        while (low < high)
+        {
+            int mid = (low + high + 1) >>> 1;
+            if (this.chunkFirstFrame[mid] <= frame)
+            {
+                low = mid;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Reads and, if need be, inflates a chunk, unless it is already cached.
+     * @param c chunk index.
+     * @return the chunk index.
+     * @throws IOException if the file cannot be read.
+     */
+    private int loadChunk(int c) throws IOException
+    {
+        if (c == this.cachedChunk)
+        {
+            return c;
+        }
+
+        byte[] stored = new byte[this.chunkStoredLength[c]];
+        this.file.seek(this.chunkOffset[c]);
+        this.file.readFully(stored);
+
+        byte[] raw = stored;
+        if (this.compressed)
+        {
+            raw = new byte[this.chunkRawLength[c]];
+            Inflater inflater = new Inflater();
+            inflater.setInput(stored);
+            try
+            {
+                if (inflater.inflate(raw) != raw.length)
+                {
+                    throw new IOException("Truncated chunk " + c);
+                }
+            }
+            catch (DataFormatException e)
+            {
+                throw new IOException("Corrupt chunk " + c, e);
+            }
+            finally
+            {
+                inflater.end();
+            }
+        }
+
+        this.cached = raw;
+        this.cachedChunk = c;
+        this.cachedDataStart = 12 + 4 * (this.chunkFrames[c] +
+            this.chunkParticles[c] * (this.dimensions + 1));
+
+        return c;
+    }
+
+    /**
+     * Decodes values from one column of the cached chunk.  Each value is XORed with
+     * the one before it, so decoding starts at the top of the column.
+     * @param c chunk index, which must be cached.
+     * @param particle the particle.
+     * @param d the dimension, or the number of dimensions for the fitness column.
+     * @param from first frame within the chunk to return.
+     * @param to frame within the chunk after the last to return.
+     * @param values array receiving the values from from to to, or null.
+     * @return the last value decoded.
+     */
+    private double decode(int c, int particle, int d, int from, int to,
+        double[] values)
+    {
+        if (particle < 0 || particle >= this.chunkParticles[c])
+        {
+            throw new IndexOutOfBoundsException("Particle " + particle + " of " +
+                this.chunkParticles[c]);
+        }
+
+        int column = particle * (this.dimensions + 1) + d;
+        int pos = this.cachedDataStart + readInt(this.cached,
+            12 + 4 * (this.chunkFrames[c] + column));
+
+        long bits = 0;
+        for (int t = 0; t < to; t++)
+        {
+            int control = this.cached[pos++] & 0xFF;
+            int leading = control >>> 4;
+            if (leading < 8)
+            {
+                long value = 0;
+                for (int k = leading; k < 8 - (control & 0x0F); k++)
+                {
+                    value = (value << 8) | (this.cached[pos++] & 0xFF);
+                }
+                bits ^= value << (8 * (control & 0x0F));
+            }
+            if (values != null && t >= from)
+            {
+                values[t - from] = Double.longBitsToDouble(bits);
+            }
+        }
+
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * Reads a big-endian int from a byte array.
+     * @param bytes the array.
+     * @param pos position of the first byte.
+     * @return the int.
+     */
+    private static int readInt(byte[] bytes, int pos)
+    {
+        return ((bytes[pos] & 0xFF) << 24) | ((bytes[pos + 1] & 0xFF) << 16) |
+            ((bytes[pos + 2] & 0xFF) << 8) | (bytes[pos + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,444 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import org.apache.logging.log4j.*;
+
+/**
+ *  Records the position and fitness of every particle at every iteration to a
+ *  compact binary file, for reading back with TrajectoryReader.  On the swarm's
+ *  thread the recorder only copies the particles into a frame and queues it.  A
+ *  background thread groups the frames into chunks, encodes them and writes them.
+ *  <p>
+ *  Within a chunk the data are stored by column: each dimension of each particle,
+ *  and then each particle's fitness, is a run of values over the chunk's iterations.
+ *  Each value is XORed with the one before it in its column, and only the bytes of
+ *  the XOR between its leading and trailing zero bytes are written, so values that
+ *  change little take few bytes.  Chunks
+ *  may be deflated.  A table of column offsets heads each chunk, and an index of
+ *  chunks ends the file, so a reader decodes only the chunk it needs.
+ *  <p>
+ *  A chunk is closed early when the number of particles changes.
+ *
+ * @author Jeff Ridder
+ */
+public class TrajectoryRecorder implements ISwarmListener
+{
+    /**
+     * Marks the start and end of a trajectory file.
+     */
+    static final long MAGIC = 0x4A50534F54524A31L;
+
+    /**
+     * Version of the file format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     *  The particles at one iteration.
+     */
+    private static class Frame
+    {
+        private final int iteration;
+
+        private final int numberOfParticles;
+
+        private final double[] positions;
+
+        private final double[] fitnesses;
+
+        /**
+         * Creates a new instance of Frame
+         * @param iteration the iteration.
+         * @param numberOfParticles number of particles.
+         * @param dimensions number of dimensions.
+         */
+        Frame(int iteration, int numberOfParticles, int dimensions)
+        {
+            this.iteration = iteration;
+            this.numberOfParticles = numberOfParticles;
+            this.positions = new double[numberOfParticles * dimensions];
+            this.fitnesses = new double[numberOfParticles];
+        }
+    }
+
+    private static final Frame END = new Frame(-1, 0, 0);
+
+    private File file;
+
+    private int chunkIterations;
+
+    private boolean compress;
+
+    private int dimensions;
+
+    private final BlockingQueue<Frame> queue;
+
+    private Thread writer;
+
+    private volatile boolean error;
+
+    private int frames;
+
+    private final static Logger logger = LogManager.getLogger(TrajectoryRecorder.class);
+
+    /**
+     * Creates a new instance of TrajectoryRecorder.  Add it to a swarm with
+     * Swarm.addListener, and call close when the swarm has finished.
+     * @param file the file to write.
+     * @param chunkIterations Number of iterations in each chunk.  Larger chunks compress better, smaller ones are quicker to read at random.
+     * @param compress if true, chunks are deflated.
+     */
+    public TrajectoryRecorder(File file, int chunkIterations, boolean compress)
+    {
+        this.file = file;
+        this.chunkIterations = Math.max(1, chunkIterations);
+        this.compress = compress;
+        this.dimensions = -1;
+        this.queue = new ArrayBlockingQueue<Frame>(2 * this.chunkIterations);
+        this.writer = null;
+        this.error = false;
+        this.frames = 0;
+    }
+
+    /**
+     * Copies the particles into a frame and queues it for writing.  Blocks only if
+     * the writer has fallen more than two chunks behind.
+     * @param swarm the swarm.
+     * @param current_iteration the iteration just completed.
+     */
+    public void iterationCompleted(Swarm swarm, int current_iteration)
+    {
+        if (this.error)
+        {
+            return;
+        }
+
+        Particle[] particles = swarm.getParticles();
+        if (this.writer == null)
+        {
+            this.dimensions = particles[0].getCurrentPosition().length;
+            this.start();
+        }
+
+        Frame frame = new Frame(current_iteration, particles.length, this.dimensions);
+        for (int p = 0; p < particles.length; p++)
+        {
+            Double[] position = particles[p].getCurrentPosition();
+            for (int d = 0; d < this.dimensions; d++)
+            {
+                frame.positions[p * this.dimensions + d] = position[d];
+            }
+            frame.fitnesses[p] = particles[p].getCurrentFitness();
+        }
+
+        try
+        {
+            this.queue.put(frame);
+            this.frames++;
+        }
+        catch (InterruptedException e)
+        {
+            //  Drop the frame, but let the swarm see the interruption
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Does nothing.  A change in the number of particles closes the current chunk
+     * when the next frame is written.
+     * @param swarm the swarm.
+     * @param id_map map of old to new particle IDs.
+     */
+    public void swarmResized(Swarm swarm, int[] id_map)
+    {
+    }
+
+    /**
+     * Returns the number of frames recorded.
+     * @return number of frames.
+     */
+    public int getNumberOfFrames()
+    {
+        return this.frames;
+    }
+
+    /**
+     * Writes the remaining frames and the index, and closes the file.
+     * @return true if there was an IOException.
+     */
+    public boolean close()
+    {
+        if (this.writer == null)
+        {
+            return this.error;
+        }
+
+        try
+        {
+            this.queue.put(END);
+            this.writer.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while closing " + file.getAbsolutePath());
+            this.error = true;
+        }
+        this.writer = null;
+
+        return this.error;
+    }
+
+    /**
+     * Starts the writer thread.
+     */
+    private void start()
+    {
+        this.writer = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                write();
+            }
+        }, "jpso-trajectory");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Body of the writer thread.  Takes frames from the queue until the end marker,
+     * writing a chunk whenever one fills.
+     */
+    private void write()
+    {
+        DataOutputStream out = null;
+        try
+        {
+            out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file, false)));
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(this.dimensions);
+            out.writeBoolean(this.compress);
+            long offset = 17;
+
+            ArrayList<long[]> index = new ArrayList<long[]>();
+            ArrayList<Frame> chunk = new ArrayList<Frame>();
+            Deflater deflater = this.compress ? new Deflater() : null;
+            int first_frame = 0;
+
+            while (true)
+            {
+                Frame frame = this.queue.take();
+
+                if (!chunk.isEmpty() && (frame == END ||
+                    chunk.size() == this.chunkIterations ||
+                    frame.numberOfParticles != chunk.get(0).numberOfParticles))
+                {
+                    byte[] raw = encode(chunk, this.dimensions);
+                    byte[] stored = deflater != null ? deflate(deflater, raw) : raw;
+                    out.write(stored);
+
+                    index.add(new long[] { first_frame, chunk.size(),
+                        chunk.get(0).numberOfParticles, offset, stored.length,
+                        raw.length });
+                    offset += stored.length;
+                    first_frame += chunk.size();
+                    chunk.clear();
+                }
+
+                if (frame == END)
+                {
+                    break;
+                }
+                chunk.add(frame);
+            }
+
+            //  Index of chunks, then its offset so a reader can find it from the end
+            for (long[] entry : index)
+            {
+                out.writeInt((int) entry[0]);
+                out.writeInt((int) entry[1]);
+                out.writeInt((int) entry[2]);
+                out.writeLong(entry[3]);
+                out.writeInt((int) entry[4]);
+                out.writeInt((int) entry[5]);
+            }
+            out.writeLong(offset);
+            out.writeInt(index.size());
+            out.writeLong(MAGIC);
+
+            if (deflater != null)
+            {
+                deflater.end();
+            }
+        }
+        catch (IOException e)
+        {
+            logger.error("ERROR - Could not write to file: " +
+                file.getAbsolutePath());
+            logger.error("IO Exception: " + e);
+            this.error = true;
+            this.queue.clear();
+        }
+        catch (InterruptedException e)
+        {
+            logger.error("Trajectory writer interrupted");
+            this.error = true;
+        }
+        finally
+        {
+            if (out != null)
+            {
+                try
+                {
+                    out.close();
+                }
+                catch (IOException e)
+                {
+                    this.error = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes a chunk of frames, all with the same number of particles.  The layout
+     * is the number of frames, particles and dimensions, the iteration of each
+     * frame, the offset of each column from the start of the data, and the data.
+     * @param chunk the frames.
+     * @param dimensions number of dimensions.
+     * @return the encoded chunk.
+     */
+    private static byte[] encode(ArrayList<Frame> chunk, int dimensions)
+    {
+        int t_count = chunk.size();
+        int n = chunk.get(0).numberOfParticles;
+        int columns = n * (dimensions + 1);
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream(columns * t_count * 4);
+        int[] column_offsets = new int[columns];
+
+        int column = 0;
+        for (int p = 0; p < n; p++)
+        {
+            for (int d = 0; d <= dimensions; d++)
+            {
+                column_offsets[column++] = data.size();
+
+                long previous = 0;
+                for (Frame frame : chunk)
+                {
+                    double value = d < dimensions ?
+                        frame.positions[p * dimensions + d] : frame.fitnesses[p];
+                    long bits = Double.doubleToLongBits(value);
+                    writeXor(data, bits ^ previous);
+                    previous = bits;
+                }
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(12 +
+            4 * (t_count + columns) + data.size());
+        DataOutputStream out = new DataOutputStream(bytes);
+        try
+        {
+            out.writeInt(t_count);
+            out.writeInt(n);
+            out.writeInt(dimensions);
+            for (Frame frame : chunk)
+            {
+                out.writeInt(frame.iteration);
+            }
+            for (int offset : column_offsets)
+            {
+                out.writeInt(offset);
+            }
+            data.writeTo(out);
+        }
+        catch (IOException e)
+        {
+            //  Cannot happen when writing to memory
+            throw new IllegalStateException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deflates a chunk.
+     * @param deflater the deflater.
+     * @param raw the encoded chunk.
+     * @return the deflated chunk.
+     */
+    private static byte[] deflate(Deflater deflater, byte[] raw)
+    {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished())
+        {
+            int count = deflater.deflate(buffer);
+            out.write(buffer, 0, count);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the XOR of two successive values of a column.  Two nearby doubles share
+     * their sign, exponent and leading mantissa bits, and doubles that are short
+     * decimals end in zero bits, so the XOR tends to have zero bytes at both ends.
+     * A control byte holds the number of leading zero bytes in its high nibble and
+     * of trailing zero bytes in its low nibble, and is followed by the bytes between.
+     * An unchanged value takes one byte.
+     * @param out the stream.
+     * @param value the XOR.
+     */
+    static void writeXor(ByteArrayOutputStream out, long value)
+    {
+        if (value == 0)
+        {
+            out.write(0x80);
+            return;
+        }
+
+        int leading = Long.numberOfLeadingZeros(value) >>> 3;
+        int trailing = Long.numberOfTrailingZeros(value) >>> 3;
+        out.write((leading << 4) | trailing);
+        for (int shift = 56 - 8 * leading; shift >= 8 * trailing; shift -= 8)
+        {
+            out.write((int) (value >>> shift));
+        }
+    }
+}
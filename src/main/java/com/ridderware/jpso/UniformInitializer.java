@@ -0,0 +1,73 @@
+/* %%
+ * 
+ * JPSO
+ *
+ * Copyright 2006 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jpso;
+
+import com.ridderware.jrandom.MersenneTwisterFast;
+
+/**
+ *  Initializes each coordinate of each particle independently and uniformly over
+ *  its range.  Each particle draws from its own generator, seeded from RandomSource
+ *  when the swarm is prepared, so particles may be initialized in parallel.
+ *
+ * @author Jeff Ridder
+ */
+public class UniformInitializer implements IInitializer
+{
+    private ValueLimitSet valueLimitSet;
+
+    private long[] seeds;
+
+    /**
+     * Creates a new instance of UniformInitializer
+     */
+    public UniformInitializer()
+    {
+        this.valueLimitSet = null;
+        this.seeds = null;
+    }
+
+    /**
+     * Draws a seed for each particle.
+     * @param numberOfParticles number of particles to be initialized.
+     * @param valueLimitSet the search space.
+     */
+    public void prepare(int numberOfParticles, ValueLimitSet valueLimitSet)
+    {
+        this.valueLimitSet = valueLimitSet;
+        this.seeds = new long[numberOfParticles];
+        for (int i = 0; i < numberOfParticles; i++)
+        {
+            this.seeds[i] = RandomSource.getInstance().nextLong();
+        }
+    }
+
+    /**
+     * Fills the position of a particle with uniform random values.
+     * @param index index of the particle.
+     * @param position buffer holding the position, to be filled in place.
+     */
+    public void initializePosition(int index, double[] position)
+    {
+        MersenneTwisterFast random = new MersenneTwisterFast(this.seeds[index]);
+        for (int i = 0; i < position.length; i++)
+        {
+            position[i] = this.valueLimitSet.getValueLimits(i).scale(random.nextDouble());
+        }
+    }
+}
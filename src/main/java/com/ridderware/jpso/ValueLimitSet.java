@@ -62,4 +62,38 @@ public class ValueLimitSet
     {
         return this.valueLimitSet.get(index);
     }
+
+    /**
+     * Returns whether every variable in the set takes discrete values.  The search
+     * space is then a finite set of designs.
+     * @return true if no variable is continuous.
+     */
+    public boolean isDiscrete()
+    {
+        for (ValueLimits valueLimits : valueLimitSet)
+        {
+            if (!valueLimits.isDiscrete())
+            {
+                return false;
+            }
+        }
+
+        return !valueLimitSet.isEmpty();
+    }
+
+    /**
+     * Snaps each element of a position to the nearest value its variable can take.
+     * @param position position vector.
+     * @return a new position vector.
+     */
+    public Double[] round(Double[] position)
+    {
+        Double[] rounded = new Double[position.length];
+        for (int i = 0; i < position.length; i++)
+        {
+            rounded[i] = valueLimitSet.get(i).round(position[i]);
+        }
+
+        return rounded;
+    }
 }
@@ -44,12 +44,50 @@ public class ValueLimits
         STICK
 
     }
+
+    /**
+     * Enumerates the types of variables.
+     */
+    public enum VariableType
+    {
+        /**
+         * Real-valued variable.
+         */
+        CONTINUOUS,
+        /**
+         * Integer-valued variable.  Positions are rounded to the nearest integer.
+         */
+        INTEGER,
+        /**
+         * Variable taking the value of the minimum or the maximum, as in the binary
+         * PSO of Kennedy and Eberhart.  The velocity gives the probability of taking
+         * the maximum.
+         */
+        BINARY,
+        /**
+         * Variable selecting one of a list of categories.  The position is the
+         * index of the category.
+         */
+        CATEGORICAL
+
+    }
+
+    /**
+     * Velocity limit of a binary variable.  The probability of taking the maximum
+     * stays within [0.018, 0.982], so a binary variable never settles completely.
+     */
+    public static final double BINARY_MAXIMUM_VELOCITY = 4.;
+
     private double minimum;
 
     private double maximum;
 
     private BoundaryType boundaryType;
 
+    private VariableType variableType;
+
+    private String[] categories;
+
     /**
      * Creates a new instance of ValueLimits
      * @param minimum Lower bound.
@@ -62,6 +100,42 @@ public class ValueLimits
         this.minimum = minimum;
         this.maximum = maximum;
         this.boundaryType = boundaryType;
+        this.variableType = VariableType.CONTINUOUS;
+        this.categories = null;
+    }
+
+    /**
+     * Creates a new instance of ValueLimits for a variable of a given type.  A binary
+     * variable takes the value of the minimum or the maximum.
+     * @param minimum Lower bound.
+     * @param maximum Upper bound.
+     * @param boundaryType BoundaryType.
+     * @param variableType VariableType.  Use the constructor taking categories for a categorical variable.
+     */
+    public ValueLimits(double minimum, double maximum,
+        BoundaryType boundaryType, VariableType variableType)
+    {
+        this(minimum, maximum, boundaryType);
+        this.variableType = variableType;
+    }
+
+    /**
+     * Creates a new instance of ValueLimits for a categorical variable.  The position
+     * along this dimension is the index of the category, from 0 to the number of
+     * categories less one.  Wrapping boundaries suit categories that have no natural
+     * order.  With them the limits are widened by half a step each side, so that the
+     * period is the number of categories and the first and last categories are
+     * distinct points of the circle, each covering the same share as the others.
+     * @param categories The names of the categories.
+     * @param boundaryType BoundaryType.
+     */
+    public ValueLimits(String[] categories, BoundaryType boundaryType)
+    {
+        this(boundaryType == BoundaryType.WRAP ? -0.5 : 0.,
+            boundaryType == BoundaryType.WRAP ? categories.length - 0.5 :
+            categories.length - 1., boundaryType);
+        this.variableType = VariableType.CATEGORICAL;
+        this.categories = categories.clone();
     }
 
     /**
@@ -90,4 +164,122 @@ public class ValueLimits
     {
         return this.boundaryType;
     }
+
+    /**
+     * Returns the variable type.
+     * @return VariableType.
+     */
+    public VariableType getVariableType()
+    {
+        return this.variableType;
+    }
+
+    /**
+     * Returns whether the variable takes discrete values.
+     * @return true if the variable is not continuous.
+     */
+    public boolean isDiscrete()
+    {
+        return this.variableType != VariableType.CONTINUOUS;
+    }
+
+    /**
+     * Returns the names of the categories of a categorical variable.
+     * @return array of category names, or null if the variable is not categorical.
+     */
+    public String[] getCategories()
+    {
+        return this.categories;
+    }
+
+    /**
+     * Returns the category selected by a position.
+     * @param x position along this dimension.
+     * @return category name, or null if the variable is not categorical.
+     */
+    public String getCategory(double x)
+    {
+        if (this.categories == null)
+        {
+            return null;
+        }
+        return this.categories[(int) this.round(x)];
+    }
+
+    /**
+     * Returns the velocity limit along this dimension.
+     * @return the range of the variable, or BINARY_MAXIMUM_VELOCITY for a binary variable.
+     */
+    public double getMaximumVelocity()
+    {
+        if (this.variableType == VariableType.BINARY)
+        {
+            return BINARY_MAXIMUM_VELOCITY;
+        }
+        return this.maximum - this.minimum;
+    }
+
+    /**
+     * Maps a point of the unit interval onto the range of the variable.  For a
+     * discrete variable the range is widened by half a step each side before
+     * rounding, so that every allowed value covers an equal share of the interval.
+     * @param u point in [0,1).
+     * @return the value.
+     */
+    public double scale(double u)
+    {
+        if (this.isDiscrete())
+        {
+            double low = Math.ceil(this.minimum) - 0.5;
+            double high = Math.floor(this.maximum) + 0.5;
+            return this.round(low + u * (high - low));
+        }
+        return this.minimum + u * (this.maximum - this.minimum);
+    }
+
+    /**
+     * Snaps a value to the nearest value the variable can take.
+     * @param x value.
+     * @return x for a continuous variable, otherwise the nearest allowed value.
+     */
+    public double round(double x)
+    {
+        switch (this.variableType)
+        {
+            case INTEGER:
+            case CATEGORICAL:
+            {
+                return Math.max(Math.ceil(this.minimum),
+                    Math.min(Math.floor(this.maximum), Math.rint(x)));
+            }
+            case BINARY:
+            {
+                return x >= 0.5 * (this.minimum + this.maximum) ?
+                    this.maximum : this.minimum;
+            }
+            case CONTINUOUS:
+            default:
+            {
+                return x;
+            }
+        }
+    }
+
+    /**
+     * Returns the position a mover should take along this dimension.  A binary
+     * variable takes the maximum with probability sigmoid(v), independent of x.
+     * Other discrete variables are rounded.
+     * @param x position computed by the mover.
+     * @param v velocity computed by the mover.
+     * @return the position.
+     */
+    public double discretize(double x, double v)
+    {
+        if (this.variableType == VariableType.BINARY)
+        {
+            return RandomSource.getInstance().nextDouble() <
+                1. / (1. + Math.exp(-v)) ? this.maximum : this.minimum;
+        }
+        return this.round(x);
+    }
 }
@@ -19,9 +19,9 @@
 package com.ridderware.jpso.examples.levy3;
 import com.ridderware.jpso.FIPSMover;
 import com.ridderware.jpso.ValueLimitSet;
-import com.ridderware.jpso.Particle;
 import com.ridderware.jpso.NeighborhoodTopology;
-import com.ridderware.jpso.Swarm;
+import com.ridderware.jpso.NichingSwarm;
+import com.ridderware.jpso.State;
 import com.ridderware.jpso.ValueLimits;
 
 /**
@@ -37,7 +37,7 @@ public class Main
     public static void main(String[] args)
     {
         int numParticles = 100;
-        Swarm swarm = new Swarm(numParticles, new Evaluator(), new NeighborhoodTopology(NeighborhoodTopology.Topology.SQUARE, numParticles, 3), "stats.out");
+        NichingSwarm swarm = new NichingSwarm(numParticles, new Evaluator(), new NeighborhoodTopology(NeighborhoodTopology.Topology.SQUARE, numParticles, 3), "stats.out", 3.);
         
         ValueLimitSet vLimSet = new ValueLimitSet();
         for ( int i = 0; i < 2; i++ )
@@ -55,14 +55,11 @@ public class Main
         
         //  Now let's see how many of the 9 global minima are discovered
         
-        Particle[] particles = swarm.getParticles();
-        for ( int i = 0; i < particles.length; i++ )
+        int found = 0;
+        for ( State optimum : swarm.getOptima(-176.54) )
         {
-            if ( particles[i].getBestFitness() < -176.54 )
-            {
-                Double[] best_position = particles[i].getBestPosition();
-                System.out.println((i+1)+"\t"+particles[i].getBestFitness()+"\t"+best_position[0]+"\t"+best_position[1]);
-            }
+            Double[] best_position = optimum.getPosition();
+            System.out.println((++found)+"\t"+optimum.getFitness()+"\t"+best_position[0]+"\t"+best_position[1]);
         }
         
     }